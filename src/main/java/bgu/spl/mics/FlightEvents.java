@@ -0,0 +1,172 @@
+package bgu.spl.mics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JDK Flight Recorder events of the simulation, shown under "Gurion Rock" in JDK Mission Control.
+ * <p>
+ * Every event records the tick it happened in, so a recording can be read as a per-tick timeline.
+ * An event is created and begun around the work it measures, and its fields are set and it is
+ * committed only if {@link Event#shouldCommit()} says so. When no recording asks for an event,
+ * that check is false and the JIT removes the allocation, so instrumented code pays almost
+ * nothing. The runner names every micro-service thread after its service, so the event thread
+ * JFR records is the service too.
+ * Start a recording with {@code -XX:StartFlightRecording=filename=run.jfr}.
+ * </p>
+ */
+public final class FlightEvents {
+    private static volatile int currentTick = 0;
+
+    private FlightEvents() {
+    }
+
+    /**
+     * @return The last tick TimeService broadcast.
+     */
+    public static int currentTick() {
+        return currentTick;
+    }
+
+    /**
+     * Sets the tick the events that follow are recorded in. Called by TimeService.
+     */
+    public static void setCurrentTick(int tick) {
+        currentTick = tick;
+    }
+
+    @Name("gurion.Tick")
+    @Label("Tick")
+    @Category({"Gurion Rock", "Time"})
+    @Description("TimeService broadcasting a tick to its subscribers.")
+    @StackTrace(false)
+    public static final class Tick extends Event {
+        @Label("Tick")
+        public int tick;
+
+        @Label("Service")
+        public String service;
+
+        @Label("Subscribers")
+        public int subscribers;
+    }
+
+    @Name("gurion.MessageEnqueue")
+    @Label("Message Enqueue")
+    @Category({"Gurion Rock", "Message Bus"})
+    @Description("A message put in the mailbox of one micro-service.")
+    @StackTrace(false)
+    public static final class MessageEnqueue extends Event {
+        @Label("Tick")
+        public int tick;
+
+        @Label("Message Type")
+        public Class<?> messageType;
+
+        @Label("Service")
+        @Description("The micro-service receiving the message.")
+        public String service;
+
+        @Label("Mailbox Depth")
+        @Description("Depth when enqueued: the messages in the mailbox, counting this one.")
+        public int mailboxDepth;
+    }
+
+    @Name("gurion.MessageDispatch")
+    @Label("Message Dispatch")
+    @Category({"Gurion Rock", "Message Bus"})
+    @Description("A micro-service running the callback of a message taken from its mailbox.")
+    @StackTrace(false)
+    public static final class MessageDispatch extends Event {
+        @Label("Tick")
+        public int tick;
+
+        @Label("Message Type")
+        public Class<?> messageType;
+
+        @Label("Service")
+        public String service;
+
+        @Label("Mailbox Depth")
+        @Description("Approximate: messages in the mailbox when the callback returned, which other "
+                + "services may be adding to at the same time.")
+        public int mailboxDepth;
+    }
+
+    @Name("gurion.LiDarTracking")
+    @Label("LiDAR Tracking")
+    @Category({"Gurion Rock", "Sensors"})
+    @Description("A LiDAR worker matching detected objects to their cloud points.")
+    public static final class LiDarTracking extends Event {
+        @Label("Tick")
+        public int tick;
+
+        @Label("Sensor")
+        public String sensor;
+
+        @Label("Detection Time")
+        public int detectionTime;
+
+        @Label("Detected Objects")
+        public int detectedObjects;
+
+        @Label("Tracked Objects")
+        public int trackedObjects;
+
+        @Label("Raw Cloud Points")
+        public int rawCloudPoints;
+
+        @Label("Kept Cloud Points")
+        public int keptCloudPoints;
+    }
+
+    @Name("gurion.Fusion")
+    @Label("Fusion")
+    @Category({"Gurion Rock", "Fusion"})
+    @Description("FusionSlam fusing, or parking, one batch of tracked objects.")
+    public static final class Fusion extends Event {
+        @Label("Tick")
+        public int tick;
+
+        @Label("Detection Time")
+        public int detectionTime;
+
+        @Label("Tracked Objects")
+        public int trackedObjects;
+
+        @Label("Parked")
+        @Description("The pose of the detection time was not known yet, so the objects were parked.")
+        public boolean parked;
+
+        @Label("Landmarks")
+        @Description("Landmarks counted in the statistics after the batch.")
+        public int landMarks;
+    }
+
+    @Name("gurion.OutputWrite")
+    @Label("Output Write")
+    @Category({"Gurion Rock", "Output"})
+    @Description("OutputWriter writing the output, the error output or a checkpoint.")
+    public static final class OutputWrite extends Event {
+        @Label("Tick")
+        public int tick;
+
+        @Label("Kind")
+        public String kind;
+
+        @Label("Path")
+        public String path;
+
+        @Label("Landmarks")
+        public int landMarks;
+
+        @Label("Size")
+        @DataAmount
+        public long bytes;
+    }
+}
@@ -8,9 +8,14 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
 
 import bgu.spl.mics.application.messages.CrashedBroadcast;
 import bgu.spl.mics.application.messages.DetectObjectsEvent;
+import bgu.spl.mics.application.messages.LandMarkLookupEvent;
+import bgu.spl.mics.application.messages.LandMarkRangeEvent;
+import bgu.spl.mics.application.messages.MapDeltaBroadcast;
+import bgu.spl.mics.application.messages.NearestLandMarksEvent;
 import bgu.spl.mics.application.messages.PoseEvent;
 import bgu.spl.mics.application.messages.TerminatedBroadcast;
 import bgu.spl.mics.application.messages.TickBroadcast;
@@ -28,6 +33,7 @@ public class MessageBusImpl implements MessageBus {
 	private final Map<Class<? extends Event>, ConcurrentLinkedQueue<MicroService>> eventSubscribers = new ConcurrentHashMap<>();
 	private final Map<Class<? extends Broadcast>, ConcurrentLinkedQueue<MicroService>> broadcastSubscribers = new ConcurrentHashMap<>();
 	private final Map<Event<?>, Future<?>> futureMap = new ConcurrentHashMap<>();
+	private final Map<Class<? extends Message>, LongAdder> sentCounts = new ConcurrentHashMap<>(); // by message type
 
 
 	// Singleton
@@ -36,9 +42,13 @@ public class MessageBusImpl implements MessageBus {
 		this.eventSubscribers.put(PoseEvent.class, new ConcurrentLinkedQueue<>());
 		this.eventSubscribers.put(DetectObjectsEvent.class, new ConcurrentLinkedQueue<>());
 		this.eventSubscribers.put(TrackedObjectsEvent.class, new ConcurrentLinkedQueue<>());
+		this.eventSubscribers.put(LandMarkLookupEvent.class, new ConcurrentLinkedQueue<>());
+		this.eventSubscribers.put(LandMarkRangeEvent.class, new ConcurrentLinkedQueue<>());
+		this.eventSubscribers.put(NearestLandMarksEvent.class, new ConcurrentLinkedQueue<>());
 		this.broadcastSubscribers.put(TickBroadcast.class, new ConcurrentLinkedQueue<>());
 		this.broadcastSubscribers.put(TerminatedBroadcast.class, new ConcurrentLinkedQueue<>());
 		this.broadcastSubscribers.put(CrashedBroadcast.class, new ConcurrentLinkedQueue<>());
+		this.broadcastSubscribers.put(MapDeltaBroadcast.class, new ConcurrentLinkedQueue<>());
 	}
 	private static class Holder {
 		private static final MessageBusImpl instance = new MessageBusImpl();
@@ -89,13 +99,19 @@ public class MessageBusImpl implements MessageBus {
 
 	@Override
 	public void sendBroadcast(Broadcast b) {
+		countSent(b);
 		ConcurrentLinkedQueue<MicroService> l = broadcastSubscribers.get(b.getClass());
 		//??????????????????????????
 		synchronized(l){
 			if(l!=null && !l.isEmpty()) {
 				for(MicroService ms : l) {
 					try {
-					serviceQueues.get(ms).put(b); // Add to message queue
+					LinkedBlockingQueue<Message> queue = serviceQueues.get(ms);
+					FlightEvents.MessageEnqueue event = new FlightEvents.MessageEnqueue();
+					event.begin();
+					int depth = event.isEnabled() ? queue.size() + 1 : 0;
+					queue.put(b); // Add to message queue
+					commitEnqueue(event, b, ms, depth);
 					} catch (InterruptedException e) {
 						Thread.currentThread().interrupt();
 					}
@@ -107,6 +123,7 @@ public class MessageBusImpl implements MessageBus {
 	
 	@Override
 	public <T> Future<T> sendEvent(Event<T> e) {
+		countSent(e);
 		ConcurrentLinkedQueue<MicroService> q = eventSubscribers.get(e.getClass());
 		
 		synchronized(q) {
@@ -117,7 +134,12 @@ public class MessageBusImpl implements MessageBus {
 			MicroService ms = q.poll();
 			if (ms != null) {
 				q.add(ms);
-				serviceQueues.get(ms).add(e);
+				LinkedBlockingQueue<Message> queue = serviceQueues.get(ms);
+				FlightEvents.MessageEnqueue event = new FlightEvents.MessageEnqueue();
+				event.begin();
+				int depth = event.isEnabled() ? queue.size() + 1 : 0;
+				queue.add(e);
+				commitEnqueue(event, e, ms, depth);
 			}
 		}
 	
@@ -129,6 +151,29 @@ public class MessageBusImpl implements MessageBus {
 		
 	}
 
+	/**
+	 * @param depth The mailbox depth measured before the message was added, plus one; reading it
+	 *              after the add would race with the service taking the message.
+	 */
+	private static void commitEnqueue(FlightEvents.MessageEnqueue event, Message message, MicroService ms,
+									  int depth) {
+		if (event.shouldCommit()) {
+			event.tick = FlightEvents.currentTick();
+			event.messageType = message.getClass();
+			event.service = ms.getName();
+			event.mailboxDepth = depth;
+			event.commit();
+		}
+	}
+
+	private void countSent(Message message) {
+		LongAdder count = sentCounts.get(message.getClass());
+		if (count == null) {
+			count = sentCounts.computeIfAbsent(message.getClass(), type -> new LongAdder());
+		}
+		count.increment();
+	}
+
 	@Override
 	public void register(MicroService m) {
 		serviceQueues.putIfAbsent(m, new LinkedBlockingQueue<>());
@@ -177,4 +222,11 @@ public class MessageBusImpl implements MessageBus {
 		return futureMap;
 	}
 
+	/**
+	 * @return The number of messages sent so far, by message type.
+	 */
+	public Map<Class<? extends Message>, LongAdder> getSentCounts() {
+		return sentCounts;
+	}
+
 }
@@ -166,7 +166,17 @@ public abstract class MicroService implements Runnable {
                 //?????? the call function has T value
                 Callback<Message> callback = (Callback<Message>)callbacks.get(msg.getClass());
                 if (callback != null) {
+                    FlightEvents.MessageDispatch event = new FlightEvents.MessageDispatch();
+                    event.begin();
                     callback.call(msg);
+                    if (event.shouldCommit()) {
+                        event.tick = FlightEvents.currentTick();
+                        event.messageType = msg.getClass();
+                        event.service = name;
+                        // approximate, since other services keep enqueueing while this is read
+                        event.mailboxDepth = mBusImpl.getMicroServiceQueues().get(this).size();
+                        event.commit();
+                    }
                 }
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt(); 
@@ -0,0 +1,41 @@
+package bgu.spl.mics.application;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+import bgu.spl.mics.application.objects.BinaryPoseSource;
+import bgu.spl.mics.application.objects.LiDarBinaryFile;
+import bgu.spl.mics.application.objects.LiDarColumns;
+import bgu.spl.mics.application.objects.LiDarDataBase;
+
+/**
+ * Command-line tool that converts JSON input files of the simulation into their binary formats.
+ * <p>
+ * Usage: {@code DataConverter lidar <lidar_data.json> <lidar_data.bin>}
+ * or {@code DataConverter pose <pose_data.json> <pose_data.bin>}
+ * </p>
+ * The binary files can then be used as {@code lidars_data_path} and {@code poseJsonFile} in the configuration file.
+ */
+public class DataConverter {
+
+    public static void main(String[] args) {
+        if (args.length != 3 || !("lidar".equals(args[0]) || "pose".equals(args[0]))) {
+            System.err.println("Usage: DataConverter lidar|pose <input.json> <output.bin>");
+            System.exit(1);
+        }
+        try {
+            long start = System.nanoTime();
+            if ("lidar".equals(args[0])) {
+                LiDarColumns columns = LiDarDataBase.readJson(args[1]);
+                LiDarBinaryFile.write(columns, Paths.get(args[2]));
+                System.out.println("Converted " + columns.getRecordCount() + " records (" + columns.getPointCount()
+                        + " points) in " + (System.nanoTime() - start) / 1_000_000 + " ms.");
+            } else {
+                int poses = BinaryPoseSource.convert(Paths.get(args[1]), Paths.get(args[2]));
+                System.out.println("Converted " + poses + " poses in " + (System.nanoTime() - start) / 1_000_000 + " ms.");
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to convert " + args[1], e);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package bgu.spl.mics.application;
 import bgu.spl.mics.application.configs.*;
 
+import java.io.IOException;
 import java.util.List;
 
 import bgu.spl.mics.MessageBusImpl;
@@ -28,6 +29,7 @@ public class GurionRockRunner {
         System.out.println("Starting simulation...");
         String configFilePath = args[0];
         int microServicesCnt = 0;
+        MetricsServer metricsServer = null;
         try {
             // Initialize the configuration
             //Configuration config = Configuration.getInstance("example_input_2/configuration_file.json");
@@ -37,43 +39,113 @@ public class GurionRockRunner {
             config.initializeLiDarDataBase();   
             // Initialize MessageBus (Singleton)
             MessageBusImpl messageBus = MessageBusImpl.getInstance();
+            if (config.getTimeSeriesCapacity() != null) {
+                StatisticalFolder.getInstance().setTimeSeriesCapacity(config.getTimeSeriesCapacity());
+            }
+            if (config.getMetricsPort() != null) {
+                try {
+                    metricsServer = new MetricsServer(config.getMetricsPort());
+                    metricsServer.start();
+                } catch (IOException e) {
+                    System.out.println("MetricsServer: Failed to bind port " + config.getMetricsPort()
+                            + ", running without metrics: " + e.getMessage());
+                }
+            }
 
             // Initialize PoseService
-            GPSIMU gpsimu = new GPSIMU(STATUS.UP, 0);
-            PoseService poseService = new PoseService(gpsimu);
-            Thread poseThread = new Thread(poseService);
+            GPSIMU gpsimu = new GPSIMU(STATUS.UP, 0, config.openPoseSource());
+            PoseChannel poseChannel = config.getPoseChannelCapacity() == null
+                    ? null : new PoseChannel(config.getPoseChannelCapacity());
+            PoseService poseService = new PoseService(gpsimu, poseChannel);
+            Thread poseThread = new Thread(poseService, poseService.getName());
             microServicesCnt++;
             poseThread.start();
 
             // Initialize Cameras and Camera Services
             List<Camera> cameras = CameraConfiguration.getCameras();
+            int predictedCrashTime = applyPredictedCrash(cameras, LiDarDataBase.getInstance(),
+                    config.isTrimAfterPredictedCrash());
+            if (predictedCrashTime >= 0) {
+                System.out.println("Predicted sensor crash at tick " + predictedCrashTime);
+            }
             for (Camera camera : cameras) {
                 CameraService cameraService = new CameraService(camera);
-                Thread cameraThread = new Thread(cameraService);
+                Thread cameraThread = new Thread(cameraService, cameraService.getName());
                 microServicesCnt++;
                 cameraThread.start();
             }
 
             // Initialize LiDAR Worker Services
             for (LidarConfig lidarConfig : config.getLidarWorkers().getLidarConfigurations()) {
-                LiDarWorkerTracker lidarTracker = new LiDarWorkerTracker(lidarConfig.getId(), lidarConfig.getFrequency());
+                LiDarWorkerTracker lidarTracker = new LiDarWorkerTracker(lidarConfig.getId(), lidarConfig.getFrequency(),
+                        lidarConfig.getDownsampler());
                 LiDarService lidarService = new LiDarService(lidarTracker);
-                Thread lidarThread = new Thread(lidarService);
+                Thread lidarThread = new Thread(lidarService, lidarService.getName());
                 microServicesCnt++;
                 lidarThread.start();
             }
 
             // Initialize Fusion-SLAM Singleton
             FusionSlam fusionSlam = FusionSlam.getInstance(microServicesCnt, config.getDuration());
+            fusionSlam.setInterpolatePoses(config.isInterpolatePoses());
+            if (config.getMapTileSize() != null) {
+                fusionSlam.enableTiledStore(config.getMapTileDirectory(), config.getMapTileSize(),
+                        config.getMaxResidentTiles());
+            }
+            if (config.getFusionParallelism() > 1) {
+                fusionSlam.setFusionEngine(new FusionEngine(config.getFusionParallelism()));
+            }
+            if (config.getOccupancyGridResolution() != null) {
+                fusionSlam.enableOccupancyGrid(config.getOccupancyGridResolution(), config.getOccupancyGridFile());
+            }
+            Double cellSize = config.getSpatialIndexCellSize();
+            if (config.getProximityAssociationRadius() != null) {
+                double radius = config.getProximityAssociationRadius();
+                fusionSlam.enableProximityAssociation(cellSize != null ? cellSize : Math.max(radius, 1.0), radius);
+            } else if (cellSize != null) {
+                fusionSlam.enableSpatialIndex(cellSize);
+            }
+            if (config.getFusionShards() > 1) {
+                fusionSlam.enableShards(config.getFusionShards());
+            }
+            if (config.isGzipOutput()) {
+                fusionSlam.setOutputWriter(new OutputWriter(true));
+            }
+            if (config.getCheckpointInterval() != null) {
+                fusionSlam.enableCheckpoints(config.getCheckpointInterval(), config.getCheckpointFile());
+            }
+            if (config.isMapDeltas()) {
+                fusionSlam.enableMapDeltas(config.getMapDeltaFile());
+            }
+            if (config.getPoseGraphWindow() != null) {
+                fusionSlam.enablePoseGraph(config.getPoseGraphWindow(), config.getPoseGraphInterval());
+            }
+            if (config.isSimplifyLandMarks()) {
+                fusionSlam.enableSimplification(config.getSimplifyTolerance(), config.getMaxLandmarkPoints());
+            }
+            if (config.isMapQueries()) {
+                fusionSlam.enableSnapshots(cellSize != null ? cellSize : MapSnapshot.DEFAULT_CELL_SIZE);
+            }
+            fusionSlam.setReorderBuffer(new FusionReorderBuffer(config.getReorderBufferCapacity(),
+                    config.getReorderTimeoutTicks()));
+            if (poseChannel != null) {
+                fusionSlam.setPoseChannel(poseChannel, config.getTickTime());
+            }
 
             // Initialize Fusion-SLAM Service
             FusionSlamService fusionSlamService = new FusionSlamService(fusionSlam);
-            Thread fusionThread = new Thread(fusionSlamService);
+            Thread fusionThread = new Thread(fusionSlamService, fusionSlamService.getName());
             fusionThread.start();
 
+            // Initialize the map query service, which FusionSlam does not wait for
+            if (config.isMapQueries()) {
+                MapQueryService mapQueryService = new MapQueryService(fusionSlam);
+                new Thread(mapQueryService, mapQueryService.getName()).start();
+            }
+
             // Initialize TimeService
             TimeService timeService = new TimeService(config.getTickTime(), config.getDuration());
-            Thread timeThread = new Thread(timeService);
+            Thread timeThread = new Thread(timeService, timeService.getName());
             timeThread.start();
 
             // Wait for TimeService to finish
@@ -85,6 +157,44 @@ public class GurionRockRunner {
             Thread.currentThread().interrupt();
             e.printStackTrace();
             System.out.println("Simulation interrupted by interruption.");
+        } finally {
+            // The HTTP dispatcher thread is not a daemon, so the server must be stopped
+            if (metricsServer != null) {
+                metricsServer.stop();
+            }
+        }
+    }
+
+    /**
+     * Predicts the tick at which the first sensor fault will crash the simulation and, if {@code trim}
+     * is set, drops the camera and LiDAR data after it, which no service can reach.
+     *
+     * @return The predicted crash tick, or -1 if no sensor fails.
+     */
+    public static int applyPredictedCrash(List<Camera> cameras, LiDarDataBase dataBase, boolean trim) {
+        int crashTime = predictCrashTime(cameras, dataBase);
+        if (crashTime >= 0 && trim) {
+            for (Camera camera : cameras) {
+                camera.discardAfter(crashTime);
+            }
+            dataBase.discardAfter(crashTime);
+        }
+        return crashTime;
+    }
+
+    /**
+     * Predicts the tick at which the first sensor fault will crash the simulation.
+     *
+     * @return The earliest first-error time over all cameras and the LiDAR data, or -1 if no sensor fails.
+     */
+    private static int predictCrashTime(List<Camera> cameras, LiDarDataBase dataBase) {
+        int crashTime = dataBase.getFirstErrorTime();
+        for (Camera camera : cameras) {
+            int errorTime = camera.getFirstErrorTime();
+            if (errorTime >= 0 && (crashTime < 0 || errorTime < crashTime)) {
+                crashTime = errorTime;
+            }
         }
+        return crashTime;
     }
 }          
@@ -2,16 +2,18 @@ package bgu.spl.mics.application.configs;
 
 import com.google.gson.Gson;
 
+import bgu.spl.mics.application.objects.FusionSlam;
+import bgu.spl.mics.application.objects.GeometrySimplifier;
 import bgu.spl.mics.application.objects.LiDarDataBase;
-import bgu.spl.mics.application.objects.Pose;
+import bgu.spl.mics.application.objects.PoseSource;
+import bgu.spl.mics.application.objects.TiledLandMarkStore;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
-import com.google.gson.reflect.TypeToken;
-import java.lang.reflect.Type;
 
 /**
  * Represents the configuration data for the simulation.
@@ -19,32 +21,63 @@ import java.lang.reflect.Type;
 public class Configuration {
 
 
+    private static final int DEFAULT_POSE_LOOKAHEAD = 1024;
+
     private static Configuration instance;
     private CamerasConfig Cameras;
     private LidarWorkersConfig LiDarWorkers;
     private String poseJsonFile;
     private int TickTime;
     private int Duration;
+    private boolean TrimAfterPredictedCrash; // optional, drops sensor data past the first predicted fault
+    private boolean InterpolatePoses; // optional, interpolates poses for ticks that have none
+    private Integer PoseChannelCapacity; // optional, shares poses through a PoseChannel instead of PoseEvents
+    private Integer ReorderBufferCapacity; // optional, tracked objects parked while waiting for their pose
+    private Integer ReorderTimeoutTicks; // optional, ticks a parked tracked object waits before it is dropped
+    private Integer PoseLookahead; // optional, poses read ahead of the simulation from a JSON pose file
+    private Integer FusionParallelism; // optional, threads used to fuse a batch of tracked objects
+    private Double SpatialIndexCellSize; // optional, indexes landmarks by position
+    private Double ProximityAssociationRadius; // optional, matches objects without an id by position
+    private Double OccupancyGridResolution; // optional, builds an occupancy grid with this cell size
+    private String OccupancyGridFile; // optional, where the occupancy grid is written
+    private Integer FusionShards; // optional, shard threads that each own a share of the landmark ids
+    private boolean GzipOutput; // optional, gzips the output file and checkpoints
+    private Integer CheckpointInterval; // optional, ticks between map checkpoints
+    private String CheckpointFile; // optional, where map checkpoints are written
+    private boolean MapDeltas; // optional, broadcasts the changed landmarks after every tick
+    private String MapDeltaFile; // optional, appends every map delta to this file
+    private Integer PoseGraphWindow; // optional, corrects poses with a pose graph over this many poses
+    private Integer PoseGraphInterval; // optional, ticks between pose graph optimizations
+    private boolean MapQueries; // optional, publishes map snapshots and answers queries on them
+    private Double SimplifyTolerance; // optional, simplifies landmarks, dropping points this close to the line
+    private Integer MaxLandmarkPoints; // optional, the most points a simplified landmark keeps
+    private Double MapTileSize; // optional, keeps the map in tiles of this size, spilling cold ones to disk
+    private Integer MaxResidentTiles; // optional, map tiles kept in memory
+    private String MapTileDirectory; // optional, where spilled map tiles are written
+    private Integer TimeSeriesCapacity; // optional, ticks of per-tick counts kept for the output
+    private Integer MetricsPort; // optional, serves Prometheus metrics on 127.0.0.1 at this port
 
     public static Configuration getInstance(String filePath) {
        if (instance == null) {
            try (FileReader reader = new FileReader(filePath)) {
                Gson gson = new Gson();
 
-               instance = gson.fromJson(reader, Configuration.class);
+               Configuration config = gson.fromJson(reader, Configuration.class);
 
-               System.out.println("Configuration loaded successfully: " + instance);
+               System.out.println("Configuration loaded successfully: " + config);
    
                Path basePath = Paths.get(filePath).getParent();
-               if (instance.getCameras().getCameraDatasPath() != null) {
-                   instance.getCameras().setCameraDatasPath(basePath.resolve(instance.getCameras().getCameraDatasPath()).toString());
+               if (config.getCameras().getCameraDatasPath() != null) {
+                   config.getCameras().setCameraDatasPath(basePath.resolve(config.getCameras().getCameraDatasPath()).toString());
                }
-               if (instance.getLidarWorkers().getLidarsDataPath() != null) {
-                   instance.getLidarWorkers().setLidarsDataPath(basePath.resolve(instance.getLidarWorkers().getLidarsDataPath()).toString());
+               if (config.getLidarWorkers().getLidarsDataPath() != null) {
+                   config.getLidarWorkers().setLidarsDataPath(basePath.resolve(config.getLidarWorkers().getLidarsDataPath()).toString());
                }
-               if (instance.getPoseJsonFile() != null) {
-                   instance.setPoseJsonFile(basePath.resolve(instance.getPoseJsonFile()).toString());
+               if (config.getPoseJsonFile() != null) {
+                   config.setPoseJsonFile(basePath.resolve(config.getPoseJsonFile()).toString());
                }
+               config.validate();
+               instance = config; // only once it is valid
 
            } catch (FileNotFoundException e) {
                throw new RuntimeException("Configuration file not found: " + filePath, e);
@@ -56,6 +89,34 @@ public class Configuration {
         return instance;
     }
 
+    /**
+     * Rejects options that cannot be combined. Shards fuse on their own engines and stores, so they
+     * support neither a parallel engine, nor the occupancy grid, the spatial index or map tiles.
+     */
+    private void validate() {
+        if (getFusionShards() > 1) {
+            List<String> conflicts = new ArrayList<>();
+            if (getFusionParallelism() > 1) {
+                conflicts.add("FusionParallelism");
+            }
+            if (OccupancyGridResolution != null) {
+                conflicts.add("OccupancyGridResolution");
+            }
+            if (SpatialIndexCellSize != null) {
+                conflicts.add("SpatialIndexCellSize");
+            }
+            if (ProximityAssociationRadius != null) {
+                conflicts.add("ProximityAssociationRadius");
+            }
+            if (MapTileSize != null) {
+                conflicts.add("MapTileSize");
+            }
+            if (!conflicts.isEmpty()) {
+                throw new IllegalArgumentException("FusionShards cannot be combined with " + String.join(", ", conflicts));
+            }
+        }
+    }
+
     public CamerasConfig getCameras() {
         return Cameras;
     }
@@ -76,6 +137,118 @@ public class Configuration {
         return Duration;
     }
 
+    public boolean isTrimAfterPredictedCrash() {
+        return TrimAfterPredictedCrash;
+    }
+
+    public boolean isInterpolatePoses() {
+        return InterpolatePoses;
+    }
+
+    public Integer getPoseChannelCapacity() {
+        return PoseChannelCapacity;
+    }
+
+    public int getReorderBufferCapacity() {
+        return ReorderBufferCapacity != null ? ReorderBufferCapacity : FusionSlam.DEFAULT_REORDER_CAPACITY;
+    }
+
+    public int getReorderTimeoutTicks() {
+        return ReorderTimeoutTicks != null ? ReorderTimeoutTicks : FusionSlam.DEFAULT_REORDER_TIMEOUT;
+    }
+
+    public int getFusionParallelism() {
+        return FusionParallelism != null ? FusionParallelism : 1;
+    }
+
+    public int getFusionShards() {
+        return FusionShards != null ? FusionShards : 1;
+    }
+
+    public boolean isGzipOutput() {
+        return GzipOutput;
+    }
+
+    public Integer getCheckpointInterval() {
+        return CheckpointInterval;
+    }
+
+    public String getCheckpointFile() {
+        return CheckpointFile != null ? CheckpointFile : "checkpoint_file.json";
+    }
+
+    public boolean isMapDeltas() {
+        return MapDeltas || MapDeltaFile != null;
+    }
+
+    public String getMapDeltaFile() {
+        return MapDeltaFile;
+    }
+
+    public Integer getPoseGraphWindow() {
+        return PoseGraphWindow;
+    }
+
+    public Double getMapTileSize() {
+        return MapTileSize;
+    }
+
+    public int getMaxResidentTiles() {
+        return MaxResidentTiles != null ? MaxResidentTiles : TiledLandMarkStore.DEFAULT_MAX_RESIDENT_TILES;
+    }
+
+    public String getMapTileDirectory() {
+        return MapTileDirectory != null ? MapTileDirectory : "map_tiles";
+    }
+
+    public Integer getMetricsPort() {
+        return MetricsPort;
+    }
+
+    public Integer getTimeSeriesCapacity() {
+        return TimeSeriesCapacity;
+    }
+
+    public boolean isSimplifyLandMarks() {
+        return SimplifyTolerance != null || MaxLandmarkPoints != null;
+    }
+
+    public double getSimplifyTolerance() {
+        return SimplifyTolerance != null ? SimplifyTolerance : 0;
+    }
+
+    public int getMaxLandmarkPoints() {
+        return MaxLandmarkPoints != null ? MaxLandmarkPoints : GeometrySimplifier.DEFAULT_MAX_POINTS;
+    }
+
+    public boolean isMapQueries() {
+        return MapQueries;
+    }
+
+    public int getPoseGraphInterval() {
+        return PoseGraphInterval != null ? PoseGraphInterval : FusionSlam.DEFAULT_POSE_GRAPH_INTERVAL;
+    }
+
+    public Double getSpatialIndexCellSize() {
+        return SpatialIndexCellSize;
+    }
+
+    public Double getProximityAssociationRadius() {
+        return ProximityAssociationRadius;
+    }
+
+    public Double getOccupancyGridResolution() {
+        return OccupancyGridResolution;
+    }
+
+    public String getOccupancyGridFile() {
+        return OccupancyGridFile != null ? OccupancyGridFile : "occupancy_grid.bin";
+    }
+
+    public int getPoseLookahead() {
+        return PoseLookahead != null ? PoseLookahead : DEFAULT_POSE_LOOKAHEAD;
+    }
+
 
     public void setPoseJsonFile(String poseJsonFile) {
         this.poseJsonFile = poseJsonFile;
@@ -100,6 +273,7 @@ public class Configuration {
     public static class LidarWorkersConfig {
         private List<LidarConfig> LidarConfigurations;
         private String lidars_data_path;
+        private Integer lidars_window_read_ahead; // optional, enables the windowed LiDAR database
 
         public List<LidarConfig> getLidarConfigurations() {
             return LidarConfigurations;
@@ -111,20 +285,34 @@ public class Configuration {
         public void setLidarsDataPath(String lidarsDataPath) {
             this.lidars_data_path = lidarsDataPath;
         }
+
+        public Integer getWindowReadAhead() {
+            return lidars_window_read_ahead;
+        }
     }
 
      public void initializeLiDarDataBase() {
         String lidarDataPath = getLidarWorkers().getLidarsDataPath();
         LiDarDataBase.getInstance().loadData(lidarDataPath);
+        Integer readAhead = getLidarWorkers().getWindowReadAhead();
+        if (readAhead != null) {
+            // A detection of time t reaches the LiDAR workers at tick t + camera frequency
+            int lag = 1;
+            for (CameraConfig camera : getCameras().getCamerasConfigurations()) {
+                lag = Math.max(lag, camera.getFrequency() + 1);
+            }
+            LiDarDataBase.getInstance().enableWindow(lag, readAhead);
+        }
         System.out.println("LiDar database initialized.");
  
     }
-    public List<Pose> loadPoseList() {
-        try (FileReader reader = new FileReader(this.poseJsonFile)) { 
-            Gson gson = new Gson();
-            Type poseListType = new TypeToken<List<Pose>>() {}.getType();
-            return gson.fromJson(reader, poseListType); 
-        } catch (Exception e) {
+    /**
+     * Opens the pose file, streaming it if it is JSON and memory-mapping it if it is binary.
+     */
+    public PoseSource openPoseSource() {
+        try {
+            return PoseSource.open(Paths.get(this.poseJsonFile), getPoseLookahead());
+        } catch (IOException e) {
             throw new RuntimeException("Failed to load pose list from file: " + this.poseJsonFile, e);
         }
     }
@@ -1,8 +1,11 @@
 package bgu.spl.mics.application.configs;
 
+import bgu.spl.mics.application.objects.PointDownsampler;
+
 public  class LidarConfig {
     private int id;
     private int frequency;
+    private DownsamplingConfig downsampling; // optional, e.g. {"method": "voxel", "size": 0.05}
 
 
     public int getId() {
@@ -13,5 +16,17 @@ public  class LidarConfig {
         return frequency;
     }
 
+    public PointDownsampler getDownsampler() {
+        if (downsampling == null) {
+            return PointDownsampler.NONE;
+        }
+        return PointDownsampler.of(downsampling.method, downsampling.size);
+    }
+
+    public static class DownsamplingConfig {
+        private String method;
+        private double size;
+    }
+
 
 }
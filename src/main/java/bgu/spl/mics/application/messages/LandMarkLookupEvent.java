@@ -0,0 +1,20 @@
+package bgu.spl.mics.application.messages;
+
+import bgu.spl.mics.Event;
+import bgu.spl.mics.application.objects.LandMark;
+
+/**
+ * Asks MapQueryService for the landmark with an id, as of the latest map snapshot.
+ * Resolves to null if there is no such landmark.
+ */
+public class LandMarkLookupEvent implements Event<LandMark> {
+    private final String id;
+
+    public LandMarkLookupEvent(String id) {
+        this.id = id;
+    }
+
+    public String getId() {
+        return id;
+    }
+}
@@ -0,0 +1,34 @@
+package bgu.spl.mics.application.messages;
+
+import java.util.List;
+
+import bgu.spl.mics.Event;
+import bgu.spl.mics.application.objects.LandMark;
+
+/**
+ * Asks MapQueryService for the landmarks within a radius of a point, nearest first, as of the
+ * latest map snapshot.
+ */
+public class LandMarkRangeEvent implements Event<List<LandMark>> {
+    private final double x;
+    private final double y;
+    private final double radius;
+
+    public LandMarkRangeEvent(double x, double y, double radius) {
+        this.x = x;
+        this.y = y;
+        this.radius = radius;
+    }
+
+    public double getX() {
+        return x;
+    }
+
+    public double getY() {
+        return y;
+    }
+
+    public double getRadius() {
+        return radius;
+    }
+}
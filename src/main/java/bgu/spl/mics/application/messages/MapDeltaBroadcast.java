@@ -0,0 +1,19 @@
+package bgu.spl.mics.application.messages;
+
+import bgu.spl.mics.Broadcast;
+import bgu.spl.mics.application.objects.MapDelta;
+
+/**
+ * Sent by FusionSlamService after a tick with the landmarks that changed since the previous one.
+ */
+public class MapDeltaBroadcast implements Broadcast {
+    private final MapDelta delta;
+
+    public MapDeltaBroadcast(MapDelta delta) {
+        this.delta = delta;
+    }
+
+    public MapDelta getDelta() {
+        return delta;
+    }
+}
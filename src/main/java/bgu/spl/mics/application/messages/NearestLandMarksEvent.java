@@ -0,0 +1,34 @@
+package bgu.spl.mics.application.messages;
+
+import java.util.List;
+
+import bgu.spl.mics.Event;
+import bgu.spl.mics.application.objects.LandMark;
+
+/**
+ * Asks MapQueryService for the k landmarks nearest to a point, nearest first, as of the latest
+ * map snapshot.
+ */
+public class NearestLandMarksEvent implements Event<List<LandMark>> {
+    private final double x;
+    private final double y;
+    private final int k;
+
+    public NearestLandMarksEvent(double x, double y, int k) {
+        this.x = x;
+        this.y = y;
+        this.k = k;
+    }
+
+    public double getX() {
+        return x;
+    }
+
+    public double getY() {
+        return y;
+    }
+
+    public int getK() {
+        return k;
+    }
+}
@@ -0,0 +1,192 @@
+package bgu.spl.mics.application.objects;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import com.google.gson.stream.JsonReader;
+
+/**
+ * A memory-mapped binary pose file.
+ * <p>
+ * Layout (little endian):
+ * <pre>
+ * header  16 bytes: magic, version, poseCount, lastTime
+ * poses   poseCount x (int time, float x, float y, float yaw), sorted by time
+ * </pre>
+ * A pose is found by its index when the times are consecutive, and by binary search otherwise.
+ * Nothing is decoded up front, so opening is immediate and the OS page cache holds only the
+ * part of the trajectory that was recently used.
+ * </p>
+ */
+public class BinaryPoseSource implements PoseSource {
+    public static final int MAGIC = 0x31455350; // "PSE1"
+    public static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 16;
+    private static final int POSE_SIZE = 16;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int poseCount;
+    private final int lastTime;
+
+    private BinaryPoseSource(FileChannel channel) throws IOException {
+        this.channel = channel;
+        long size = channel.size();
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Pose file too large to map: " + size + " bytes");
+        }
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (size < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a binary pose file");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported pose file version: " + buffer.getInt(4));
+        }
+        poseCount = buffer.getInt(8);
+        lastTime = buffer.getInt(12);
+        if (HEADER_SIZE + (long) poseCount * POSE_SIZE > size) {
+            throw new IOException("Truncated pose file");
+        }
+    }
+
+    /**
+     * Memory-maps an existing binary pose file.
+     */
+    public static BinaryPoseSource open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new BinaryPoseSource(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return true if the file starts with the binary pose magic number.
+     */
+    public static boolean isBinary(Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            while (magic.hasRemaining() && channel.read(magic) >= 0) {
+                // keep reading until the 4 bytes are in
+            }
+            return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Converts a pose_data.json file into the binary format, one pose at a time.
+     *
+     * @return The number of poses written.
+     */
+    public static int convert(Path json, Path binary) throws IOException {
+        try (Reader file = Files.newBufferedReader(json, StandardCharsets.UTF_8);
+             JsonReader reader = new JsonReader(file);
+             FileChannel out = FileChannel.open(binary, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer chunk = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+            out.position(HEADER_SIZE);
+            int count = 0;
+            int lastTime = Integer.MIN_VALUE;
+            reader.beginArray();
+            while (reader.hasNext()) {
+                Pose pose = StreamingPoseSource.readPose(reader);
+                if (pose.getTime() <= lastTime) {
+                    throw new IOException("Pose times must increase: " + pose.getTime() + " after " + lastTime);
+                }
+                if (chunk.remaining() < POSE_SIZE) {
+                    writeFully(out, chunk);
+                }
+                chunk.putInt(pose.getTime()).putFloat(pose.getX()).putFloat(pose.getY()).putFloat(pose.getYaw());
+                lastTime = pose.getTime();
+                count++;
+            }
+            reader.endArray();
+            writeFully(out, chunk);
+
+            // the header goes in last, once the count is known
+            chunk.putInt(MAGIC).putInt(VERSION).putInt(count).putInt(count == 0 ? 0 : lastTime);
+            out.position(0);
+            writeFully(out, chunk);
+            return count;
+        }
+    }
+
+    @Override
+    public Pose getPoseAtTick(int tick) {
+        int index = find(tick);
+        if (index < 0) {
+            return null;
+        }
+        int position = HEADER_SIZE + index * POSE_SIZE;
+        return new Pose(buffer.getFloat(position + 4), buffer.getFloat(position + 8),
+                buffer.getFloat(position + 12), tick);
+    }
+
+    @Override
+    public boolean isLastTick(int tick) {
+        return poseCount > 0 && tick >= lastTime;
+    }
+
+    public int size() {
+        return poseCount;
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // nothing left to release
+        }
+    }
+
+    private int find(int tick) {
+        if (poseCount == 0) {
+            return -1;
+        }
+        long guess = (long) tick - timeAt(0); // exact when the times are consecutive
+        if (guess >= 0 && guess < poseCount && timeAt((int) guess) == tick) {
+            return (int) guess;
+        }
+        int low = 0;
+        int high = poseCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midTime = timeAt(mid);
+            if (midTime < tick) {
+                low = mid + 1;
+            } else if (midTime > tick) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private int timeAt(int index) {
+        return buffer.getInt(HEADER_SIZE + index * POSE_SIZE);
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer chunk) throws IOException {
+        chunk.flip();
+        while (chunk.hasRemaining()) {
+            out.write(chunk);
+        }
+        chunk.clear();
+    }
+}
@@ -17,6 +17,9 @@ public class Camera {
     private STATUS status;
     private final List<StampedDetectedObjects> detectedObjectsList;
     private final Map<Integer, StampedDetectedObjects> eventMap = new TreeMap<>();
+    private int lastDetectionTime = 0;
+    private int firstErrorTime = -1; // -1 while no "ERROR" object was loaded
+    private String firstErrorDescription;
 
     public Camera(int id, int frequency) {
         this.id = id;
@@ -38,20 +41,20 @@ public class Camera {
         return eventMap;
     }
 
+    /**
+     * O(1): the first fault is found once, while the detections are loaded.
+     *
+     * @return The error description if the camera fails at {@code currentTime}, null otherwise.
+     */
     public String checkForError(int currentTime) {
-        List<DetectedObject> detectedObjects = getDetectedObjectsAtTime(currentTime);
-        if (detectedObjects != null) {
-            for (DetectedObject object : detectedObjects) {
-                if ("ERROR".equals(object.getId())) {
-                    return object.getDescription();
-                }
-            }
+        if (currentTime == firstErrorTime) {
+            return firstErrorDescription;
         }
         return null;
     }
 
     public boolean checkAndTerminate(int currentTime) {
-        int lastTime = detectedObjectsList.get(detectedObjectsList.size() - 1).getTime() + frequency;
+        int lastTime = lastDetectionTime + frequency;
         if (currentTime > lastTime) {
             return true;
         }
@@ -60,6 +63,30 @@ public class Camera {
 
     public void addDetectedObject(StampedDetectedObjects object) {
         detectedObjectsList.add(object);
+        lastDetectionTime = object.getTime();
+        if (firstErrorTime < 0 || object.getTime() < firstErrorTime) {
+            for (DetectedObject detected : object.getDetectedObjects()) {
+                if (DetectedObject.ERROR_ID.equals(detected.getId())) {
+                    firstErrorTime = object.getTime();
+                    firstErrorDescription = detected.getDescription();
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The first time this camera reports an error, or -1 if it never does.
+     */
+    public int getFirstErrorTime() {
+        return firstErrorTime;
+    }
+
+    /**
+     * Drops the detections after {@code time}. Termination still follows the last recorded detection.
+     */
+    public void discardAfter(int time) {
+        detectedObjectsList.removeIf(stamped -> stamped.getTime() > time);
     }
 
     public int getId() {
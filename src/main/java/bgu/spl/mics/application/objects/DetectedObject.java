@@ -5,6 +5,8 @@ package bgu.spl.mics.application.objects;
  * It contains information such as the object's ID and description.
  */
 public class DetectedObject {
+    public static final String ERROR_ID = "ERROR"; // id of the objects, and LiDAR records, that mark a sensor fault
+
     private String id;
     private String description;
 
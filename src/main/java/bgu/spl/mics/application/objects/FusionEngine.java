@@ -0,0 +1,250 @@
+package bgu.spl.mics.application.objects;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * Transforms tracked objects into the global frame and merges them into the landmark store,
+ * optionally spreading a batch over a fork-join pool.
+ * <p>
+ * A batch is fused in three steps:
+ * <ol>
+ *   <li>every object's points are transformed, in parallel;</li>
+ *   <li>on the calling thread, the objects are grouped by id in first-seen order, and the ids
+ *       that are new get a landmark from their first object, in the same order as the serial loop;</li>
+ *   <li>the groups are merged into their landmarks in parallel. Within a group the objects are
+ *       merged in batch order while holding the lock stripe of that id.</li>
+ * </ol>
+ * Every landmark therefore receives the same updates in the same order as in the serial loop,
+ * so the results are identical whatever the parallelism.
+ * </p>
+ * <p>
+ * With proximity association enabled, an object without an id is matched to the landmark
+ * nearest to the centroid of its points, if one is within the association radius, and otherwise
+ * starts a new landmark. Matching is against the map as it was before the batch.
+ * </p>
+ */
+public class FusionEngine {
+    private static final int STRIPES = 64; // power of two
+    private static final int MIN_PARALLEL_BATCH = 64; // smaller batches are fused serially
+    private static final int SPLIT_THRESHOLD = 16; // objects per fork-join leaf task
+
+    private final ForkJoinPool pool; // null for the serial engine
+    private final Object[] stripes = new Object[STRIPES];
+    private double associationRadius = -1; // negative while proximity association is off
+    private int unidentifiedCount = 0;
+    private OccupancyGrid occupancyGrid; // optional, updated with every transformed point
+    private GeometrySimplifier simplifier; // optional, applied to every landmark after it changes
+
+    /**
+     * @param parallelism The number of worker threads; 1 fuses every batch on the calling thread.
+     */
+    public FusionEngine(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Fusion parallelism must be at least 1: " + parallelism);
+        }
+        this.pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Object();
+        }
+    }
+
+    /**
+     * Matches objects that arrive without an id to the nearest landmark within {@code radius}.
+     * The landmark store must have its spatial index enabled.
+     */
+    public void setAssociationRadius(double radius) {
+        this.associationRadius = radius;
+    }
+
+    /**
+     * Casts a ray into {@code grid} from the robot to every transformed point.
+     */
+    public void setOccupancyGrid(OccupancyGrid grid) {
+        this.occupancyGrid = grid;
+    }
+
+    /**
+     * Simplifies the geometry of every landmark after it is created or updated.
+     */
+    public void setSimplifier(GeometrySimplifier simplifier) {
+        this.simplifier = simplifier;
+    }
+
+    public int getParallelism() {
+        return pool == null ? 1 : pool.getParallelism();
+    }
+
+    /**
+     * Fuses a batch of tracked objects seen from {@code frame} into {@code landMarks}.
+     *
+     * @return The number of new landmarks.
+     */
+    public int fuse(List<TrackedObject> trackedObjects, PoseTrajectory.Frame frame, LandMarkStore landMarks) {
+        landMarks.beginBatch();
+        try {
+            return fuseBatch(trackedObjects, frame, landMarks);
+        } finally {
+            landMarks.endBatch();
+        }
+    }
+
+    private int fuseBatch(List<TrackedObject> trackedObjects, PoseTrajectory.Frame frame, LandMarkStore landMarks) {
+        int count = trackedObjects.size();
+        List<List<CloudPoint>> transformed = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            transformed.add(null);
+        }
+        forEach(count, i -> transformed.set(i, transform(trackedObjects.get(i).getCoordinates(), frame)));
+        if (occupancyGrid != null) {
+            for (List<CloudPoint> points : transformed) {
+                for (CloudPoint point : points) {
+                    occupancyGrid.addRay(frame.getX(), frame.getY(), point.getX(), point.getY());
+                }
+            }
+        }
+
+        String[] ids = new String[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = trackedObjects.get(i).getId();
+            if (associationRadius >= 0 && (ids[i] == null || ids[i].trim().isEmpty())) {
+                ids[i] = associate(transformed.get(i), landMarks);
+            }
+        }
+        Map<String, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            groups.computeIfAbsent(ids[i], id -> new ArrayList<>()).add(i);
+        }
+        int added = 0;
+        List<LandMark> targets = new ArrayList<>(groups.size());
+        List<List<Integer>> updates = new ArrayList<>(groups.size());
+        for (List<Integer> group : groups.values()) {
+            TrackedObject first = trackedObjects.get(group.get(0));
+            LandMark landMark = landMarks.get(ids[group.get(0)]);
+            if (landMark == null) {
+                landMark = new LandMark(ids[group.get(0)], first.getDescription(), transformed.get(group.get(0)));
+                if (simplifier != null && group.size() == 1) {
+                    simplify(landMark);
+                }
+                landMarks.add(landMark);
+                added++;
+                group = group.subList(1, group.size());
+            }
+            if (!group.isEmpty()) {
+                targets.add(landMark);
+                updates.add(group);
+            }
+        }
+
+        forEach(targets.size(), g -> {
+            LandMark landMark = targets.get(g);
+            synchronized (stripeOf(landMark.getId())) {
+                for (int i : updates.get(g)) {
+                    landMark.updateCoordinates(transformed.get(i));
+                }
+                if (simplifier != null) {
+                    simplify(landMark);
+                }
+            }
+        });
+        for (LandMark landMark : targets) {
+            landMarks.markChanged(landMark);
+        }
+        return added;
+    }
+
+    /**
+     * Stops the worker threads.
+     */
+    public void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    private void simplify(LandMark landMark) {
+        int dropped = landMark.simplify(simplifier);
+        if (dropped > 0) {
+            StatisticalFolder.getInstance().addSimplifiedPoints(dropped, landMark.getSimplificationError());
+        }
+    }
+
+    /**
+     * @return The id of the landmark nearest to the centroid of {@code points}, or a new id.
+     */
+    private String associate(List<CloudPoint> points, LandMarkStore landMarks) {
+        if (!points.isEmpty()) {
+            double x = 0;
+            double y = 0;
+            for (CloudPoint point : points) {
+                x += point.getX();
+                y += point.getY();
+            }
+            List<LandMark> near = landMarks.withinRadius(x / points.size(), y / points.size(), associationRadius);
+            if (!near.isEmpty()) {
+                return near.get(0).getId();
+            }
+        }
+        String id;
+        do {
+            id = "Unidentified_" + (++unidentifiedCount);
+        } while (landMarks.get(id) != null);
+        return id;
+    }
+
+    private static List<CloudPoint> transform(List<CloudPoint> points, PoseTrajectory.Frame frame) {
+        List<CloudPoint> transformed = new ArrayList<>(points.size());
+        for (CloudPoint point : points) {
+            transformed.add(new CloudPoint(frame.toGlobalX(point.getX(), point.getY()),
+                    frame.toGlobalY(point.getX(), point.getY())));
+        }
+        return transformed;
+    }
+
+    private Object stripeOf(String id) {
+        int h = Objects.hashCode(id);
+        return stripes[(h ^ (h >>> 16)) & (STRIPES - 1)];
+    }
+
+    private void forEach(int count, IntConsumer action) {
+        if (pool == null || count < MIN_PARALLEL_BATCH) {
+            for (int i = 0; i < count; i++) {
+                action.accept(i);
+            }
+        } else {
+            pool.invoke(new RangeTask(0, count, action));
+        }
+    }
+
+    private static class RangeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final IntConsumer action;
+
+        RangeTask(int from, int to, IntConsumer action) {
+            this.from = from;
+            this.to = to;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SPLIT_THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    action.accept(i);
+                }
+            } else {
+                int mid = (from + to) >>> 1;
+                invokeAll(new RangeTask(from, mid, action), new RangeTask(mid, to, action));
+            }
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package bgu.spl.mics.application.objects;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.IntPredicate;
+
+/**
+ * Parks tracked objects whose pose has not reached FusionSlam yet, keyed by detection time.
+ * <p>
+ * Memory is bounded by {@code capacity} tracked objects: when a new batch does not fit, the
+ * oldest detection times are dropped first. A batch that is still waiting {@code timeoutTicks}
+ * ticks after it was parked is dropped as well. Every dropped object is counted.
+ * </p>
+ */
+public class FusionReorderBuffer {
+    private final int capacity;
+    private final int timeoutTicks;
+    private final TreeMap<Integer, List<TrackedObject>> parked = new TreeMap<>();
+    private final Map<Integer, Integer> parkedAtTick = new TreeMap<>();
+    private int size = 0;
+    private int dropped = 0;
+
+    /**
+     * @param capacity     The maximal number of parked tracked objects; 0 disables parking.
+     * @param timeoutTicks How many ticks a batch may wait for its pose.
+     */
+    public FusionReorderBuffer(int capacity, int timeoutTicks) {
+        this.capacity = capacity;
+        this.timeoutTicks = timeoutTicks;
+    }
+
+    /**
+     * Parks a batch detected at {@code detectionTime}.
+     *
+     * @return false if the batch was dropped right away because it can never fit.
+     */
+    public boolean park(int detectionTime, List<TrackedObject> objects, int currentTick) {
+        if (objects.size() > capacity) {
+            dropped += objects.size();
+            return false;
+        }
+        while (size + objects.size() > capacity) {
+            Map.Entry<Integer, List<TrackedObject>> oldest = parked.pollFirstEntry();
+            parkedAtTick.remove(oldest.getKey());
+            size -= oldest.getValue().size();
+            dropped += oldest.getValue().size();
+            System.out.println("FusionSlam: Reorder buffer full, dropped tracked objects of time " + oldest.getKey());
+        }
+        parked.computeIfAbsent(detectionTime, t -> new ArrayList<>()).addAll(objects);
+        parkedAtTick.putIfAbsent(detectionTime, currentTick);
+        size += objects.size();
+        return true;
+    }
+
+    /**
+     * Removes and returns, in detection-time order, every batch whose time passes {@code isReady}.
+     */
+    public List<Map.Entry<Integer, List<TrackedObject>>> takeReady(IntPredicate isReady) {
+        List<Map.Entry<Integer, List<TrackedObject>>> ready = new ArrayList<>();
+        Iterator<Map.Entry<Integer, List<TrackedObject>>> it = parked.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Integer, List<TrackedObject>> entry = it.next();
+            if (isReady.test(entry.getKey())) {
+                // copied before removal, since TreeMap may reuse the removed node for its successor
+                ready.add(new AbstractMap.SimpleImmutableEntry<>(entry));
+                parkedAtTick.remove(entry.getKey());
+                size -= entry.getValue().size();
+                it.remove();
+            }
+        }
+        return ready;
+    }
+
+    /**
+     * Drops the batches that have waited longer than the timeout.
+     */
+    public void expire(int currentTick) {
+        Iterator<Map.Entry<Integer, Integer>> it = parkedAtTick.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Integer, Integer> entry = it.next();
+            if (currentTick - entry.getValue() >= timeoutTicks) {
+                List<TrackedObject> objects = parked.remove(entry.getKey());
+                it.remove();
+                size -= objects.size();
+                dropped += objects.size();
+                System.out.println("FusionSlam: No pose for time " + entry.getKey() + " after "
+                        + timeoutTicks + " ticks, dropped " + objects.size() + " tracked objects");
+            }
+        }
+    }
+
+    /**
+     * @return The number of tracked objects currently parked.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return The number of tracked objects dropped so far, by capacity or by timeout.
+     */
+    public int getDropped() {
+        return dropped;
+    }
+}
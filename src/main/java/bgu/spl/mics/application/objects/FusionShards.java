@@ -0,0 +1,221 @@
+package bgu.spl.mics.application.objects;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Splits fusion over N shards, each owning the landmarks whose id hashes to it.
+ * <p>
+ * The router (the FusionSlamService thread) resolves the pose of a batch, splits the batch by
+ * landmark id and queues each part on its shard. Every shard has its own single thread, landmark
+ * store and fusion engine, so the landmarks of one id are always updated by the same thread in
+ * batch order, and shards never share state.
+ * </p>
+ * <p>
+ * Each batch gets a sequence number from the router. A shard remembers, for every landmark it
+ * creates, the sequence number of the batch and the position of the object in it, and the merged
+ * landmark list is sorted by that key. The output therefore lists the landmarks in the same order
+ * as a single FusionSlam would.
+ * </p>
+ * <p>
+ * The first exception thrown on a shard is kept and rethrown by {@link #flush()} and
+ * {@link #shutdown()}, so a lost batch fails the run instead of leaving an incomplete map.
+ * </p>
+ */
+public class FusionShards {
+    private final Shard[] shards;
+    private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+    private long nextBatch = 0; // used by the router thread only
+
+    public FusionShards(int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("Shard count must be at least 1: " + count);
+        }
+        shards = new Shard[count];
+        for (int i = 0; i < count; i++) {
+            shards[i] = new Shard(i, failure);
+        }
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    /**
+     * Simplifies the geometry of every landmark on its shard. Must be set before batches are submitted.
+     */
+    public void setSimplifier(GeometrySimplifier simplifier) {
+        for (Shard shard : shards) {
+            shard.engine.setSimplifier(simplifier);
+        }
+    }
+
+    /**
+     * Turns change tracking on or off in the store of every shard. Must be set before batches are submitted.
+     */
+    public void trackChanges(boolean track) {
+        for (Shard shard : shards) {
+            shard.store.trackChanges(track);
+        }
+    }
+
+    /**
+     * Routes the objects of a batch to their shards. Returns without waiting for the fusion.
+     */
+    public void submit(List<TrackedObject> trackedObjects, PoseTrajectory.Frame frame) {
+        long batch = nextBatch++;
+        List<List<TrackedObject>> parts = new ArrayList<>(shards.length);
+        List<List<Integer>> positions = new ArrayList<>(shards.length);
+        for (int s = 0; s < shards.length; s++) {
+            parts.add(new ArrayList<>());
+            positions.add(new ArrayList<>());
+        }
+        for (int i = 0; i < trackedObjects.size(); i++) {
+            int s = shardOf(trackedObjects.get(i).getId());
+            parts.get(s).add(trackedObjects.get(i));
+            positions.get(s).add(i);
+        }
+        for (int s = 0; s < shards.length; s++) {
+            if (!parts.get(s).isEmpty()) {
+                shards[s].submit(parts.get(s), positions.get(s), batch, frame);
+            }
+        }
+    }
+
+    /**
+     * Waits until every batch submitted so far has been fused, also after {@link #shutdown()}.
+     *
+     * @throws RuntimeException If the fusion of a batch failed on a shard.
+     */
+    public void flush() {
+        List<Future<?>> barriers = new ArrayList<>(shards.length);
+        try {
+            for (Shard shard : shards) {
+                if (shard.executor.isShutdown()) {
+                    shard.executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+                } else {
+                    barriers.add(shard.executor.submit(() -> { }));
+                }
+            }
+            for (Future<?> barrier : barriers) {
+                barrier.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+        rethrowFailure();
+    }
+
+    /**
+     * Waits for pending batches and merges the shards' landmarks in first-seen order.
+     */
+    public List<LandMark> getLandMarks() {
+        flush();
+        List<LandMark> merged = new ArrayList<>();
+        Map<LandMark, Long> order = new HashMap<>();
+        for (Shard shard : shards) {
+            for (LandMark landMark : shard.store.asList()) {
+                merged.add(landMark);
+                order.put(landMark, shard.createdAt.get(landMark.getId()));
+            }
+        }
+        merged.sort(Comparator.comparingLong(order::get));
+        return merged;
+    }
+
+    /**
+     * Waits for pending batches and returns the landmarks added or changed since the last call.
+     */
+    public List<LandMark> drainChanged() {
+        flush();
+        List<LandMark> changed = new ArrayList<>();
+        for (Shard shard : shards) {
+            changed.addAll(shard.store.drainChanged());
+        }
+        return changed;
+    }
+
+    /**
+     * @return The landmark with this id, after waiting for pending batches.
+     */
+    public LandMark get(String id) {
+        flush();
+        return shards[shardOf(id)].store.get(id);
+    }
+
+    /**
+     * Stops the shard threads once the queued batches are done.
+     *
+     * @throws RuntimeException If the fusion of a batch already failed on a shard.
+     */
+    public void shutdown() {
+        for (Shard shard : shards) {
+            shard.executor.shutdown();
+        }
+        rethrowFailure();
+    }
+
+    private void rethrowFailure() {
+        RuntimeException e = failure.get();
+        if (e != null) {
+            throw new RuntimeException("Fusion failed on a shard, a batch of tracked objects was lost", e);
+        }
+    }
+
+    private int shardOf(String id) {
+        int h = id == null ? 0 : id.hashCode();
+        return Math.floorMod(h ^ (h >>> 16), shards.length);
+    }
+
+    private static class Shard {
+        final LandMarkStore store = new LandMarkStore();
+        final FusionEngine engine = new FusionEngine(1);
+        final Map<String, Long> createdAt = new HashMap<>(); // id -> (batch << 32 | position)
+        final ExecutorService executor;
+        final AtomicReference<RuntimeException> failure; // shared by all shards, keeps the first one
+
+        Shard(int index, AtomicReference<RuntimeException> failure) {
+            this.failure = failure;
+            executor = Executors.newSingleThreadExecutor(task -> {
+                Thread thread = new Thread(task, "FusionShard-" + index);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        void submit(List<TrackedObject> part, List<Integer> positions, long batch, PoseTrajectory.Frame frame) {
+            executor.execute(() -> {
+                try {
+                    fuse(part, positions, batch, frame);
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+        }
+
+        private void fuse(List<TrackedObject> part, List<Integer> positions, long batch, PoseTrajectory.Frame frame) {
+            long start = System.nanoTime();
+            int points = 0;
+            for (int j = 0; j < part.size(); j++) {
+                points += part.get(j).getCoordinates().size();
+                createdAt.putIfAbsent(part.get(j).getId(), (batch << 32) | positions.get(j));
+            }
+            int added = engine.fuse(part, frame, store);
+            if (added > 0) {
+                StatisticalFolder.getInstance().addLandmarks(added);
+            }
+            StatisticalFolder.getInstance().addFusionTime(System.nanoTime() - start, points);
+        }
+    }
+}
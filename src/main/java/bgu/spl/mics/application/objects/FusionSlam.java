@@ -1,14 +1,12 @@
 package bgu.spl.mics.application.objects;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-
-import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Paths;
+
+import bgu.spl.mics.FlightEvents;
 
 /**
  * Manages the fusion of sensor data for simultaneous localization and mapping (SLAM).
@@ -16,8 +14,31 @@ import java.io.IOException;
  * Implements the Singleton pattern to ensure a single instance of FusionSlam exists.
  */
 public class FusionSlam {
-    private static List<LandMark> landMarks;
-    private static List<Pose> poses;
+    public static final int DEFAULT_REORDER_CAPACITY = 10000; // tracked objects
+    public static final int DEFAULT_REORDER_TIMEOUT = 10; // ticks
+    public static final int DEFAULT_POSE_GRAPH_INTERVAL = 10; // ticks
+    public static final String OUTPUT_FILE = "output_file.json";
+
+    private LandMarkStore landMarks;
+    private final PoseTrajectory trajectory;
+    private PoseChannel poseChannel; // optional, replaces PoseEvents when set
+    private long poseWaitMillis;
+    private int nextPoseTick = 0;
+    private FusionReorderBuffer reorderBuffer = new FusionReorderBuffer(DEFAULT_REORDER_CAPACITY, DEFAULT_REORDER_TIMEOUT);
+    private int currentTick = 0;
+    private FusionEngine engine = new FusionEngine(1);
+    private OccupancyGrid occupancyGrid; // optional
+    private String occupancyGridFile;
+    private FusionShards shards; // optional, fuses on shard threads instead of the engine
+    private OutputWriter outputWriter = new OutputWriter(false);
+    private int checkpointInterval = 0; // ticks, 0 while checkpoints are off
+    private String checkpointFile;
+    private boolean mapDeltas; // publish the changed landmarks after every tick
+    private MapDeltaLog mapDeltaLog; // optional
+    private PoseGraph poseGraph; // optional, corrects the poses with landmark observations
+    private int poseGraphInterval; // ticks between optimizations
+    private GeometrySimplifier simplifier; // optional, bounds the points of every landmark
+    private volatile MapSnapshot snapshot; // optional, the map as of the last tick, for readers on other threads
 
     private final AtomicInteger activeMicroservicesCount;
     private final int durationTime;
@@ -25,8 +46,8 @@ public class FusionSlam {
 
     // Private constructor
     private FusionSlam(int initialMicroservicesCount, int durationTime) {
-        landMarks = new ArrayList<>();
-        poses = new ArrayList<>();
+        landMarks = new LandMarkStore();
+        trajectory = new PoseTrajectory(false);
         this.activeMicroservicesCount = new AtomicInteger(initialMicroservicesCount);
         this.durationTime = durationTime;
         this.outputGenerated = false;
@@ -54,63 +75,421 @@ public class FusionSlam {
     }
 
     public void addPose(Pose pose) {
-        poses.add(pose);
+        trajectory.add(pose);
+        if (poseGraph != null) {
+            poseGraph.addPose(pose);
+        }
+        releaseParkedObjects();
     }
 
-    public List<LandMark> getLandMarks() {
-        return landMarks;
+    /**
+     * Replaces the engine that transforms and merges tracked objects, e.g. with a parallel one.
+     */
+    public void setFusionEngine(FusionEngine engine) {
+        this.engine.shutdown();
+        this.engine = engine;
+        engine.setSimplifier(simplifier);
     }
 
-    public List<Pose> getPoses() {
-        return poses;
+    /**
+     * Keeps the landmarks in a {@link TiledLandMarkStore}, which spills the least recently used
+     * tiles to {@code directory}. Must be called before any landmark is added and before the
+     * spatial index is enabled. Checkpoints and snapshots read every tile whenever they run.
+     */
+    public void enableTiledStore(String directory, double tileSize, int maxResidentTiles) {
+        if (landMarks.size() > 0 || landMarks.hasSpatialIndex()) {
+            throw new IllegalStateException("The tiled store must be enabled before the map is used");
+        }
+        try {
+            landMarks = new TiledLandMarkStore(Paths.get(directory), tileSize, maxResidentTiles);
+            landMarks.trackChanges(mapDeltas);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to create map tile directory: " + directory, e);
+        }
     }
 
-    public Pose getPoseAtTime(int time) {
-        for (Pose pose : poses) {
-            if (pose.getTime() == time) {
-                return pose;
+    /**
+     * Fuses on {@code count} shard threads, each owning the landmarks whose id hashes to it.
+     * The spatial index, proximity association and occupancy grid are not available when sharded.
+     */
+    public void enableShards(int count) {
+        if (shards != null) {
+            shards.shutdown();
+        }
+        shards = new FusionShards(count);
+        shards.setSimplifier(simplifier);
+        shards.trackChanges(mapDeltas);
+    }
+
+    /**
+     * Simplifies every landmark as it changes, dropping points within {@code tolerance} meters of
+     * the line through their neighbours and keeping at most {@code maxPoints}.
+     */
+    public void enableSimplification(double tolerance, int maxPoints) {
+        simplifier = new GeometrySimplifier(tolerance, maxPoints);
+        engine.setSimplifier(simplifier);
+        if (shards != null) {
+            shards.setSimplifier(simplifier);
+        }
+    }
+
+    /**
+     * Replaces the writer of the output file and checkpoints, e.g. with a gzipping one.
+     */
+    public void setOutputWriter(OutputWriter outputWriter) {
+        this.outputWriter.shutdown();
+        this.outputWriter = outputWriter;
+    }
+
+    /**
+     * Writes the map to {@code file} every {@code interval} ticks, in the background.
+     */
+    public void enableCheckpoints(int interval, String file) {
+        if (interval < 1) {
+            throw new IllegalArgumentException("Checkpoint interval must be at least 1: " + interval);
+        }
+        checkpointInterval = interval;
+        checkpointFile = file;
+    }
+
+    /**
+     * Collects the landmarks that change during each tick into a {@link MapDelta}.
+     *
+     * @param file An append-only file for the deltas, or null.
+     */
+    public void enableMapDeltas(String file) {
+        mapDeltas = true;
+        landMarks.trackChanges(true);
+        if (shards != null) {
+            shards.trackChanges(true);
+        }
+        if (file != null) {
+            try {
+                mapDeltaLog = new MapDeltaLog(Paths.get(file));
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to open map delta file: " + file, e);
             }
         }
-        return null;
     }
 
-    public LandMark findExistingLandmark(String id) {
-        for (LandMark landmark : landMarks) {
-            if (landmark.getId().equals(id)) {
-                return landmark;
+    /**
+     * Returns the landmarks added or changed since the previous call, and appends them to the
+     * delta file if there is one.
+     *
+     * @return The delta, or null if map deltas are off, nothing changed, or the output was written.
+     */
+    public MapDelta collectMapDelta(int tick) {
+        if (!mapDeltas || outputGenerated) {
+            return null;
+        }
+        List<LandMark> changed = shards != null ? shards.drainChanged() : landMarks.drainChanged();
+        if (changed.isEmpty()) {
+            return null;
+        }
+        MapDelta delta = new MapDelta(tick, changed);
+        if (mapDeltaLog != null) {
+            mapDeltaLog.append(delta);
+        }
+        return delta;
+    }
+
+    /**
+     * Fuses with poses corrected by a sliding-window {@link PoseGraph}, optimized every
+     * {@code interval} ticks and whenever a landmark closes a loop. Landmarks already fused keep
+     * the coordinates they were fused with.
+     */
+    public void enablePoseGraph(int windowSize, int interval) {
+        if (interval < 1) {
+            throw new IllegalArgumentException("Pose graph interval must be at least 1: " + interval);
+        }
+        poseGraph = new PoseGraph(windowSize);
+        poseGraphInterval = interval;
+    }
+
+    public PoseGraph getPoseGraph() {
+        return poseGraph;
+    }
+
+    /**
+     * Publishes an immutable {@link MapSnapshot} after every tick, which other threads can query
+     * through {@link #getSnapshot()} without racing the fusion.
+     *
+     * @param cellSize The cell size of the snapshots' spatial index.
+     */
+    public void enableSnapshots(double cellSize) {
+        snapshot = MapSnapshot.empty(cellSize);
+    }
+
+    /**
+     * @return The latest published snapshot, or null if snapshots are off.
+     */
+    public MapSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Publishes the snapshot of {@code tick}. Called by the fusion thread only.
+     */
+    public void publishSnapshot(int tick) {
+        MapSnapshot current = snapshot;
+        if (current != null && !outputGenerated) {
+            snapshot = current.next(tick, getLandMarks(), trajectory.getPoses());
+        }
+    }
+
+    /**
+     * Builds an occupancy grid from every fused point, written to {@code file} with the output.
+     *
+     * @param resolution The side of a grid cell in meters.
+     */
+    public void enableOccupancyGrid(double resolution, String file) {
+        occupancyGrid = new OccupancyGrid(resolution);
+        occupancyGridFile = file;
+        engine.setOccupancyGrid(occupancyGrid);
+    }
+
+    public OccupancyGrid getOccupancyGrid() {
+        return occupancyGrid;
+    }
+
+    /**
+     * Indexes the landmarks by position, which enables the proximity queries.
+     *
+     * @param cellSize The side of a grid cell, roughly the size of a typical landmark.
+     */
+    public void enableSpatialIndex(double cellSize) {
+        landMarks.enableSpatialIndex(cellSize);
+    }
+
+    /**
+     * Matches tracked objects without an id to the nearest landmark within {@code radius}.
+     */
+    public void enableProximityAssociation(double cellSize, double radius) {
+        if (!landMarks.hasSpatialIndex()) {
+            enableSpatialIndex(cellSize);
+        }
+        engine.setAssociationRadius(radius);
+    }
+
+    /**
+     * @return The landmarks within {@code radius} of (x, y), nearest first.
+     */
+    public List<LandMark> getLandMarksWithinRadius(double x, double y, double radius) {
+        return landMarks.withinRadius(x, y, radius);
+    }
+
+    /**
+     * @return The {@code k} landmarks nearest to (x, y), nearest first.
+     */
+    public List<LandMark> getNearestLandMarks(double x, double y, int k) {
+        return landMarks.nearest(x, y, k);
+    }
+
+    /**
+     * Replaces the buffer that holds tracked objects whose pose has not arrived yet.
+     */
+    public void setReorderBuffer(FusionReorderBuffer reorderBuffer) {
+        this.reorderBuffer = reorderBuffer;
+    }
+
+    public FusionReorderBuffer getReorderBuffer() {
+        return reorderBuffer;
+    }
+
+    /**
+     * Reads poses from {@code channel} instead of PoseEvents.
+     *
+     * @param waitMillis How long to wait for a pose that was not published yet.
+     */
+    public void setPoseChannel(PoseChannel channel, long waitMillis) {
+        this.poseChannel = channel;
+        this.poseWaitMillis = waitMillis;
+    }
+
+    /**
+     * Copies the poses published on the pose channel since the last call into the trajectory.
+     */
+    public void drainPoseChannel() {
+        if (poseChannel == null) {
+            return;
+        }
+        int latest = poseChannel.getLatestTick();
+        if (latest - nextPoseTick >= poseChannel.getCapacity()) {
+            System.out.println("FusionSlam: Pose channel overran, poses before tick "
+                    + (latest - poseChannel.getCapacity() + 1) + " were lost");
+        }
+        for (int time = nextPoseTick; time <= latest; time++) {
+            Pose pose = poseChannel.get(time);
+            if (pose != null) {
+                trajectory.add(pose);
+                if (poseGraph != null) {
+                    poseGraph.addPose(pose);
+                }
             }
         }
-        return null;
+        nextPoseTick = Math.max(nextPoseTick, latest + 1);
+        releaseParkedObjects();
+    }
+
+    /**
+     * When enabled, tracked objects seen between two poses use a pose interpolated between them.
+     */
+    public void setInterpolatePoses(boolean interpolate) {
+        trajectory.setInterpolate(interpolate);
+    }
+
+    /**
+     * @return The landmarks in the order they were first seen; when sharded, waits for pending batches.
+     */
+    public List<LandMark> getLandMarks() {
+        return shards != null ? shards.getLandMarks() : landMarks.asList();
+    }
+
+    public List<Pose> getPoses() {
+        return trajectory.getPoses();
+    }
+
+    public Pose getPoseAtTime(int time) {
+        return trajectory.getPose(time);
+    }
+
+    public LandMark findExistingLandmark(String id) {
+        return shards != null ? shards.get(id) : landMarks.get(id);
     }
 
     public void processTrackedObjects(List<TrackedObject> trackedObjects, int detectionTime) {
-        Pose poseAtTime = getPoseAtTime(detectionTime);
-        if (poseAtTime == null) {
-            System.out.println("Pose not found for time: " + detectionTime);
+        FlightEvents.Fusion event = new FlightEvents.Fusion();
+        event.begin();
+        if (poseChannel != null && !trajectory.contains(detectionTime)) {
+            awaitPose(detectionTime);
+        }
+        PoseTrajectory.Frame frame = trajectory.frameAt(detectionTime);
+        if (frame == null) {
+            System.out.println("Pose not found for time: " + detectionTime + ", parking "
+                    + trackedObjects.size() + " tracked objects");
+            reorderBuffer.park(detectionTime, trackedObjects, currentTick);
+        } else {
+            fuse(trackedObjects, detectionTime, frame);
+        }
+        if (event.shouldCommit()) {
+            event.tick = FlightEvents.currentTick();
+            event.detectionTime = detectionTime;
+            event.trackedObjects = trackedObjects.size();
+            event.parked = frame == null;
+            event.landMarks = StatisticalFolder.getInstance().getNumLandmarks();
+            event.commit();
+        }
+    }
+
+    /**
+     * Fuses, in detection-time order, the parked tracked objects whose pose is now known.
+     */
+    private void releaseParkedObjects() {
+        if (reorderBuffer.size() == 0) {
             return;
         }
+        List<Map.Entry<Integer, List<TrackedObject>>> ready =
+                reorderBuffer.takeReady(time -> trajectory.frameAt(time) != null);
+        for (Map.Entry<Integer, List<TrackedObject>> batch : ready) {
+            fuse(batch.getValue(), batch.getKey(), trajectory.frameAt(batch.getKey()));
+        }
+    }
 
+    private void fuse(List<TrackedObject> trackedObjects, int detectionTime, PoseTrajectory.Frame frame) {
+        if (poseGraph != null && poseGraph.contains(detectionTime)) {
+            if (poseGraph.addObservations(detectionTime, trackedObjects)) {
+                poseGraph.optimize();
+            }
+            frame = poseGraph.frameAt(detectionTime);
+        }
+        if (shards != null) {
+            shards.submit(trackedObjects, frame);
+            return;
+        }
+        long start = System.nanoTime();
+        int points = 0;
         for (TrackedObject object : trackedObjects) {
-            List<CloudPoint> transformedPoints = new ArrayList<>();
+            points += object.getCoordinates().size();
+        }
+        int added = engine.fuse(trackedObjects, frame, landMarks);
+        if (added > 0) {
+            StatisticalFolder.getInstance().addLandmarks(added);
+        }
+        StatisticalFolder.getInstance().addFusionTime(System.nanoTime() - start, points);
+    }
 
-            for (CloudPoint point : object.getCoordinates()) {
-                double radYaw = Math.toRadians(poseAtTime.getYaw());
-                double cosTheta = Math.cos(radYaw);
-                double sinTheta = Math.sin(radYaw);
+    private void awaitPose(int time) {
+        try {
+            poseChannel.awaitTick(time, poseWaitMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        drainPoseChannel();
+    }
 
-                double globalX = cosTheta * point.getX() - sinTheta * point.getY() + poseAtTime.getX();
-                double globalY = sinTheta * point.getX() + cosTheta * point.getY() + poseAtTime.getY();
+    private void writeOccupancyGrid() {
+        if (occupancyGrid == null) {
+            return;
+        }
+        try {
+            occupancyGrid.write(Paths.get(occupancyGridFile));
+            System.out.println("FusionSlam: Occupancy grid written to " + occupancyGridFile + " ("
+                    + occupancyGrid.getTileCount() + " tiles)");
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
 
-                transformedPoints.add(new CloudPoint(globalX, globalY));
-            }
+    private void publishFinalSnapshot(List<LandMark> landMarks) {
+        MapSnapshot current = snapshot;
+        if (current != null) {
+            snapshot = current.next(currentTick, landMarks, trajectory.getPoses());
+        }
+    }
 
-            LandMark existingLandmark = findExistingLandmark(object.getId());
-            if (existingLandmark == null) {
-                addLandMark(new LandMark(object.getId(), object.getDescription(), transformedPoints));
-                StatisticalFolder.getInstance().addLandmarks(1);
-            } else {
-                existingLandmark.updateCoordinates(transformedPoints);
-            }
+    private void closeMapDeltaLog() {
+        if (mapDeltaLog == null) {
+            return;
+        }
+        List<LandMark> changed = shards != null ? shards.drainChanged() : landMarks.drainChanged();
+        if (!changed.isEmpty()) {
+            mapDeltaLog.append(new MapDelta(currentTick, changed));
+        }
+        try {
+            mapDeltaLog.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void closeTiledStore() {
+        if (!(landMarks instanceof TiledLandMarkStore)) {
+            return;
+        }
+        TiledLandMarkStore tiled = (TiledLandMarkStore) landMarks;
+        System.out.println("FusionSlam: Map tiles: " + tiled.getTileCount() + " tiles, "
+                + tiled.getResidentTileCount() + " in memory, " + tiled.getSpills() + " spills, "
+                + tiled.getLoads() + " loads");
+        try {
+            tiled.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void reportPoseGraph() {
+        if (poseGraph == null || poseGraph.getOptimizations() == 0) {
+            return;
+        }
+        System.out.printf("FusionSlam: Pose graph optimized %d times, last error %.4f -> %.4f, worst %.2f ms%n",
+                poseGraph.getOptimizations(), poseGraph.getLastInitialError(), poseGraph.getLastFinalError(),
+                poseGraph.getMaxNanos() / 1e6);
+    }
+
+    private void reportUnfusedObjects() {
+        if (reorderBuffer.size() > 0 || reorderBuffer.getDropped() > 0) {
+            System.out.println("FusionSlam: " + reorderBuffer.getDropped() + " tracked objects dropped and "
+                    + reorderBuffer.size() + " still waiting for a pose");
         }
     }
 
@@ -124,6 +503,14 @@ public class FusionSlam {
     }
 
     public boolean handleTickBroadcast(int currentTime) {
+        currentTick = currentTime;
+        reorderBuffer.expire(currentTime);
+        if (poseGraph != null && currentTime % poseGraphInterval == 0 && !outputGenerated) {
+            poseGraph.optimize();
+        }
+        if (checkpointInterval > 0 && currentTime % checkpointInterval == 0 && !outputGenerated) {
+            outputWriter.checkpoint(outputWriter.resolve(checkpointFile), currentTime, getLandMarks());
+        }
         if (currentTime >= durationTime && !outputGenerated) {
             generateOutputFile();
             return true;
@@ -143,107 +530,56 @@ public class FusionSlam {
         if (outputGenerated) return;
         outputGenerated = true;
         System.out.println("FusionSlam: Generating output file...");
-
-        try (FileWriter writer = new FileWriter("output_file.json")) {
-            writer.write("{\"systemRuntime\":" + StatisticalFolder.getInstance().getSystemRuntime() +
-                        ",\"numDetectedObjects\":" + StatisticalFolder.getInstance().getNumDetectedObjects() +
-                        ",\"numTrackedObjects\":" + StatisticalFolder.getInstance().getNumTrackedObjects() +
-                        ",\"numLandmarks\":" + StatisticalFolder.getInstance().getNumLandmarks() + ",");
-
-            writer.write("\n");
-            writer.write("\"landMarks\":{\n");
-            for (int i = 0; i < landMarks.size(); i++) {
-                LandMark landMark = landMarks.get(i);
-                writer.write("\"" + landMark.getId() + "\":{\"id\":\"" + landMark.getId() +
-                            "\",\"description\":\"" + landMark.getDescription() +
-                            "\",\"coordinates\":" + new Gson().toJson(landMark.getCoordinates()) + "}");
-                if (i < landMarks.size() - 1) {
-                    writer.write(",\n"); 
-                }
-            }
-            writer.write("\n}}");
+        engine.shutdown();
+        List<LandMark> landMarks = getLandMarks(); // before the statistics, so shards have finished
+        publishFinalSnapshot(landMarks);
+        closeMapDeltaLog();
+        if (shards != null) {
+            shards.shutdown();
+        }
+        writeOccupancyGrid();
+        reportPoseGraph();
+        reportUnfusedObjects();
+        StatisticalFolder.getInstance().printDownsamplingReport();
+        StatisticalFolder.getInstance().printSimplificationReport();
+
+        try {
+            outputWriter.writeOutput(outputWriter.resolve(OUTPUT_FILE), OutputWriter.Statistics.current(), landMarks);
             System.out.println("FusionSlam: Output file generated successfully.");
         } catch (IOException e) {
             e.printStackTrace();
         }
+        closeTiledStore();
+        outputWriter.shutdown();
     }
 
     public void generateErrorOutputFile(String error, String faultySensor) {
         if (outputGenerated) return;
         outputGenerated = true;
         System.out.println("FusionSlam: Generating error output file...");
-
-        try (FileWriter writer = new FileWriter("output_file.json")) {
-            writer.write("{\n");
-
-            // Print error and faulty sensor
-            writer.write("  \"error\": \"" + error + "\",\n");
-            writer.write("  \"faultySensor\": \"" + faultySensor + "\",\n");
-
-            // Print lastCamerasFrame
-            writer.write("  \"lastCamerasFrame\": {\n");
-            Map<Integer, StampedDetectedObjects> cameraFrames = LastFrames.getInstance().getAllCameraFrames();
-            int cameraCount = 0;
-            for (Map.Entry<Integer, StampedDetectedObjects> entry : cameraFrames.entrySet()) {
-                writer.write("    \"Camera" + entry.getKey() + "\": " + new Gson().toJson(entry.getValue()));
-                if (++cameraCount < cameraFrames.size()) {
-                    writer.write(",");
-                }
-                writer.write("\n");
-            }
-            writer.write("  },\n");
-
-            // Print lastLiDarWorkerTrackersFrame
-            writer.write("  \"lastLiDarWorkerTrackersFrame\": {\n");
-            Map<Integer, List<TrackedObject>> lidarFrames = LastFrames.getInstance().getAllLiDarFrames();
-            int lidarCount = 0;
-            for (Map.Entry<Integer, List<TrackedObject>> entry : lidarFrames.entrySet()) {
-                writer.write("    \"LiDarWorkerTracker" + entry.getKey() + "\": " + new Gson().toJson(entry.getValue()));
-                if (++lidarCount < lidarFrames.size()) {
-                    writer.write(",");
-                }
-                writer.write("\n");
-            }
-            writer.write("  },\n");
-
-            // Print poses
-            writer.write("  \"poses\": [");
-            for (int i = 0; i < poses.size(); i++) {
-                Pose pose = poses.get(i);
-                writer.write("{\"time\": " + pose.getTime() + 
-                            ", \"x\": " + pose.getX() + 
-                            ", \"y\": " + pose.getY() + 
-                            ", \"yaw\": " + pose.getYaw() + "}");
-                if (i < poses.size() - 1) {
-                    writer.write(",");
-                }
-            }
-            writer.write("  ],\n");
-
-            // Print statistics
-            writer.write("  \"statistics\": {\n");
-            writer.write("    \"systemRuntime\": " + StatisticalFolder.getInstance().getSystemRuntime() + ",\n");
-            writer.write("    \"numDetectedObjects\": " + StatisticalFolder.getInstance().getNumDetectedObjects() + ",\n");
-            writer.write("    \"numTrackedObjects\": " + StatisticalFolder.getInstance().getNumTrackedObjects() + ",\n");
-            writer.write("    \"numLandmarks\": " + StatisticalFolder.getInstance().getNumLandmarks() + ",\n");
-
-            // Print landmarks
-            writer.write("    \"landMarks\": {\n");
-            for (int i = 0; i < landMarks.size(); i++) {
-                LandMark landMark = landMarks.get(i);
-                writer.write("      \"" + landMark.getId() + "\": " + new Gson().toJson(landMark));
-                if (i < landMarks.size() - 1) {
-                    writer.write(",");
-                }
-                writer.write("\n");
-            }
-            writer.write("    }\n");
-            writer.write("  }\n");
-
-            writer.write("}");
+        drainPoseChannel(); // fuses released parked objects, so the engine must still be running
+        engine.shutdown();
+        List<LandMark> landMarks = getLandMarks();
+        publishFinalSnapshot(landMarks);
+        closeMapDeltaLog();
+        if (shards != null) {
+            shards.shutdown();
+        }
+        writeOccupancyGrid(); // after the drain and the shards, so it has the rays of every fused object
+        reportPoseGraph();
+        reportUnfusedObjects();
+        StatisticalFolder.getInstance().printDownsamplingReport();
+        StatisticalFolder.getInstance().printSimplificationReport();
+
+        try {
+            outputWriter.writeErrorOutput(outputWriter.resolve(OUTPUT_FILE), error, faultySensor,
+                    LastFrames.getInstance().getAllCameraFrames(), LastFrames.getInstance().getAllLiDarFrames(),
+                    trajectory.getPoses(), OutputWriter.Statistics.current(), landMarks);
             System.out.println("FusionSlam: Error output file generated successfully.");
         } catch (IOException e) {
             e.printStackTrace();
         }
+        closeTiledStore();
+        outputWriter.shutdown();
     }
 }
\ No newline at end of file
@@ -1,7 +1,4 @@
 package bgu.spl.mics.application.objects;
-import java.util.ArrayList;
-import java.util.List;
-import bgu.spl.mics.application.configs.Configuration;
 
 /**
  * Represents the robot's GPS and IMU system.
@@ -10,21 +7,31 @@ import bgu.spl.mics.application.configs.Configuration;
 public class GPSIMU {
     private STATUS status;
     private int currentTick;
-    private List<Pose> PoseList;
+    private final PoseSource poseSource;
+    private Pose latestPose;
 
-      public GPSIMU(STATUS status, int currentTick) {
+    /**
+     * @param poseSource Where the recorded poses are read from.
+     */
+    public GPSIMU(STATUS status, int currentTick, PoseSource poseSource) {
         this.status = status;
         this.currentTick = currentTick;
-        this.PoseList = new ArrayList<>();
-        initializePoseList();
+        this.poseSource = poseSource;
     }
+
     public boolean isLastTick(int currentTick) {
-        if (PoseList.isEmpty()) {
-            return false; // No poses available
+        return poseSource.isLastTick(currentTick);
+    }
+
+    /**
+     * @return The pose recorded at {@code tick}, or null if there is none.
+     */
+    public Pose getPoseAtTick(int tick) {
+        Pose pose = poseSource.getPoseAtTick(tick);
+        if (pose != null) {
+            latestPose = pose;
         }
-        // Get the last pose's time
-        int lastPoseTime = PoseList.get(PoseList.size() - 1).getTime();
-        return currentTick >= lastPoseTime;
+        return pose;
     }
 
     public STATUS getStatus() {
@@ -35,11 +42,6 @@ public class GPSIMU {
         return currentTick;
     }
 
-    public List<Pose> getPoseList() {
-        return PoseList;
-    }
-
-
     public void setStatus(STATUS status) {
         this.status = status;
     }
@@ -48,19 +50,18 @@ public class GPSIMU {
         this.currentTick = currentTick;
     }
 
-    public void setPoseList(List<Pose> poseList) {
-        this.PoseList = poseList;
-    }
-
-    public void addPose(Pose pose) {
-        this.PoseList.add(pose);
+    /**
+     * @return The last pose read from the source, or null before the first one.
+     */
+    public Pose getLatestPose() {
+        return latestPose;
     }
 
-    public Pose getLatestPose() {
-        if (PoseList.isEmpty()) {
-            return null;
-        }
-        return PoseList.get(PoseList.size() - 1);
+    /**
+     * Releases the pose source.
+     */
+    public void close() {
+        poseSource.close();
     }
 
     @Override
@@ -68,16 +69,7 @@ public class GPSIMU {
         return "GPSIMU{" +
                 "status=" + status +
                 ", currentTick=" + currentTick +
-                ", poseList=" + PoseList +
+                ", latestPose=" + latestPose +
                 '}';
     }
-    private void initializePoseList() {
-        try {
-            Configuration config = Configuration.getInstance(null); 
-            this.PoseList = config.loadPoseList(); 
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to initialize PoseList in GPSIMU", e);
-        }
-    }
-
 }
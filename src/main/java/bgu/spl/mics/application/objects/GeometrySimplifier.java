@@ -0,0 +1,120 @@
+package bgu.spl.mics.application.objects;
+
+import java.util.PriorityQueue;
+
+/**
+ * Chooses which points of a polyline to keep, with the Douglas-Peucker method.
+ * <p>
+ * The two ends of a range are always kept. The range is split at the point farthest from the
+ * segment between its ends, as long as that point is more than {@code tolerance} away and the
+ * number of kept points is below the limit. Splits are taken farthest first, so when the limit
+ * stops the simplification, the points kept are the ones that matter most and the error is as
+ * small as the limit allows. The error introduced is the largest distance from a dropped point to
+ * the segment that replaces it.
+ * </p>
+ */
+public class GeometrySimplifier {
+    public static final int DEFAULT_MAX_POINTS = 64;
+
+    private final double tolerance;
+    private final int maxPoints;
+
+    /**
+     * @param tolerance The largest distance, in meters, a dropped point may be from the simplified line.
+     * @param maxPoints The most points a landmark may keep, whatever the error.
+     */
+    public GeometrySimplifier(double tolerance, int maxPoints) {
+        if (!(tolerance >= 0)) {
+            throw new IllegalArgumentException("Simplification tolerance must not be negative: " + tolerance);
+        }
+        if (maxPoints < 2) {
+            throw new IllegalArgumentException("A landmark must be allowed at least 2 points: " + maxPoints);
+        }
+        this.tolerance = tolerance;
+        this.maxPoints = maxPoints;
+    }
+
+    public double getTolerance() {
+        return tolerance;
+    }
+
+    public int getMaxPoints() {
+        return maxPoints;
+    }
+
+    /**
+     * Marks in {@code keep} the points of [from, to) to keep; the two ends are always kept and
+     * nothing outside the range is touched.
+     *
+     * @param maxKept The most points of the range to keep, at least 2.
+     * @return The largest distance from a dropped point to the simplified line, 0 if none is dropped.
+     */
+    public double select(double[] xs, double[] ys, int from, int to, int maxKept, boolean[] keep) {
+        int last = to - 1;
+        if (last - from < 2) {
+            for (int i = from; i <= last; i++) {
+                keep[i] = true;
+            }
+            return 0;
+        }
+        for (int i = from + 1; i < last; i++) {
+            keep[i] = false;
+        }
+        keep[from] = true;
+        keep[last] = true;
+        int kept = 2;
+        PriorityQueue<Split> splits = new PriorityQueue<>((a, b) -> Double.compare(b.distance, a.distance));
+        offer(splits, xs, ys, from, last);
+        while (!splits.isEmpty()) {
+            Split split = splits.peek();
+            if (split.distance <= tolerance || kept >= maxKept) {
+                return split.distance;
+            }
+            splits.poll();
+            keep[split.farthest] = true;
+            kept++;
+            offer(splits, xs, ys, split.from, split.farthest);
+            offer(splits, xs, ys, split.farthest, split.to);
+        }
+        return 0;
+    }
+
+    private static void offer(PriorityQueue<Split> splits, double[] xs, double[] ys, int from, int to) {
+        if (to - from < 2) {
+            return;
+        }
+        int farthest = -1;
+        double distance = -1;
+        for (int i = from + 1; i < to; i++) {
+            double d = distanceToSegment(xs[i], ys[i], xs[from], ys[from], xs[to], ys[to]);
+            if (d > distance) {
+                distance = d;
+                farthest = i;
+            }
+        }
+        splits.add(new Split(from, to, farthest, distance));
+    }
+
+    static double distanceToSegment(double px, double py, double ax, double ay, double bx, double by) {
+        double dx = bx - ax;
+        double dy = by - ay;
+        double lengthSquared = dx * dx + dy * dy;
+        double t = lengthSquared == 0 ? 0 : ((px - ax) * dx + (py - ay) * dy) / lengthSquared;
+        t = Math.max(0, Math.min(1, t));
+        return Math.hypot(px - (ax + t * dx), py - (ay + t * dy));
+    }
+
+    private static class Split {
+        final int from;
+        final int to;
+        final int farthest;
+        final double distance;
+
+        Split(int from, int to, int farthest, double distance) {
+            this.from = from;
+            this.to = to;
+            this.farthest = farthest;
+            this.distance = distance;
+        }
+    }
+}
@@ -1,19 +1,81 @@
 package bgu.spl.mics.application.objects;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
  * Represents a landmark in the environment map.
  * Landmarks are identified and updated by the FusionSlam service.
+ * <p>
+ * The coordinates are kept in primitive arrays together with the number of observations of each
+ * point, and every update moves a point to the running mean of all its observations, in place.
+ * The arrays grow by half their size when an observation has more points than the landmark, so
+ * merging an observation allocates nothing in the common case.
+ * </p>
+ * <p>
+ * A {@link GeometrySimplifier} can drop points that lie close to the line through their
+ * neighbours. Every point remembers the index it has in an observation, so later observations
+ * are still merged point by point into the points that were kept, and their points at dropped
+ * indices are skipped.
+ * </p>
  */
 public class LandMark {
-    private String id;
-    private String Description;
-    private List<CloudPoint> Coordinates;
+    private static final int MIN_CAPACITY = 4;
+
+    private final String id;
+    private final String description;
+    private double[] xs;
+    private double[] ys;
+    private int[] counts; // observations merged into each point
+    private int[] sources; // index of each point in an observation, increasing
+    private int size;
+    private int observedLength; // the most points an observation had
+    private int simplifiedSize; // size after the last simplification
+    private double simplificationError; // the largest distance of a dropped point from the kept line
+    private long version = 1; // incremented by every update
+    // bounding box of the coordinates, kept for the spatial index
+    private double minX;
+    private double minY;
+    private double maxX;
+    private double maxY;
 
     public LandMark(String id, String description, List<CloudPoint> coordinates) {
         this.id = id;
-        this.Description = description;
-        this.Coordinates = coordinates;
+        this.description = description;
+        int capacity = Math.max(MIN_CAPACITY, coordinates.size());
+        this.xs = new double[capacity];
+        this.ys = new double[capacity];
+        this.counts = new int[capacity];
+        this.sources = new int[capacity];
+        for (int i = 0; i < coordinates.size(); i++) {
+            xs[i] = coordinates.get(i).getX();
+            ys[i] = coordinates.get(i).getY();
+            counts[i] = 1;
+            sources[i] = i;
+        }
+        this.size = coordinates.size();
+        this.observedLength = size;
+        updateBounds();
+    }
+
+    private LandMark(LandMark other) {
+        this.id = other.id;
+        this.description = other.description;
+        this.xs = Arrays.copyOf(other.xs, other.size);
+        this.ys = Arrays.copyOf(other.ys, other.size);
+        this.counts = Arrays.copyOf(other.counts, other.size);
+        this.sources = Arrays.copyOf(other.sources, other.size);
+        this.size = other.size;
+        this.observedLength = other.observedLength;
+        this.simplifiedSize = other.simplifiedSize;
+        this.simplificationError = other.simplificationError;
+        this.version = other.version;
+        this.minX = other.minX;
+        this.minY = other.minY;
+        this.maxX = other.maxX;
+        this.maxY = other.maxY;
     }
 
     public String getId() {
@@ -21,23 +83,251 @@ public class LandMark {
     }
 
     public String getDescription() {
-        return Description;
+        return description;
+    }
+
+    /**
+     * @return A new list with the current coordinates.
+     */
+    public synchronized List<CloudPoint> getCoordinates() {
+        List<CloudPoint> coordinates = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            coordinates.add(new CloudPoint(xs[i], ys[i]));
+        }
+        return coordinates;
+    }
+
+    /**
+     * @return 1 for a new landmark, plus the number of observations merged into it since.
+     */
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    public synchronized int getPointCount() {
+        return size;
+    }
+
+    public synchronized double getX(int index) {
+        checkIndex(index);
+        return xs[index];
+    }
+
+    public synchronized double getY(int index) {
+        checkIndex(index);
+        return ys[index];
     }
 
-    public List<CloudPoint> getCoordinates() {
-        return Coordinates;
+    /**
+     * @return The number of observations merged into the point at {@code index}.
+     */
+    public synchronized int getObservationCount(int index) {
+        checkIndex(index);
+        return counts[index];
     }
 
+    /**
+     * @return The largest distance from a dropped point to the line through the kept ones, when it
+     *         was dropped; 0 if the landmark was never simplified or lost no point.
+     */
+    public synchronized double getSimplificationError() {
+        return simplificationError;
+    }
+
+    /**
+     * @return A copy whose coordinates are not affected by later updates of this landmark.
+     */
+    public synchronized LandMark copy() {
+        return new LandMark(this);
+    }
+
+    /**
+     * Merges an observation, point by point: each existing point moves to the mean of all its
+     * observations, and points beyond the current ones are appended.
+     */
     public synchronized void updateCoordinates(List<CloudPoint> newPoints) {
-        for (int i = 0; i < newPoints.size(); i++) {
-            if (i < Coordinates.size()) {
-                double avgX = (Coordinates.get(i).getX() + newPoints.get(i).getX()) / 2;
-                double avgY = (Coordinates.get(i).getY() + newPoints.get(i).getY()) / 2;
-                Coordinates.set(i, new CloudPoint(avgX, avgY));
-            } else {
-                Coordinates.add(newPoints.get(i));
+        int count = newPoints.size();
+        int needed = size + Math.max(0, count - observedLength);
+        if (needed > xs.length) {
+            grow(needed);
+        }
+        for (int i = 0; i < size && sources[i] < count; i++) {
+            CloudPoint point = newPoints.get(sources[i]);
+            int n = ++counts[i];
+            xs[i] += (point.getX() - xs[i]) / n;
+            ys[i] += (point.getY() - ys[i]) / n;
+        }
+        for (int source = observedLength; source < count; source++) {
+            CloudPoint point = newPoints.get(source);
+            xs[size] = point.getX();
+            ys[size] = point.getY();
+            counts[size] = 1;
+            sources[size] = source;
+            size++;
+        }
+        observedLength = Math.max(observedLength, count);
+        version++;
+        updateBounds();
+    }
+
+    /**
+     * Drops the points that {@code simplifier} finds unnecessary. Only the points appended since the
+     * last call are simplified, starting from the last point kept before them, unless the landmark
+     * has more points than the simplifier allows, in which case all of them are.
+     *
+     * @return The number of points dropped.
+     */
+    public synchronized int simplify(GeometrySimplifier simplifier) {
+        int from;
+        int maxKept;
+        if (size > simplifier.getMaxPoints()) {
+            from = 0;
+            maxKept = simplifier.getMaxPoints();
+        } else if (size - simplifiedSize >= 2) {
+            from = Math.max(0, simplifiedSize - 1);
+            maxKept = size - from;
+        } else {
+            return 0;
+        }
+        boolean[] keep = new boolean[size];
+        Arrays.fill(keep, 0, from, true);
+        double error = simplifier.select(xs, ys, from, size, maxKept, keep);
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (keep[i]) {
+                xs[kept] = xs[i];
+                ys[kept] = ys[i];
+                counts[kept] = counts[i];
+                sources[kept] = sources[i];
+                kept++;
             }
         }
+        int dropped = size - kept;
+        size = kept;
+        simplifiedSize = kept;
+        if (dropped > 0) {
+            simplificationError = Math.max(simplificationError, error);
+            version++;
+            updateBounds();
+        }
+        return dropped;
+    }
+
+    public synchronized double getMinX() {
+        return minX;
+    }
+
+    public synchronized double getMinY() {
+        return minY;
+    }
+
+    public synchronized double getMaxX() {
+        return maxX;
+    }
+
+    public synchronized double getMaxY() {
+        return maxY;
+    }
+
+    /**
+     * @return The number of bytes {@link #writeTo(ByteBuffer)} writes.
+     */
+    synchronized int getEncodedSize() {
+        return 4 + utf8(id).length + 4 + utf8(description).length + 8 + 4 * 3 + 8 + size * 24;
+    }
+
+    /**
+     * Writes the whole state of this landmark, for {@link #readFrom(ByteBuffer)}.
+     */
+    synchronized void writeTo(ByteBuffer buffer) {
+        putString(buffer, id);
+        putString(buffer, description);
+        buffer.putLong(version);
+        buffer.putInt(size);
+        buffer.putInt(observedLength);
+        buffer.putInt(simplifiedSize);
+        buffer.putDouble(simplificationError);
+        for (int i = 0; i < size; i++) {
+            buffer.putDouble(xs[i]);
+            buffer.putDouble(ys[i]);
+            buffer.putInt(counts[i]);
+            buffer.putInt(sources[i]);
+        }
+    }
+
+    /**
+     * Reads a landmark written by {@link #writeTo(ByteBuffer)}.
+     */
+    static LandMark readFrom(ByteBuffer buffer) {
+        LandMark landMark = new LandMark(getString(buffer), getString(buffer), new ArrayList<>());
+        landMark.version = buffer.getLong();
+        int size = buffer.getInt();
+        landMark.observedLength = buffer.getInt();
+        landMark.simplifiedSize = buffer.getInt();
+        landMark.simplificationError = buffer.getDouble();
+        if (size > landMark.xs.length) {
+            landMark.grow(size);
+        }
+        for (int i = 0; i < size; i++) {
+            landMark.xs[i] = buffer.getDouble();
+            landMark.ys[i] = buffer.getDouble();
+            landMark.counts[i] = buffer.getInt();
+            landMark.sources[i] = buffer.getInt();
+        }
+        landMark.size = size;
+        landMark.updateBounds();
+        return landMark;
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void putString(ByteBuffer buffer, String value) {
+        if (value == null) {
+            buffer.putInt(-1);
+            return;
+        }
+        byte[] bytes = utf8(value);
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void grow(int needed) {
+        int capacity = Math.max(needed, xs.length + (xs.length >> 1));
+        xs = Arrays.copyOf(xs, capacity);
+        ys = Arrays.copyOf(ys, capacity);
+        counts = Arrays.copyOf(counts, capacity);
+        sources = Arrays.copyOf(sources, capacity);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Point " + index + " of " + size);
+        }
+    }
+
+    private void updateBounds() {
+        minX = Double.POSITIVE_INFINITY;
+        minY = Double.POSITIVE_INFINITY;
+        maxX = Double.NEGATIVE_INFINITY;
+        maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < size; i++) {
+            minX = Math.min(minX, xs[i]);
+            minY = Math.min(minY, ys[i]);
+            maxX = Math.max(maxX, xs[i]);
+            maxY = Math.max(maxY, ys[i]);
+        }
     }
 
 }
@@ -0,0 +1,157 @@
+package bgu.spl.mics.application.objects;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The landmarks of the map, indexed by id.
+ * Landmarks are kept in a list in the order they were first seen, which is the order
+ * of the output file, and a hash index makes finding a landmark by id O(1).
+ * An optional {@link SpatialGrid} over the landmarks' bounding boxes answers proximity queries;
+ * whoever changes a landmark's coordinates calls {@link #markChanged(LandMark)} afterwards, which
+ * also records the landmark for the next {@link #drainChanged()} while change tracking is on.
+ */
+public class LandMarkStore {
+    private final List<LandMark> landMarks = new ArrayList<>();
+    private final Map<String, LandMark> byId = new HashMap<>();
+    private SpatialGrid<String> grid; // null until enabled
+    private final Set<String> changed = new LinkedHashSet<>(); // ids added or updated since the last drain
+    private boolean trackChanges = false;
+
+    /**
+     * Adds a new landmark at the end of the insertion order.
+     *
+     * @throws IllegalArgumentException If a landmark with the same id already exists.
+     */
+    public void add(LandMark landMark) {
+        if (byId.putIfAbsent(landMark.getId(), landMark) != null) {
+            throw new IllegalArgumentException("Landmark already exists: " + landMark.getId());
+        }
+        landMarks.add(landMark);
+        markChanged(landMark);
+    }
+
+    /**
+     * Records that the coordinates of {@code landMark} changed and updates the spatial index.
+     */
+    public void markChanged(LandMark landMark) {
+        if (trackChanges) {
+            changed.add(landMark.getId());
+        }
+        reindex(landMark);
+    }
+
+    /**
+     * Turns recording the changed landmarks for {@link #drainChanged()} on or off; it is off by default.
+     * Turning it off forgets the changes not drained yet.
+     */
+    public void trackChanges(boolean track) {
+        trackChanges = track;
+        if (!track) {
+            changed.clear();
+        }
+    }
+
+    /**
+     * @return The landmarks added or changed since the last call, in the order they first changed,
+     *         or an empty list while change tracking is off.
+     */
+    public List<LandMark> drainChanged() {
+        List<LandMark> result = new ArrayList<>(changed.size());
+        for (String id : changed) {
+            result.add(get(id));
+        }
+        changed.clear();
+        return result;
+    }
+
+    /**
+     * Builds a spatial index with the given cell size over the current and future landmarks.
+     */
+    public void enableSpatialIndex(double cellSize) {
+        grid = new SpatialGrid<>(cellSize);
+        for (LandMark landMark : asList()) {
+            reindex(landMark);
+        }
+    }
+
+    public boolean hasSpatialIndex() {
+        return grid != null;
+    }
+
+    /**
+     * Updates the spatial index after the coordinates of {@code landMark} changed.
+     */
+    public void reindex(LandMark landMark) {
+        if (grid == null) {
+            return;
+        }
+        if (landMark.getPointCount() == 0) {
+            grid.remove(landMark.getId());
+        } else {
+            grid.put(landMark.getId(), landMark.getMinX(), landMark.getMinY(), landMark.getMaxX(), landMark.getMaxY());
+        }
+    }
+
+    /**
+     * @return The landmarks whose bounding box is within {@code radius} of (x, y), nearest first.
+     */
+    public List<LandMark> withinRadius(double x, double y, double radius) {
+        return resolve(requireGrid().withinRadius(x, y, radius));
+    }
+
+    /**
+     * @return Up to {@code k} landmarks whose bounding boxes are nearest to (x, y), nearest first.
+     */
+    public List<LandMark> nearest(double x, double y, int k) {
+        return resolve(requireGrid().nearest(x, y, k));
+    }
+
+    private SpatialGrid<String> requireGrid() {
+        if (grid == null) {
+            throw new IllegalStateException("The spatial index is not enabled");
+        }
+        return grid;
+    }
+
+    private List<LandMark> resolve(List<String> ids) {
+        List<LandMark> result = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            result.add(get(id));
+        }
+        return result;
+    }
+
+    /**
+     * Called by the fusion engine before it looks up and updates the landmarks of a batch.
+     * The landmarks it gets during the batch stay valid until {@link #endBatch()}.
+     */
+    public void beginBatch() {
+    }
+
+    public void endBatch() {
+    }
+
+    /**
+     * @return The landmark with this id, or null.
+     */
+    public LandMark get(String id) {
+        return byId.get(id);
+    }
+
+    public int size() {
+        return landMarks.size();
+    }
+
+    /**
+     * @return A read-only view of the landmarks in insertion order.
+     */
+    public List<LandMark> asList() {
+        return Collections.unmodifiableList(landMarks);
+    }
+}
@@ -0,0 +1,344 @@
+package bgu.spl.mics.application.objects;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A compact, memory-mapped binary LiDAR recording.
+ * <p>
+ * Layout (little endian, all sections 8-byte aligned):
+ * <pre>
+ * header       64 bytes: magic, version, recordCount, timeCount, lastTime, firstErrorTime,
+ *                        timeIndexOffset, recordTableOffset, stringTableOffset, pointsOffset, pointCount
+ * time index   timeCount x (int time, int firstRecord, int recordCount), sorted by time
+ * record table recordCount x (int time, int idOffset, int idLength, int pointCount, long firstPoint)
+ * string table UTF-8 ids
+ * points       pointCount doubles of x, then of y, then of z
+ * </pre>
+ * Records are sorted by time, so each time owns a contiguous range of records.
+ * Nothing is decoded when the file is opened; {@link #readTick(int)} decodes one tick on demand
+ * and the OS page cache decides what stays in memory.
+ * </p>
+ */
+public class LiDarBinaryFile implements AutoCloseable {
+    public static final int MAGIC = 0x3152444C; // "LDR1"
+    public static final int VERSION = 2;
+
+    private static final int HEADER_SIZE = 64;
+    private static final int TIME_ENTRY_SIZE = 12;
+    private static final int RECORD_ENTRY_SIZE = 24;
+    private static final int SEGMENT_SHIFT = 30; // map the file in 1 GB segments
+    private static final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] segments;
+    private final int recordCount;
+    private final int timeCount;
+    private final int lastTime;
+    private final int firstErrorTime;
+    private final long timeIndexOffset;
+    private final long recordTableOffset;
+    private final long stringTableOffset;
+    private final long pointsOffset;
+    private final long pointCount;
+
+    private LiDarBinaryFile(FileChannel channel) throws IOException {
+        this.channel = channel;
+        long size = channel.size();
+        int segmentCount = (int) ((size + SEGMENT_SIZE - 1) >>> SEGMENT_SHIFT);
+        segments = new MappedByteBuffer[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            long start = (long) i << SEGMENT_SHIFT;
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE, size - start));
+            segments[i].order(ByteOrder.LITTLE_ENDIAN);
+        }
+        if (size < HEADER_SIZE || getInt(0) != MAGIC) {
+            throw new IOException("Not a LiDAR binary file");
+        }
+        if (getInt(4) != VERSION) {
+            throw new IOException("Unsupported LiDAR binary version: " + getInt(4));
+        }
+        recordCount = getInt(8);
+        timeCount = getInt(12);
+        lastTime = getInt(16);
+        firstErrorTime = getInt(20);
+        timeIndexOffset = getLong(24);
+        recordTableOffset = getLong(32);
+        stringTableOffset = getLong(40);
+        pointsOffset = getLong(48);
+        pointCount = getLong(56);
+    }
+
+    /**
+     * Memory-maps an existing binary LiDAR file.
+     */
+    public static LiDarBinaryFile open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new LiDarBinaryFile(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return true if the file starts with the binary LiDAR magic number.
+     */
+    public static boolean isBinary(Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            while (magic.hasRemaining() && channel.read(magic) >= 0) {
+                // keep reading until the 4 bytes are in
+            }
+            return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Writes the records of {@code columns} to {@code path} in the binary format.
+     */
+    public static void write(LiDarColumns columns, Path path) throws IOException {
+        int records = columns.getRecordCount();
+        Integer[] order = new Integer[records];
+        for (int r = 0; r < records; r++) {
+            order[r] = r;
+        }
+        Arrays.sort(order, (a, b) -> Integer.compare(columns.getTime(a), columns.getTime(b)));
+
+        byte[][] ids = new byte[records][];
+        int timeCount = 0;
+        int lastTime = 0;
+        int firstErrorTime = -1;
+        long stringBytes = 0;
+        long points = 0;
+        for (int i = 0; i < records; i++) {
+            int r = order[i];
+            ids[i] = columns.getId(r).getBytes(StandardCharsets.UTF_8);
+            stringBytes += ids[i].length;
+            points += columns.getSize(r);
+            if (i == 0 || columns.getTime(r) != columns.getTime(order[i - 1])) {
+                timeCount++;
+            }
+            lastTime = Math.max(lastTime, columns.getTime(r));
+            if (firstErrorTime < 0 && DetectedObject.ERROR_ID.equals(columns.getId(r))) {
+                firstErrorTime = columns.getTime(r); // records are visited in time order
+            }
+        }
+
+        long timeIndexOffset = HEADER_SIZE;
+        long recordTableOffset = align(timeIndexOffset + (long) timeCount * TIME_ENTRY_SIZE);
+        long stringTableOffset = recordTableOffset + (long) records * RECORD_ENTRY_SIZE;
+        long pointsOffset = align(stringTableOffset + stringBytes);
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ChannelOutput out = new ChannelOutput(channel);
+            out.putInt(MAGIC).putInt(VERSION).putInt(records).putInt(timeCount).putInt(lastTime).putInt(firstErrorTime);
+            out.putLong(timeIndexOffset).putLong(recordTableOffset).putLong(stringTableOffset)
+                    .putLong(pointsOffset).putLong(points);
+
+            for (int i = 0; i < records; ) {
+                int time = columns.getTime(order[i]);
+                int first = i;
+                while (i < records && columns.getTime(order[i]) == time) {
+                    i++;
+                }
+                out.putInt(time).putInt(first).putInt(i - first);
+            }
+            out.padTo(recordTableOffset);
+
+            int idOffset = 0;
+            long firstPoint = 0;
+            for (int i = 0; i < records; i++) {
+                int r = order[i];
+                out.putInt(columns.getTime(r)).putInt(idOffset).putInt(ids[i].length).putInt(columns.getSize(r))
+                        .putLong(firstPoint);
+                idOffset += ids[i].length;
+                firstPoint += columns.getSize(r);
+            }
+            for (byte[] id : ids) {
+                out.putBytes(id);
+            }
+            out.padTo(pointsOffset);
+
+            for (int axis = 0; axis < 3; axis++) {
+                for (int i = 0; i < records; i++) {
+                    int r = order[i];
+                    int start = columns.getStart(r);
+                    for (int p = start; p < start + columns.getSize(r); p++) {
+                        out.putDouble(axis == 0 ? columns.getX(p) : axis == 1 ? columns.getY(p) : columns.getZ(p));
+                    }
+                }
+            }
+            out.flush();
+        }
+    }
+
+    /**
+     * Decodes the records stored for {@code time}.
+     *
+     * @return Views over a small columnar copy of that tick, or an empty list if there is no data.
+     */
+    public List<StampedCloudPoints> readTick(int time) {
+        int entry = findTime(time);
+        if (entry < 0) {
+            return Collections.emptyList();
+        }
+        long entryPos = timeIndexOffset + (long) entry * TIME_ENTRY_SIZE;
+        int firstRecord = getInt(entryPos + 4);
+        int count = getInt(entryPos + 8);
+
+        LiDarColumns columns = new LiDarColumns();
+        List<StampedCloudPoints> views = new ArrayList<>(count);
+        for (int r = firstRecord; r < firstRecord + count; r++) {
+            long recordPos = recordTableOffset + (long) r * RECORD_ENTRY_SIZE;
+            String id = getString(stringTableOffset + getInt(recordPos + 4), getInt(recordPos + 8));
+            int size = getInt(recordPos + 12);
+            long firstPoint = getLong(recordPos + 16);
+
+            int record = columns.startRecord(id, getInt(recordPos));
+            for (long p = firstPoint; p < firstPoint + size; p++) {
+                columns.addPoint(getDouble(pointsOffset + 8 * p),
+                        getDouble(pointsOffset + 8 * (pointCount + p)),
+                        getDouble(pointsOffset + 8 * (2 * pointCount + p)));
+            }
+            views.add(columns.view(record));
+        }
+        return views;
+    }
+
+    public int getLastTime() {
+        return lastTime;
+    }
+
+    /**
+     * @return The first time with an "ERROR" record, or -1 if the recording has none.
+     */
+    public int getFirstErrorTime() {
+        return firstErrorTime;
+    }
+
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private int findTime(int time) {
+        int low = 0;
+        int high = timeCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midTime = getInt(timeIndexOffset + (long) mid * TIME_ENTRY_SIZE);
+            if (midTime < time) {
+                low = mid + 1;
+            } else if (midTime > time) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private int getInt(long position) {
+        return segments[(int) (position >>> SEGMENT_SHIFT)].getInt((int) (position & (SEGMENT_SIZE - 1)));
+    }
+
+    private long getLong(long position) {
+        return segments[(int) (position >>> SEGMENT_SHIFT)].getLong((int) (position & (SEGMENT_SIZE - 1)));
+    }
+
+    private double getDouble(long position) {
+        return segments[(int) (position >>> SEGMENT_SHIFT)].getDouble((int) (position & (SEGMENT_SIZE - 1)));
+    }
+
+    private String getString(long position, int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            long p = position + i;
+            bytes[i] = segments[(int) (p >>> SEGMENT_SHIFT)].get((int) (p & (SEGMENT_SIZE - 1)));
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long align(long offset) {
+        return (offset + 7) & ~7L;
+    }
+
+    /**
+     * Buffered little-endian writer over a file channel.
+     */
+    private static class ChannelOutput {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+        private long written = 0;
+
+        ChannelOutput(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        ChannelOutput putInt(int value) throws IOException {
+            ensure(4);
+            buffer.putInt(value);
+            return this;
+        }
+
+        ChannelOutput putLong(long value) throws IOException {
+            ensure(8);
+            buffer.putLong(value);
+            return this;
+        }
+
+        ChannelOutput putDouble(double value) throws IOException {
+            ensure(8);
+            buffer.putDouble(value);
+            return this;
+        }
+
+        ChannelOutput putBytes(byte[] bytes) throws IOException {
+            for (byte b : bytes) {
+                ensure(1);
+                buffer.put(b);
+            }
+            return this;
+        }
+
+        void padTo(long offset) throws IOException {
+            while (written + buffer.position() < offset) {
+                ensure(1);
+                buffer.put((byte) 0);
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                written += channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+    }
+}
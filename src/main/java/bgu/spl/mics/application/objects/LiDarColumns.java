@@ -0,0 +1,150 @@
+package bgu.spl.mics.application.objects;
+
+import java.util.Arrays;
+
+/**
+ * Columnar storage for LiDAR cloud points.
+ * All points of all records live in three contiguous primitive arrays (x, y, z),
+ * and every record (an id at a given time) owns the range
+ * {@code [offsets[r], offsets[r + 1])} of those arrays.
+ * Records are exposed as lightweight {@link StampedCloudPoints} views, so no
+ * per-point objects are created unless a caller explicitly asks for them.
+ */
+public class LiDarColumns {
+    private static final int INITIAL_RECORDS = 16;
+    private static final int INITIAL_POINTS = 64;
+
+    private String[] ids = new String[INITIAL_RECORDS];
+    private int[] times = new int[INITIAL_RECORDS];
+    private int[] offsets = new int[INITIAL_RECORDS + 1];
+    private double[] xs = new double[INITIAL_POINTS];
+    private double[] ys = new double[INITIAL_POINTS];
+    private double[] zs = new double[INITIAL_POINTS];
+    private int recordCount = 0;
+    private int pointCount = 0;
+
+    /**
+     * Starts a new record. Points added afterwards belong to it until the next record starts.
+     *
+     * @return The index of the new record.
+     */
+    public int startRecord(String id, int time) {
+        if (recordCount == ids.length) {
+            int capacity = Math.max(INITIAL_RECORDS, ids.length * 2);
+            ids = Arrays.copyOf(ids, capacity);
+            times = Arrays.copyOf(times, capacity);
+            offsets = Arrays.copyOf(offsets, capacity + 1);
+        }
+        ids[recordCount] = id;
+        times[recordCount] = time;
+        offsets[recordCount] = pointCount;
+        recordCount++;
+        offsets[recordCount] = pointCount;
+        return recordCount - 1;
+    }
+
+    /**
+     * Appends a point to the most recently started record.
+     */
+    public void addPoint(double x, double y, double z) {
+        if (recordCount == 0) {
+            throw new IllegalStateException("addPoint called before startRecord");
+        }
+        if (pointCount == xs.length) {
+            int capacity = Math.max(INITIAL_POINTS, xs.length * 2);
+            xs = Arrays.copyOf(xs, capacity);
+            ys = Arrays.copyOf(ys, capacity);
+            zs = Arrays.copyOf(zs, capacity);
+        }
+        xs[pointCount] = x;
+        ys[pointCount] = y;
+        zs[pointCount] = z;
+        pointCount++;
+        offsets[recordCount] = pointCount;
+    }
+
+    /**
+     * Appends all records of {@code other}, in order, to this store.
+     */
+    public void appendAll(LiDarColumns other) {
+        int records = recordCount + other.recordCount;
+        int points = pointCount + other.pointCount;
+        if (records > ids.length) {
+            int capacity = Math.max(records, ids.length * 2);
+            ids = Arrays.copyOf(ids, capacity);
+            times = Arrays.copyOf(times, capacity);
+            offsets = Arrays.copyOf(offsets, capacity + 1);
+        }
+        if (points > xs.length) {
+            int capacity = Math.max(points, xs.length * 2);
+            xs = Arrays.copyOf(xs, capacity);
+            ys = Arrays.copyOf(ys, capacity);
+            zs = Arrays.copyOf(zs, capacity);
+        }
+        System.arraycopy(other.ids, 0, ids, recordCount, other.recordCount);
+        System.arraycopy(other.times, 0, times, recordCount, other.recordCount);
+        for (int r = 0; r <= other.recordCount; r++) {
+            offsets[recordCount + r] = pointCount + other.offsets[r];
+        }
+        System.arraycopy(other.xs, 0, xs, pointCount, other.pointCount);
+        System.arraycopy(other.ys, 0, ys, pointCount, other.pointCount);
+        System.arraycopy(other.zs, 0, zs, pointCount, other.pointCount);
+        recordCount = records;
+        pointCount = points;
+    }
+
+    /**
+     * Releases the spare capacity left over from loading.
+     */
+    public void trimToSize() {
+        ids = Arrays.copyOf(ids, recordCount);
+        times = Arrays.copyOf(times, recordCount);
+        offsets = Arrays.copyOf(offsets, recordCount + 1);
+        xs = Arrays.copyOf(xs, pointCount);
+        ys = Arrays.copyOf(ys, pointCount);
+        zs = Arrays.copyOf(zs, pointCount);
+    }
+
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    public int getPointCount() {
+        return pointCount;
+    }
+
+    public String getId(int record) {
+        return ids[record];
+    }
+
+    public int getTime(int record) {
+        return times[record];
+    }
+
+    public int getStart(int record) {
+        return offsets[record];
+    }
+
+    public int getSize(int record) {
+        return offsets[record + 1] - offsets[record];
+    }
+
+    public double getX(int point) {
+        return xs[point];
+    }
+
+    public double getY(int point) {
+        return ys[point];
+    }
+
+    public double getZ(int point) {
+        return zs[point];
+    }
+
+    /**
+     * @return A view over the given record. The view shares this store's arrays.
+     */
+    public StampedCloudPoints view(int record) {
+        return new StampedCloudPoints(this, record);
+    }
+}
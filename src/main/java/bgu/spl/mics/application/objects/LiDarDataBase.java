@@ -1,20 +1,24 @@
 package bgu.spl.mics.application.objects;
 
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
-
-import java.io.FileReader;
-import java.lang.reflect.Type;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
 
 /**
  * LiDarDataBase is a singleton class responsible for managing LiDAR data.
  * It provides access to cloud point data and other relevant information for tracked objects.
+ * Points are kept in a {@link LiDarColumns} store (x, y and z) and handed out as views,
+ * or read on demand from a memory-mapped {@link LiDarBinaryFile}.
  */
 public class LiDarDataBase {
-
-    private final Map<Integer, List<StampedCloudPoints>> data = new HashMap<>(); // time -> list of StampedCloudPoints
+    private LiDarColumns columns = new LiDarColumns();
+    private LiDarBinaryFile mappedFile; // set when the data comes from a binary file
+    private LiDarWindow window; // set when windowed mode is enabled over a binary file
+    private final Map<Integer, int[]> timeIndex = new HashMap<>(); // time -> record indices in columns
     private int lastTime = 0; 
+    private int firstErrorTime = -1;
+    private int dataEndTime = Integer.MAX_VALUE; // data after this time was discarded
 
     private static class Holder {
         private static final LiDarDataBase instance = new LiDarDataBase();
@@ -27,40 +31,91 @@ public class LiDarDataBase {
     }
 
     /**
-     * Loads LiDAR data from a JSON file.
+     * Loads LiDAR data from a file.
+     * A binary LiDAR file (see {@link LiDarBinaryFile}) is memory-mapped and read lazily by tick;
+     * anything else is parsed as JSON into the columnar store.
      *
-     * @param filePath Path to the JSON file.
+     * @param filePath Path to the JSON or binary file.
      */
     public void loadData(String filePath) {
+        mappedFile = null;
+        window = null;
+        lastTime = 0;
+        firstErrorTime = -1;
+        dataEndTime = Integer.MAX_VALUE;
         try {
-            Gson gson = new Gson();
-            Type listType = new TypeToken<List<Map<String, Object>>>() {}.getType();
-            try (FileReader reader = new FileReader(filePath)) {
-                List<Map<String, Object>> records = gson.fromJson(reader, listType);
+            Path path = Paths.get(filePath);
+            if (LiDarBinaryFile.isBinary(path)) {
+                mappedFile = LiDarBinaryFile.open(path);
+                lastTime = mappedFile.getLastTime();
+                firstErrorTime = mappedFile.getFirstErrorTime();
+                return;
+            }
+            columns = LiDarJsonParser.parse(path);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to load LiDar data from file: " + filePath, e);
+        }
+        buildTimeIndex();
+    }
+
+    /**
+     * Switches to windowed mode: only the ticks LiDAR workers can still ask for stay decoded in memory.
+     * Windowed mode needs a binary recording; JSON data is always fully resident.
+     *
+     * @param lag       How many ticks behind its current tick a worker may still ask for data.
+     * @param readAhead How many ticks ahead of the fastest worker to decode in the background, 0 for none.
+     */
+    public void enableWindow(int lag, int readAhead) {
+        if (mappedFile == null) {
+            System.out.println("LiDar window needs a binary recording, keeping all LiDar data in memory.");
+            return;
+        }
+        window = new LiDarWindow(mappedFile, lag, readAhead);
+    }
 
-                for (Map<String, Object> record : records) {
-                    int time = ((Double) record.get("time")).intValue();
-                    String id = (String) record.get("id");
-                    List<List<Double>> cloudPointsRaw = (List<List<Double>>) record.get("cloudPoints");
-                    List<CloudPoint> cloudPoints = new ArrayList<>();
-                    
-                    for (List<Double> point : cloudPointsRaw) {
-                        double x = point.get(0);
-                        double y = point.get(1);
-                        cloudPoints.add(new CloudPoint(x, y));
-                    }
+    /**
+     * Reports that LiDAR worker {@code workerId} reached {@code tick}, allowing older ticks to be evicted.
+     */
+    public void advanceConsumer(int workerId, int tick) {
+        if (window != null) {
+            window.advance(workerId, tick);
+        }
+    }
 
-                    StampedCloudPoints stampedCloudPoint = new StampedCloudPoints(id, time, cloudPoints);
-                    data.putIfAbsent(time, new ArrayList<>());
-                    data.get(time).add(stampedCloudPoint);
+    /**
+     * Reports that LiDAR worker {@code workerId} will not ask for any more data.
+     */
+    public void removeConsumer(int workerId) {
+        if (window != null) {
+            window.removeConsumer(workerId);
+        }
+    }
 
-                    if (time > lastTime) {
-                        lastTime = time;
-                    }
-                }
+    /**
+     * Parses a lidar_data.json file into a columnar store.
+     *
+     * @param filePath Path to the JSON file.
+     * @return The parsed records, in file order.
+     */
+    public static LiDarColumns readJson(String filePath) throws IOException {
+        return LiDarJsonParser.parse(Paths.get(filePath));
+    }
+
+    private void buildTimeIndex() {
+        timeIndex.clear();
+        for (int r = 0; r < columns.getRecordCount(); r++) {
+            lastTime = Math.max(lastTime, columns.getTime(r));
+            if (DetectedObject.ERROR_ID.equals(columns.getId(r)) && (firstErrorTime < 0 || columns.getTime(r) < firstErrorTime)) {
+                firstErrorTime = columns.getTime(r);
+            }
+            int[] records = timeIndex.get(columns.getTime(r));
+            if (records == null) {
+                timeIndex.put(columns.getTime(r), new int[] { r });
+            } else {
+                int[] grown = Arrays.copyOf(records, records.length + 1);
+                grown[records.length] = r;
+                timeIndex.put(columns.getTime(r), grown);
             }
-        } catch (Exception e) {
-            System.err.println("Error loading LiDar data: " + e.getMessage());
         }
     }
 
@@ -71,7 +126,58 @@ public class LiDarDataBase {
      * @return A list of stamped cloud points.
      */
     public List<StampedCloudPoints> getStampedCloudPointsAtTime(int time) {
-        return data.getOrDefault(time, Collections.emptyList());
+        if (time > dataEndTime) {
+            return Collections.emptyList();
+        }
+        if (window != null) {
+            return window.get(time);
+        }
+        if (mappedFile != null) {
+            return mappedFile.readTick(time);
+        }
+        int[] records = timeIndex.get(time);
+        if (records == null) {
+            return Collections.emptyList();
+        }
+        List<StampedCloudPoints> views = new ArrayList<>(records.length);
+        for (int record : records) {
+            views.add(columns.view(record));
+        }
+        return views;
+    }
+
+    /**
+     * Drops all records after {@code time}. The last time of the recording is kept,
+     * so the workers still terminate at the same tick.
+     *
+     * @param time The last time whose data is still needed.
+     */
+    public void discardAfter(int time) {
+        dataEndTime = time;
+        if (mappedFile != null) {
+            return; // nothing is resident, reads past the end are simply skipped
+        }
+        LiDarColumns kept = new LiDarColumns();
+        for (int r = 0; r < columns.getRecordCount(); r++) {
+            if (columns.getTime(r) <= time) {
+                kept.startRecord(columns.getId(r), columns.getTime(r));
+                for (int p = columns.getStart(r); p < columns.getStart(r) + columns.getSize(r); p++) {
+                    kept.addPoint(columns.getX(p), columns.getY(p), columns.getZ(p));
+                }
+            }
+        }
+        kept.trimToSize();
+        columns = kept;
+        buildTimeIndex();
+    }
+
+    /**
+     * Returns the first time with an "ERROR" record, computed once when the data is loaded.
+     *
+     * @return The first fault time, or -1 if the recording has none.
+     */
+    public int getFirstErrorTime() {
+        return firstErrorTime;
     }
 
     /**
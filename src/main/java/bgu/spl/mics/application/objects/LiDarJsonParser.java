@@ -0,0 +1,633 @@
+package bgu.spl.mics.application.objects;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Streaming, type-aware parser for lidar_data.json.
+ * <p>
+ * The file is read straight from a {@link FileChannel} and decoded byte by byte into a
+ * {@link LiDarColumns} store: numbers are parsed into primitives, keys are matched without creating
+ * strings, and no intermediate maps or boxed values are built.
+ * </p>
+ * <p>
+ * Large files are split into chunks that are decoded in parallel. A chunk boundary is guessed by
+ * looking for a {@code ,{} separator near an even split point, and each chunk checks that the record
+ * after its last one starts exactly where the next chunk begins. If a guess turns out wrong (for
+ * example inside an id string), or if any chunk fails, the file is parsed again sequentially so
+ * that errors are always reported against the real record boundaries.
+ * </p>
+ */
+public class LiDarJsonParser {
+    private static final long MIN_CHUNK_SIZE = 4L << 20;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final byte[] TIME = "time".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ID = "id".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CLOUD_POINTS = "cloudPoints".getBytes(StandardCharsets.US_ASCII);
+    private static final double[] POWERS_OF_TEN = new double[23];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private LiDarJsonParser() {}
+
+    /**
+     * Parses a file using all available cores.
+     */
+    public static LiDarColumns parse(Path path) throws IOException {
+        return parse(path, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Parses a file with at most {@code parallelism} chunks decoded at once.
+     *
+     * @return The records, in file order.
+     * @throws LiDarParseException If the file contains a malformed record.
+     */
+    public static LiDarColumns parse(Path path, int parallelism) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            int chunks = (int) Math.max(1, Math.min(parallelism, size / MIN_CHUNK_SIZE));
+            if (chunks > 1) {
+                LiDarColumns parsed = parseChunks(channel, size, chunks);
+                if (parsed != null) {
+                    return parsed;
+                }
+            }
+            LiDarColumns columns = new LiDarColumns();
+            new ChunkParser(channel, 0, Long.MAX_VALUE).parse(columns);
+            columns.trimToSize();
+            return columns;
+        }
+    }
+
+    /**
+     * @return The merged records, or null if the chunks could not be decoded independently.
+     */
+    private static LiDarColumns parseChunks(FileChannel channel, long size, int chunks) throws IOException {
+        List<Long> starts = new ArrayList<>();
+        starts.add(0L);
+        for (int i = 1; i < chunks; i++) {
+            long start = findRecordStart(channel, size * i / chunks);
+            if (start > starts.get(starts.size() - 1)) {
+                starts.add(start);
+            }
+        }
+        if (starts.size() == 1) {
+            return null;
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(starts.size());
+        try {
+            List<Future<LiDarColumns>> results = new ArrayList<>();
+            for (int i = 0; i < starts.size(); i++) {
+                long start = starts.get(i);
+                long stopAt = i + 1 < starts.size() ? starts.get(i + 1) : Long.MAX_VALUE;
+                results.add(pool.submit(() -> {
+                    LiDarColumns columns = new LiDarColumns();
+                    new ChunkParser(channel, start, stopAt).parse(columns);
+                    return columns;
+                }));
+            }
+            LiDarColumns merged = new LiDarColumns();
+            for (Future<LiDarColumns> result : results) {
+                merged.appendAll(result.get());
+            }
+            merged.trimToSize();
+            return merged;
+        } catch (ExecutionException e) {
+            return null; // a wrong boundary guess or a real error, the sequential pass will tell
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while parsing LiDar data", e);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * @return The offset of the first '{' that follows a ',' at or after {@code from}, or -1.
+     */
+    private static long findRecordStart(FileChannel channel, long from) throws IOException {
+        Input in = new Input(channel, from);
+        boolean afterComma = false;
+        for (int c = in.next(); c >= 0; c = in.next()) {
+            if (c == ',') {
+                afterComma = true;
+            } else if (c == '{' && afterComma) {
+                return in.offset() - 1;
+            } else if (!isWhitespace(c)) {
+                afterComma = false;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isWhitespace(int c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+    }
+
+    /**
+     * Thrown inside a chunk whose end does not line up with the next chunk's start.
+     */
+    private static class MisalignedChunkException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        MisalignedChunkException() {
+            super("Chunk boundary is not a record boundary");
+        }
+    }
+
+    /**
+     * Positional, buffered byte input over a file channel.
+     */
+    private static class Input {
+        private final FileChannel channel;
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private long bufferStart;
+        private int position = 0;
+        private int limit = 0;
+
+        Input(FileChannel channel, long start) {
+            this.channel = channel;
+            this.bufferStart = start;
+        }
+
+        int peek() throws IOException {
+            if (position == limit && !fill()) {
+                return -1;
+            }
+            return buffer[position] & 0xFF;
+        }
+
+        int next() throws IOException {
+            if (position == limit && !fill()) {
+                return -1;
+            }
+            return buffer[position++] & 0xFF;
+        }
+
+        long offset() {
+            return bufferStart + position;
+        }
+
+        private boolean fill() throws IOException {
+            bufferStart += limit;
+            position = 0;
+            limit = 0;
+            ByteBuffer target = ByteBuffer.wrap(buffer);
+            while (target.hasRemaining()) {
+                int read = channel.read(target, bufferStart + target.position());
+                if (read < 0) {
+                    break;
+                }
+            }
+            limit = target.position();
+            return limit > 0;
+        }
+    }
+
+    /**
+     * Decodes the records whose first byte lies in {@code [start, stopAt)}.
+     */
+    private static class ChunkParser {
+        private final Input in;
+        private final long start;
+        private final long stopAt;
+        private long recordStart = -1;
+        private byte[] text = new byte[64];
+        private int textLength;
+        private char[] number = new char[32];
+        private double[] points = new double[96];
+        private int pointValues;
+
+        ChunkParser(FileChannel channel, long start, long stopAt) {
+            this.in = new Input(channel, start);
+            this.start = start;
+            this.stopAt = stopAt;
+        }
+
+        void parse(LiDarColumns columns) throws IOException {
+            if (start == 0) {
+                skipWhitespace();
+                expect('[');
+                skipWhitespace();
+                if (in.peek() == ']') {
+                    in.next();
+                    expectEnd();
+                    return;
+                }
+            }
+            while (true) {
+                parseRecord(columns);
+                skipWhitespace();
+                long separatorOffset = in.offset();
+                int c = in.next();
+                if (c == ',') {
+                    skipWhitespace();
+                    long next = in.offset();
+                    if (next >= stopAt) {
+                        if (next != stopAt) {
+                            throw new MisalignedChunkException();
+                        }
+                        return;
+                    }
+                } else if (c == ']') {
+                    if (stopAt != Long.MAX_VALUE) {
+                        throw new MisalignedChunkException();
+                    }
+                    expectEnd();
+                    return;
+                } else {
+                    throw new LiDarParseException("Expected ',' or ']' after a record but found " + describe(c),
+                            separatorOffset, recordStart);
+                }
+            }
+        }
+
+        private void parseRecord(LiDarColumns columns) throws IOException {
+            recordStart = in.offset();
+            expect('{');
+            skipWhitespace();
+            boolean hasTime = false;
+            int time = 0;
+            String id = null;
+            pointValues = 0;
+            if (in.peek() == '}') {
+                in.next();
+            } else {
+                while (true) {
+                    readText();
+                    skipWhitespace();
+                    expect(':');
+                    skipWhitespace();
+                    if (textEquals(TIME)) {
+                        long numberOffset = in.offset();
+                        double value = readNumber();
+                        time = (int) value;
+                        if (time != value) {
+                            throw new LiDarParseException("Expected an integer time but found " + value,
+                                    numberOffset, recordStart);
+                        }
+                        hasTime = true;
+                    } else if (textEquals(ID)) {
+                        if (in.peek() != '"') {
+                            throw error("Expected a string id but found " + describe(in.peek()));
+                        }
+                        readText();
+                        id = new String(text, 0, textLength, StandardCharsets.UTF_8);
+                    } else if (textEquals(CLOUD_POINTS)) {
+                        readPoints();
+                    } else {
+                        skipValue();
+                    }
+                    skipWhitespace();
+                    long separatorOffset = in.offset();
+                    int c = in.next();
+                    if (c == '}') {
+                        break;
+                    }
+                    if (c != ',') {
+                        throw new LiDarParseException("Expected ',' or '}' in a record but found " + describe(c),
+                            separatorOffset, recordStart);
+                    }
+                    skipWhitespace();
+                }
+            }
+            if (!hasTime) {
+                throw new LiDarParseException("Record has no time", recordStart, recordStart);
+            }
+            if (id == null) {
+                throw new LiDarParseException("Record has no id", recordStart, recordStart);
+            }
+            columns.startRecord(id, time);
+            for (int i = 0; i < pointValues; i += 3) {
+                columns.addPoint(points[i], points[i + 1], points[i + 2]);
+            }
+        }
+
+        private void readPoints() throws IOException {
+            expect('[');
+            skipWhitespace();
+            if (in.peek() == ']') {
+                in.next();
+                return;
+            }
+            while (true) {
+                long pointOffset = in.offset();
+                expect('[');
+                if (pointValues + 3 > points.length) {
+                    points = Arrays.copyOf(points, points.length * 2);
+                }
+                int coordinates = 0;
+                skipWhitespace();
+                while (true) {
+                    if (coordinates == 3) {
+                        throw new LiDarParseException("A cloud point has more than 3 coordinates", pointOffset, recordStart);
+                    }
+                    points[pointValues + coordinates++] = readNumber();
+                    skipWhitespace();
+                    long separatorOffset = in.offset();
+                    int c = in.next();
+                    if (c == ']') {
+                        break;
+                    }
+                    if (c != ',') {
+                        throw new LiDarParseException("Expected ',' or ']' in a cloud point but found " + describe(c),
+                            separatorOffset, recordStart);
+                    }
+                    skipWhitespace();
+                }
+                if (coordinates < 2) {
+                    throw new LiDarParseException("A cloud point needs at least 2 coordinates", pointOffset, recordStart);
+                }
+                if (coordinates == 2) {
+                    points[pointValues + 2] = 0;
+                }
+                pointValues += 3;
+                skipWhitespace();
+                long separatorOffset = in.offset();
+                int c = in.next();
+                if (c == ']') {
+                    return;
+                }
+                if (c != ',') {
+                    throw new LiDarParseException("Expected ',' or ']' in cloudPoints but found " + describe(c),
+                            separatorOffset, recordStart);
+                }
+                skipWhitespace();
+            }
+        }
+
+        /**
+         * Parses a JSON number. Numbers with at most 18 significant digits and a small exponent
+         * take the exact fast path; anything else goes through {@link Double#parseDouble}.
+         */
+        private double readNumber() throws IOException {
+            long numberOffset = in.offset();
+            int length = 0;
+            boolean negative = false;
+            long mantissa = 0;
+            int digits = 0;
+            int exponent = 0;
+            boolean exact = true;
+
+            int c = in.peek();
+            if (c == '-') {
+                negative = true;
+                number[length++] = (char) in.next();
+                c = in.peek();
+            }
+            int integerDigits = 0;
+            while (c >= '0' && c <= '9') {
+                length = appendNumberChar(length, in.next());
+                if (digits < 18) {
+                    mantissa = mantissa * 10 + (c - '0');
+                    if (mantissa != 0) {
+                        digits++;
+                    }
+                } else {
+                    exact = false;
+                }
+                integerDigits++;
+                c = in.peek();
+            }
+            if (integerDigits == 0) {
+                throw new LiDarParseException("Expected a number but found " + describe(c), numberOffset, recordStart);
+            }
+            if (c == '.') {
+                length = appendNumberChar(length, in.next());
+                c = in.peek();
+                int fractionDigits = 0;
+                while (c >= '0' && c <= '9') {
+                    length = appendNumberChar(length, in.next());
+                    if (digits < 18) {
+                        mantissa = mantissa * 10 + (c - '0');
+                        if (mantissa != 0) {
+                            digits++;
+                        }
+                        exponent--;
+                    } else {
+                        exact = false;
+                    }
+                    fractionDigits++;
+                    c = in.peek();
+                }
+                if (fractionDigits == 0) {
+                    throw new LiDarParseException("Expected a digit after the decimal point", in.offset(), recordStart);
+                }
+            }
+            if (c == 'e' || c == 'E') {
+                length = appendNumberChar(length, in.next());
+                c = in.peek();
+                boolean negativeExponent = false;
+                if (c == '+' || c == '-') {
+                    negativeExponent = c == '-';
+                    length = appendNumberChar(length, in.next());
+                    c = in.peek();
+                }
+                int explicitExponent = 0;
+                int exponentDigits = 0;
+                while (c >= '0' && c <= '9') {
+                    length = appendNumberChar(length, in.next());
+                    explicitExponent = Math.min(explicitExponent * 10 + (c - '0'), 100000);
+                    exponentDigits++;
+                    c = in.peek();
+                }
+                if (exponentDigits == 0) {
+                    throw new LiDarParseException("Expected a digit in the exponent", in.offset(), recordStart);
+                }
+                exponent += negativeExponent ? -explicitExponent : explicitExponent;
+            }
+
+            if (exact && mantissa < (1L << 53) && exponent >= -22 && exponent <= 22) {
+                double value = exponent >= 0 ? mantissa * POWERS_OF_TEN[exponent] : mantissa / POWERS_OF_TEN[-exponent];
+                return negative ? -value : value;
+            }
+            return Double.parseDouble(new String(number, 0, length));
+        }
+
+        private int appendNumberChar(int length, int c) {
+            if (length == number.length) {
+                number = Arrays.copyOf(number, length * 2);
+            }
+            number[length] = (char) c;
+            return length + 1;
+        }
+
+        /**
+         * Reads a JSON string into the {@code text} buffer as UTF-8 bytes.
+         */
+        private void readText() throws IOException {
+            expect('"');
+            textLength = 0;
+            while (true) {
+                int c = in.next();
+                if (c < 0) {
+                    throw error("Unterminated string");
+                }
+                if (c == '"') {
+                    return;
+                }
+                if (c == '\\') {
+                    int escaped = in.next();
+                    switch (escaped) {
+                        case '"': case '\\': case '/': appendText(escaped); break;
+                        case 'b': appendText('\b'); break;
+                        case 'f': appendText('\f'); break;
+                        case 'n': appendText('\n'); break;
+                        case 'r': appendText('\r'); break;
+                        case 't': appendText('\t'); break;
+                        case 'u': appendCodeUnit(readHex()); break;
+                        default: throw error("Invalid escape sequence \\" + describe(escaped));
+                    }
+                } else if (c < 0x20) {
+                    throw error("Control character in string");
+                } else {
+                    appendText(c);
+                }
+            }
+        }
+
+        private int readHex() throws IOException {
+            int value = 0;
+            for (int i = 0; i < 4; i++) {
+                int c = in.next();
+                int digit = Character.digit(c, 16);
+                if (c < 0 || digit < 0) {
+                    throw error("Invalid unicode escape");
+                }
+                value = value * 16 + digit;
+            }
+            return value;
+        }
+
+        private void appendCodeUnit(int unit) throws IOException {
+            int codePoint = unit;
+            if (Character.isHighSurrogate((char) unit) && in.peek() == '\\') {
+                in.next();
+                if (in.next() != 'u') {
+                    throw error("Expected a low surrogate escape");
+                }
+                int low = readHex();
+                codePoint = Character.toCodePoint((char) unit, (char) low);
+            }
+            byte[] encoded = new String(Character.toChars(codePoint)).getBytes(StandardCharsets.UTF_8);
+            for (byte b : encoded) {
+                appendText(b & 0xFF);
+            }
+        }
+
+        private void appendText(int b) {
+            if (textLength == text.length) {
+                text = Arrays.copyOf(text, textLength * 2);
+            }
+            text[textLength++] = (byte) b;
+        }
+
+        private boolean textEquals(byte[] key) {
+            if (textLength != key.length) {
+                return false;
+            }
+            for (int i = 0; i < textLength; i++) {
+                if (text[i] != key[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void skipValue() throws IOException {
+            int c = in.peek();
+            if (c == '"') {
+                readText();
+            } else if (c == '{' || c == '[') {
+                int close = c == '{' ? '}' : ']';
+                in.next();
+                skipWhitespace();
+                if (in.peek() == close) {
+                    in.next();
+                    return;
+                }
+                while (true) {
+                    if (close == '}') {
+                        readText();
+                        skipWhitespace();
+                        expect(':');
+                        skipWhitespace();
+                    }
+                    skipValue();
+                    skipWhitespace();
+                    long separatorOffset = in.offset();
+                    int next = in.next();
+                    if (next == close) {
+                        return;
+                    }
+                    if (next != ',') {
+                        throw new LiDarParseException("Expected ',' or '" + (char) close + "' but found " + describe(next),
+                            separatorOffset, recordStart);
+                    }
+                    skipWhitespace();
+                }
+            } else if (c == 't') {
+                expectLiteral("true");
+            } else if (c == 'f') {
+                expectLiteral("false");
+            } else if (c == 'n') {
+                expectLiteral("null");
+            } else {
+                readNumber();
+            }
+        }
+
+        private void expectLiteral(String literal) throws IOException {
+            for (int i = 0; i < literal.length(); i++) {
+                expect(literal.charAt(i));
+            }
+        }
+
+        private void expect(int expected) throws IOException {
+            int c = in.peek();
+            if (c != expected) {
+                throw error("Expected '" + (char) expected + "' but found " + describe(c));
+            }
+            in.next();
+        }
+
+        private void expectEnd() throws IOException {
+            skipWhitespace();
+            if (in.peek() >= 0) {
+                throw error("Unexpected content after the end of the array: " + describe(in.peek()));
+            }
+        }
+
+        private void skipWhitespace() throws IOException {
+            while (isWhitespace(in.peek())) {
+                in.next();
+            }
+        }
+
+        private LiDarParseException error(String message) {
+            return new LiDarParseException(message, in.offset(), recordStart);
+        }
+
+        private static String describe(int c) {
+            return c < 0 ? "end of file" : "'" + (char) c + "'";
+        }
+    }
+}
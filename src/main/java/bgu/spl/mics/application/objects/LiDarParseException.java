@@ -0,0 +1,35 @@
+package bgu.spl.mics.application.objects;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a LiDAR data file contains a malformed record.
+ * Carries the byte offset of the error and of the record it belongs to.
+ */
+public class LiDarParseException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    private final long offset;
+    private final long recordOffset;
+
+    public LiDarParseException(String message, long offset, long recordOffset) {
+        super(message + " at byte " + offset
+                + (recordOffset >= 0 ? " (record starting at byte " + recordOffset + ")" : ""));
+        this.offset = offset;
+        this.recordOffset = recordOffset;
+    }
+
+    /**
+     * @return The byte offset in the file where the error was found.
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * @return The byte offset of the malformed record, or -1 if the error is outside any record.
+     */
+    public long getRecordOffset() {
+        return recordOffset;
+    }
+}
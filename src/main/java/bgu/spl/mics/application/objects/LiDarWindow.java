@@ -0,0 +1,149 @@
+package bgu.spl.mics.application.objects;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A sliding window of decoded LiDAR ticks over a {@link LiDarBinaryFile}.
+ * <p>
+ * Every consumer (a LiDAR worker) reports the tick it has reached. A worker at tick {@code T}
+ * can still be asked for detections of time {@code T - lag} (the camera delay), so all ticks
+ * below the lowest such time are evicted. An optional read-ahead thread decodes the ticks up to
+ * {@code readAhead} ticks past the fastest consumer, so resident memory follows the window
+ * size and not the recording length. A tick that is requested after it was evicted is decoded
+ * again from the mapped file and counted as a miss.
+ * </p>
+ */
+public class LiDarWindow {
+    private final LiDarBinaryFile file;
+    private final int lag;
+    private final int readAhead;
+    private final ConcurrentSkipListMap<Integer, List<StampedCloudPoints>> resident = new ConcurrentSkipListMap<>();
+    private final Map<Integer, Integer> consumerTicks = new ConcurrentHashMap<>(); // consumer id -> current tick
+    private final AtomicLong misses = new AtomicLong(0);
+    private volatile int lowWater = 0; // ticks below this are evicted
+    private volatile boolean running = true;
+    private int nextToLoad = 1; // guarded by this
+
+    /**
+     * @param file      The recording to read from.
+     * @param lag       How many ticks behind its current tick a consumer may still ask for data.
+     * @param readAhead How many ticks past the fastest consumer to decode in the background, 0 for none.
+     */
+    public LiDarWindow(LiDarBinaryFile file, int lag, int readAhead) {
+        this.file = file;
+        this.lag = lag;
+        this.readAhead = readAhead;
+        if (readAhead > 0) {
+            Thread loader = new Thread(this::readAheadLoop, "LiDarReadAhead");
+            loader.setDaemon(true);
+            loader.start();
+        }
+    }
+
+    /**
+     * Returns the records of {@code time}, decoding them if they are not resident.
+     */
+    public List<StampedCloudPoints> get(int time) {
+        List<StampedCloudPoints> views = resident.get(time);
+        if (views != null) {
+            return views;
+        }
+        misses.incrementAndGet();
+        views = file.readTick(time);
+        if (time >= lowWater) {
+            resident.putIfAbsent(time, views);
+        }
+        return views;
+    }
+
+    /**
+     * Records that consumer {@code id} reached {@code tick} and evicts the ticks no consumer can still ask for.
+     */
+    public synchronized void advance(int id, int tick) {
+        consumerTicks.put(id, tick);
+        evict();
+        notifyAll();
+    }
+
+    /**
+     * Removes a consumer that will not ask for any more data.
+     */
+    public synchronized void removeConsumer(int id) {
+        consumerTicks.remove(id);
+        evict();
+        if (consumerTicks.isEmpty()) {
+            running = false;
+        }
+        notifyAll();
+    }
+
+    /**
+     * @return The number of ticks currently decoded in memory.
+     */
+    public int getResidentTicks() {
+        return resident.size();
+    }
+
+    /**
+     * @return How many requests had to be decoded on the caller's thread.
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    // Called with the lock held
+    private void evict() {
+        int lowest = Integer.MAX_VALUE;
+        for (int tick : consumerTicks.values()) {
+            lowest = Math.min(lowest, tick);
+        }
+        if (lowest == Integer.MAX_VALUE) {
+            return;
+        }
+        int low = lowest - lag;
+        if (low > lowWater) {
+            lowWater = low;
+            resident.headMap(low).clear();
+        }
+    }
+
+    // Called with the lock held
+    private int loadTarget() {
+        int highest = 0;
+        for (int tick : consumerTicks.values()) {
+            highest = Math.max(highest, tick);
+        }
+        return Math.min(highest + readAhead, file.getLastTime());
+    }
+
+    private void readAheadLoop() {
+        while (true) {
+            int time;
+            synchronized (this) {
+                while (running && nextToLoad > loadTarget() && nextToLoad <= file.getLastTime()) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                if (!running || nextToLoad > file.getLastTime()) {
+                    return;
+                }
+                time = Math.max(nextToLoad, lowWater);
+                nextToLoad = time + 1;
+            }
+            if (!resident.containsKey(time)) {
+                List<StampedCloudPoints> views = file.readTick(time);
+                if (time >= lowWater) {
+                    resident.putIfAbsent(time, views);
+                }
+            }
+        }
+    }
+}
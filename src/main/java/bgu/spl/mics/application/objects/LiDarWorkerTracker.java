@@ -2,6 +2,8 @@ package bgu.spl.mics.application.objects;
 import java.util.ArrayList;
 import java.util.List;
 
+import bgu.spl.mics.FlightEvents;
+
 /**
  * LiDarWorkerTracker is responsible for managing a LiDAR worker.
  * It processes DetectObjectsEvents and generates TrackedObjectsEvents by using data from the LiDarDataBase.
@@ -12,12 +14,18 @@ public class LiDarWorkerTracker {
     private int id;
     private int frequency;
     private List<TrackedObject> lastTrackedObjects;
+    private final PointDownsampler downsampler;
 
     public LiDarWorkerTracker(int id, int frequency) {
+        this(id, frequency, PointDownsampler.NONE);
+    }
+
+    public LiDarWorkerTracker(int id, int frequency, PointDownsampler downsampler) {
         this.id = id;
         this.frequency = frequency;
         this.status = STATUS.UP; 
         this.lastTrackedObjects = new ArrayList<>();
+        this.downsampler = downsampler;
     }
 
     public STATUS getStatus() {
@@ -44,38 +52,55 @@ public class LiDarWorkerTracker {
         this.lastTrackedObjects = lastTrackedObjects;
     }
 
+    public PointDownsampler getDownsampler() {
+        return downsampler;
+    }
+
     public List<TrackedObject> processDetectedObjects(List<DetectedObject> detectedObjects, int detectionTime, LiDarDataBase dataBase) {
+        FlightEvents.LiDarTracking event = new FlightEvents.LiDarTracking();
+        event.begin();
         List<TrackedObject> trackedObjects = new ArrayList<>();
+        List<StampedCloudPoints> stampedPoints = dataBase.getStampedCloudPointsAtTime(detectionTime);
+        int rawPoints = 0;
+        int keptPoints = 0;
 
         for (DetectedObject detected : detectedObjects) {
-            List<StampedCloudPoints> stampedPoints = dataBase.getStampedCloudPointsAtTime(detectionTime);
             for (StampedCloudPoints stampedCloudPoint : stampedPoints) {
                 if (stampedCloudPoint.getId().equals(detected.getId())) {
+                    List<CloudPoint> points = downsampler.downsample(stampedCloudPoint);
+                    rawPoints += stampedCloudPoint.size();
+                    keptPoints += points.size();
                     TrackedObject trackedObject = new TrackedObject(
                         detected.getId(),
                         detectionTime,
                         detected.getDescription(),
-                        stampedCloudPoint.getCloudPoints()
+                        points
                     );
                     trackedObjects.add(trackedObject);
                 }
             }
         }
         lastTrackedObjects = trackedObjects;
+        StatisticalFolder.getInstance().addCloudPoints(rawPoints, keptPoints);
+        if (event.shouldCommit()) {
+            event.tick = FlightEvents.currentTick();
+            event.sensor = "LiDarWorkerTracker" + id;
+            event.detectionTime = detectionTime;
+            event.detectedObjects = detectedObjects.size();
+            event.trackedObjects = trackedObjects.size();
+            event.rawCloudPoints = rawPoints;
+            event.keptCloudPoints = keptPoints;
+            event.commit();
+        }
 
         return trackedObjects;
     }
 
     public boolean checkForError(int currentTime, LiDarDataBase dataBase) {
-        List<StampedCloudPoints> stampedCloudPointsList = dataBase.getStampedCloudPointsAtTime(currentTime);
-    
-        for (StampedCloudPoints stampedCloudPoints : stampedCloudPointsList) {
-            if ("ERROR".equals(stampedCloudPoints.getId())) {
-                System.out.println("LiDAR Worker " + id + ": ERROR detected at time " + currentTime);
-                return true;
-            }
+        if (currentTime == dataBase.getFirstErrorTime()) {
+            System.out.println("LiDAR Worker " + id + ": ERROR detected at time " + currentTime);
+            return true;
         }
-    
         return false;
     }
 }
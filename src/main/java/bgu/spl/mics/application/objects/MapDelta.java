@@ -0,0 +1,56 @@
+package bgu.spl.mics.application.objects;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The landmarks that were added or changed during one tick.
+ * <p>
+ * The delta holds copies, so it can be handed to other threads while FusionSlam keeps updating
+ * the map. Every landmark carries its version; a consumer that keeps a map by id applies a delta
+ * with {@link #applyTo(Map)} and skips entries it already has in a newer version.
+ * </p>
+ */
+public class MapDelta {
+    private final int tick;
+    private final List<LandMark> landMarks;
+
+    public MapDelta(int tick, List<LandMark> changed) {
+        this.tick = tick;
+        List<LandMark> copies = new ArrayList<>(changed.size());
+        for (LandMark landMark : changed) {
+            copies.add(landMark.copy());
+        }
+        this.landMarks = Collections.unmodifiableList(copies);
+    }
+
+    public int getTick() {
+        return tick;
+    }
+
+    /**
+     * @return Copies of the changed landmarks, in the order they first changed.
+     */
+    public List<LandMark> getLandMarks() {
+        return landMarks;
+    }
+
+    /**
+     * Puts every landmark of this delta into {@code map}, unless the map has a newer version.
+     *
+     * @return The number of landmarks that were added or replaced.
+     */
+    public int applyTo(Map<String, LandMark> map) {
+        int applied = 0;
+        for (LandMark landMark : landMarks) {
+            LandMark current = map.get(landMark.getId());
+            if (current == null || current.getVersion() < landMark.getVersion()) {
+                map.put(landMark.getId(), landMark);
+                applied++;
+            }
+        }
+        return applied;
+    }
+}
@@ -0,0 +1,97 @@
+package bgu.spl.mics.application.objects;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * An append-only file of map deltas, one JSON object per line:
+ * <pre>
+ * {"tick":5,"landMarks":[{"id":"Wall_1","description":"Wall","version":3,"coordinates":[{"x":0.4,"y":0.1}]}]}
+ * </pre>
+ * Replaying the lines in order, keeping the latest version of every id, rebuilds the map at any
+ * tick. Lines are serialized and written on a background thread.
+ */
+public class MapDeltaLog implements AutoCloseable {
+    private final FileChannel channel;
+    private final ExecutorService executor;
+
+    /**
+     * Creates {@code path}, or empties it if it exists.
+     */
+    public MapDeltaLog(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        this.executor = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "MapDeltaLog");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Queues {@code delta} to be appended.
+     */
+    public void append(MapDelta delta) {
+        executor.execute(() -> {
+            try {
+                ByteBuffer line = ByteBuffer.wrap(toJson(delta).getBytes(StandardCharsets.UTF_8));
+                while (line.hasRemaining()) {
+                    channel.write(line);
+                }
+            } catch (IOException e) {
+                System.out.println("MapDeltaLog: Delta of tick " + delta.getTick() + " lost: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Writes the queued deltas and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+    }
+
+    private static String toJson(MapDelta delta) throws IOException {
+        StringWriter text = new StringWriter();
+        try (JsonWriter out = new JsonWriter(text)) {
+            out.beginObject();
+            out.name("tick").value(delta.getTick());
+            out.name("landMarks").beginArray();
+            for (LandMark landMark : delta.getLandMarks()) {
+                out.beginObject();
+                out.name("id").value(landMark.getId());
+                out.name("description").value(landMark.getDescription());
+                out.name("version").value(landMark.getVersion());
+                out.name("coordinates").beginArray();
+                for (int i = 0; i < landMark.getPointCount(); i++) {
+                    out.beginObject();
+                    out.name("x").value(landMark.getX(i));
+                    out.name("y").value(landMark.getY(i));
+                    out.endObject();
+                }
+                out.endArray();
+                out.endObject();
+            }
+            out.endArray();
+            out.endObject();
+        }
+        return text.append('\n').toString();
+    }
+}
@@ -0,0 +1,168 @@
+package bgu.spl.mics.application.objects;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable view of the map and the trajectory as they were at the end of a tick.
+ * <p>
+ * FusionSlam publishes a new snapshot after every tick through a volatile reference, and any
+ * thread may read the current one without locking; a reader keeps a consistent view for as long
+ * as it holds the snapshot. Snapshots are copy-on-write: a new one reuses the landmark copies of
+ * the previous one whose version did not change, and shares its pose array, to which it only
+ * appends past the poses the previous snapshot can see. The spatial index is built on the first
+ * range or nearest query of a snapshot.
+ * </p>
+ */
+public class MapSnapshot {
+    public static final double DEFAULT_CELL_SIZE = 1.0;
+
+    private static final Pose[] NO_POSES = new Pose[0];
+
+    private final int tick;
+    private final List<LandMark> landMarks; // copies, in the order they were first seen
+    private final Map<String, LandMark> byId;
+    private final Pose[] poses; // shared with later snapshots, which only write past poseCount
+    private final int poseCount;
+    private final double cellSize;
+    private volatile SpatialGrid<String> grid; // built on first use, read-only afterwards
+
+    private MapSnapshot(int tick, List<LandMark> landMarks, Map<String, LandMark> byId,
+                        Pose[] poses, int poseCount, double cellSize) {
+        this.tick = tick;
+        this.landMarks = Collections.unmodifiableList(landMarks);
+        this.byId = byId;
+        this.poses = poses;
+        this.poseCount = poseCount;
+        this.cellSize = cellSize;
+    }
+
+    /**
+     * @return A snapshot of an empty map at tick 0.
+     */
+    public static MapSnapshot empty(double cellSize) {
+        if (!(cellSize > 0)) {
+            throw new IllegalArgumentException("Cell size must be positive: " + cellSize);
+        }
+        return new MapSnapshot(0, new ArrayList<>(), new HashMap<>(), NO_POSES, 0, cellSize);
+    }
+
+    /**
+     * Builds the snapshot that follows this one. Must only be called by the single writer, once
+     * per snapshot, since the pose array is shared.
+     *
+     * @param live  The current landmarks, in the order they were first seen.
+     * @param poses The poses in the order they were added; the first {@link #getPoseCount()} are
+     *              the ones this snapshot already has.
+     */
+    public MapSnapshot next(int tick, List<LandMark> live, List<Pose> poses) {
+        List<LandMark> copies = new ArrayList<>(live.size());
+        Map<String, LandMark> copiesById = new HashMap<>(live.size() * 2);
+        for (LandMark landMark : live) {
+            LandMark previous = byId.get(landMark.getId());
+            LandMark copy = previous != null && previous.getVersion() == landMark.getVersion()
+                    ? previous : landMark.copy();
+            copies.add(copy);
+            copiesById.put(copy.getId(), copy);
+        }
+
+        Pose[] array = this.poses;
+        int count = poses.size();
+        if (count > array.length) {
+            array = Arrays.copyOf(array, Math.max(count, array.length * 2));
+        }
+        for (int i = poseCount; i < count; i++) {
+            array[i] = poses.get(i);
+        }
+        return new MapSnapshot(tick, copies, copiesById, array, count, cellSize);
+    }
+
+    public int getTick() {
+        return tick;
+    }
+
+    /**
+     * @return The landmarks in the order they were first seen.
+     */
+    public List<LandMark> getLandMarks() {
+        return landMarks;
+    }
+
+    /**
+     * @return The landmark with this id, or null.
+     */
+    public LandMark get(String id) {
+        return byId.get(id);
+    }
+
+    /**
+     * @return The poses in the order they were added.
+     */
+    public List<Pose> getPoses() {
+        return new AbstractList<Pose>() {
+            @Override
+            public Pose get(int index) {
+                if (index < 0 || index >= poseCount) {
+                    throw new IndexOutOfBoundsException("Pose " + index + " of " + poseCount);
+                }
+                return poses[index];
+            }
+
+            @Override
+            public int size() {
+                return poseCount;
+            }
+        };
+    }
+
+    public int getPoseCount() {
+        return poseCount;
+    }
+
+    /**
+     * @return The landmarks whose bounding boxes are within {@code radius} of (x, y), nearest first.
+     */
+    public List<LandMark> withinRadius(double x, double y, double radius) {
+        return resolve(grid().withinRadius(x, y, radius));
+    }
+
+    /**
+     * @return Up to {@code k} landmarks whose bounding boxes are nearest to (x, y), nearest first.
+     */
+    public List<LandMark> nearest(double x, double y, int k) {
+        return resolve(grid().nearest(x, y, k));
+    }
+
+    private SpatialGrid<String> grid() {
+        SpatialGrid<String> result = grid;
+        if (result == null) {
+            synchronized (this) {
+                result = grid;
+                if (result == null) {
+                    result = new SpatialGrid<>(cellSize);
+                    for (LandMark landMark : landMarks) {
+                        if (landMark.getPointCount() > 0) {
+                            result.put(landMark.getId(), landMark.getMinX(), landMark.getMinY(),
+                                    landMark.getMaxX(), landMark.getMaxY());
+                        }
+                    }
+                    grid = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    private List<LandMark> resolve(List<String> ids) {
+        List<LandMark> result = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            result.add(byId.get(id));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,140 @@
+package bgu.spl.mics.application.objects;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import bgu.spl.mics.Message;
+import bgu.spl.mics.MessageBusImpl;
+import bgu.spl.mics.MicroService;
+
+/**
+ * Serves the progress of a running simulation at {@code /metrics}, in the Prometheus text format.
+ * <p>
+ * The server listens on the loopback address only and answers on its own daemon thread. A scrape
+ * reads the {@link StatisticalFolder} counters, the sizes of the message bus mailboxes and the
+ * per-type message counts, all of which can be read without a lock, so it never blocks or
+ * interrupts a simulation thread. Message rates are left to Prometheus, from the counters.
+ * </p>
+ */
+public class MetricsServer {
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * Binds to 127.0.0.1:{@code port}, or to a free port if {@code port} is 0.
+     */
+    public MetricsServer(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        executor = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "MetricsServer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/metrics", this::handle);
+    }
+
+    public void start() {
+        server.start();
+        System.out.println("MetricsServer: Serving http://127.0.0.1:" + getPort() + "/metrics");
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = render().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * @return The current metrics in the Prometheus text format.
+     */
+    public static String render() {
+        StatisticalFolder folder = StatisticalFolder.getInstance();
+        StringBuilder out = new StringBuilder(2048);
+        metric(out, "gurion_current_tick", "gauge", "The last tick FusionSlam recorded.", folder.getCurrentTick());
+        metric(out, "gurion_system_runtime_ticks_total", "counter", "Ticks the simulation has run.", folder.getSystemRuntime());
+        metric(out, "gurion_detected_objects_total", "counter", "Objects detected by the cameras.",
+                folder.getNumDetectedObjects());
+        metric(out, "gurion_tracked_objects_total", "counter", "Objects tracked by the LiDAR workers.",
+                folder.getNumTrackedObjects());
+        metric(out, "gurion_landmarks", "gauge", "Landmarks in the FusionSlam map.", folder.getNumLandmarks());
+        metric(out, "gurion_cloud_points_raw_total", "counter", "Cloud points read by the LiDAR workers.",
+                folder.getRawCloudPoints());
+        metric(out, "gurion_cloud_points_kept_total", "counter", "Cloud points kept after downsampling.",
+                folder.getKeptCloudPoints());
+        metric(out, "gurion_simplified_points_total", "counter", "Landmark points dropped by simplification.",
+                folder.getSimplifiedPoints());
+        header(out, "gurion_fusion_seconds_total", "counter", "Time FusionSlam spent fusing tracked objects.");
+        out.append("gurion_fusion_seconds_total ").append(folder.getFusionNanos() / 1e9).append('\n');
+
+        MessageBusImpl bus = MessageBusImpl.getInstance();
+        Map<String, Integer> depths = new TreeMap<>();
+        for (Map.Entry<MicroService, LinkedBlockingQueue<Message>> entry : bus.getMicroServiceQueues().entrySet()) {
+            depths.merge(entry.getKey().getName(), entry.getValue().size(), Integer::sum);
+        }
+        header(out, "gurion_mailbox_depth", "gauge", "Messages waiting in the mailbox of each micro-service.");
+        for (Map.Entry<String, Integer> entry : depths.entrySet()) {
+            out.append("gurion_mailbox_depth{service=\"").append(escape(entry.getKey())).append("\"} ")
+                    .append(entry.getValue()).append('\n');
+        }
+
+        Map<String, Long> sent = new TreeMap<>();
+        for (Map.Entry<Class<? extends Message>, LongAdder> entry : bus.getSentCounts().entrySet()) {
+            sent.put(entry.getKey().getSimpleName(), entry.getValue().sum());
+        }
+        header(out, "gurion_messages_sent_total", "counter", "Events and broadcasts sent, by message type.");
+        for (Map.Entry<String, Long> entry : sent.entrySet()) {
+            out.append("gurion_messages_sent_total{type=\"").append(escape(entry.getKey())).append("\"} ")
+                    .append(entry.getValue()).append('\n');
+        }
+        return out.toString();
+    }
+
+    private static void metric(StringBuilder out, String name, String type, String help, long value) {
+        header(out, name, type, help);
+        out.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static String escape(String label) {
+        return label.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
@@ -0,0 +1,199 @@
+package bgu.spl.mics.application.objects;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A tiled log-odds occupancy grid built from LiDAR hits.
+ * <p>
+ * The map is split into square tiles of {@code TILE_SIZE x TILE_SIZE} cells that are only
+ * allocated when a ray first touches them, so memory follows the explored area. For every hit,
+ * the cells on the line from the robot to the hit (Bresenham) become more likely free and the
+ * hit cell more likely occupied. Log-odds are clamped so that a cell can still change its mind.
+ * </p>
+ * <p>
+ * Binary export (little endian):
+ * <pre>
+ * header  24 bytes: magic, version, resolution (double), tileSize, tileCount
+ * tiles   tileCount x (int tileX, int tileY, tileSize * tileSize signed bytes of log-odds * 16, row by row)
+ * </pre>
+ * </p>
+ */
+public class OccupancyGrid {
+    public static final int MAGIC = 0x3143434F; // "OCC1"
+    public static final int VERSION = 1;
+    public static final int TILE_SIZE = 64;
+
+    private static final float LOG_ODDS_HIT = 0.85f;
+    private static final float LOG_ODDS_FREE = -0.4f;
+    private static final float LOG_ODDS_MIN = -4f;
+    private static final float LOG_ODDS_MAX = 4f;
+    private static final float EXPORT_SCALE = 16f; // 4 * 16 = 64 fits a signed byte
+    private static final int MAX_RAY_CELLS = 1 << 16; // longer rays are ignored
+
+    private final double resolution;
+    private final Map<Long, float[]> tiles = new HashMap<>();
+
+    /**
+     * @param resolution The side of a cell in meters.
+     */
+    public OccupancyGrid(double resolution) {
+        if (!(resolution > 0)) {
+            throw new IllegalArgumentException("Grid resolution must be positive: " + resolution);
+        }
+        this.resolution = resolution;
+    }
+
+    public double getResolution() {
+        return resolution;
+    }
+
+    /**
+     * Casts a ray from the robot at (robotX, robotY) to a hit at (hitX, hitY), both in meters.
+     */
+    public void addRay(double robotX, double robotY, double hitX, double hitY) {
+        long x0 = cellOf(robotX);
+        long y0 = cellOf(robotY);
+        long x1 = cellOf(hitX);
+        long y1 = cellOf(hitY);
+        long dx = Math.abs(x1 - x0);
+        long dy = -Math.abs(y1 - y0);
+        if (dx - dy > MAX_RAY_CELLS) {
+            return;
+        }
+        long stepX = x0 < x1 ? 1 : -1;
+        long stepY = y0 < y1 ? 1 : -1;
+        long error = dx + dy;
+        while (x0 != x1 || y0 != y1) {
+            update(x0, y0, LOG_ODDS_FREE);
+            long e2 = 2 * error;
+            if (e2 >= dy) {
+                error += dy;
+                x0 += stepX;
+            }
+            if (e2 <= dx) {
+                error += dx;
+                y0 += stepY;
+            }
+        }
+        update(x1, y1, LOG_ODDS_HIT);
+    }
+
+    /**
+     * @return The log-odds of the cell containing (x, y); 0 means unknown.
+     */
+    public float getLogOdds(double x, double y) {
+        return getCellLogOdds(cellOf(x), cellOf(y));
+    }
+
+    /**
+     * @return The probability that the cell containing (x, y) is occupied; 0.5 means unknown.
+     */
+    public double getOccupancy(double x, double y) {
+        return 1 - 1 / (1 + Math.exp(getLogOdds(x, y)));
+    }
+
+    public float getCellLogOdds(long cellX, long cellY) {
+        float[] tile = tiles.get(tileKey(Math.floorDiv(cellX, TILE_SIZE), Math.floorDiv(cellY, TILE_SIZE)));
+        return tile == null ? 0 : tile[index(cellX, cellY)];
+    }
+
+    /**
+     * @return The number of allocated tiles.
+     */
+    public int getTileCount() {
+        return tiles.size();
+    }
+
+    /**
+     * Writes the allocated tiles, in a stable order, in the binary format.
+     */
+    public void write(Path path) throws IOException {
+        List<Long> keys = new ArrayList<>(tiles.keySet());
+        Collections.sort(keys);
+        ByteBuffer buffer = ByteBuffer.allocate(8 + TILE_SIZE * TILE_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        try (FileChannel out = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(24).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putDouble(resolution).putInt(TILE_SIZE).putInt(keys.size());
+            writeFully(out, header);
+            for (long key : keys) {
+                float[] tile = tiles.get(key);
+                buffer.putInt((int) (key >> 32)).putInt((int) key);
+                for (float logOdds : tile) {
+                    buffer.put((byte) Math.round(logOdds * EXPORT_SCALE));
+                }
+                writeFully(out, buffer);
+            }
+        }
+    }
+
+    /**
+     * Reads a grid written by {@link #write(Path)}. Log-odds come back quantized to 1/16.
+     */
+    public static OccupancyGrid read(Path path) throws IOException {
+        try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) in.size()).order(ByteOrder.LITTLE_ENDIAN);
+            while (buffer.hasRemaining() && in.read(buffer) >= 0) {
+                // keep reading until the whole file is in
+            }
+            buffer.flip();
+            if (buffer.remaining() < 24 || buffer.getInt() != MAGIC) {
+                throw new IOException("Not an occupancy grid file");
+            }
+            if (buffer.getInt() != VERSION) {
+                throw new IOException("Unsupported occupancy grid version");
+            }
+            OccupancyGrid grid = new OccupancyGrid(buffer.getDouble());
+            if (buffer.getInt() != TILE_SIZE) {
+                throw new IOException("Unsupported occupancy grid tile size");
+            }
+            int count = buffer.getInt();
+            for (int t = 0; t < count; t++) {
+                long key = tileKey(buffer.getInt(), buffer.getInt());
+                float[] tile = new float[TILE_SIZE * TILE_SIZE];
+                for (int i = 0; i < tile.length; i++) {
+                    tile[i] = buffer.get() / EXPORT_SCALE;
+                }
+                grid.tiles.put(key, tile);
+            }
+            return grid;
+        }
+    }
+
+    private void update(long cellX, long cellY, float delta) {
+        long key = tileKey(Math.floorDiv(cellX, TILE_SIZE), Math.floorDiv(cellY, TILE_SIZE));
+        float[] tile = tiles.computeIfAbsent(key, k -> new float[TILE_SIZE * TILE_SIZE]);
+        int i = index(cellX, cellY);
+        tile[i] = Math.max(LOG_ODDS_MIN, Math.min(LOG_ODDS_MAX, tile[i] + delta));
+    }
+
+    private long cellOf(double coordinate) {
+        return (long) Math.floor(coordinate / resolution);
+    }
+
+    private static int index(long cellX, long cellY) {
+        return Math.floorMod(cellY, TILE_SIZE) * TILE_SIZE + Math.floorMod(cellX, TILE_SIZE);
+    }
+
+    private static long tileKey(long tileX, long tileY) {
+        return (tileX << 32) | (tileY & 0xFFFFFFFFL);
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,322 @@
+package bgu.spl.mics.application.objects;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPOutputStream;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+
+import bgu.spl.mics.FlightEvents;
+
+/**
+ * Writes the output file and periodic map checkpoints.
+ * <p>
+ * The JSON is streamed through a {@link JsonWriter} into a buffered file channel, optionally
+ * gzipped, so no part of the output is built in memory first. Every file is written to a
+ * temporary sibling and then moved over the target in one step, so a reader, or a crash, never
+ * sees a half-written file.
+ * </p>
+ * <p>
+ * A checkpoint copies the landmarks on the calling thread and writes the copy on a background
+ * thread, so the FusionSlam event loop never waits for the disk. While a checkpoint is still
+ * being written, later ones are skipped rather than queued.
+ * </p>
+ */
+public class OutputWriter {
+    private static final Gson GSON = new Gson(); // for the sensor frames; thread safe and reused
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final boolean gzip;
+    private final ExecutorService checkpointExecutor;
+    private final AtomicBoolean checkpointPending = new AtomicBoolean(false);
+    private volatile int skippedCheckpoints = 0;
+
+    public OutputWriter(boolean gzip) {
+        this.gzip = gzip;
+        this.checkpointExecutor = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "CheckpointWriter");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @return The path {@code fileName} is written to, with ".gz" appended when gzipping.
+     */
+    public Path resolve(String fileName) {
+        return Paths.get(gzip ? fileName + ".gz" : fileName);
+    }
+
+    /**
+     * Writes the output of a simulation that ended normally.
+     */
+    public void writeOutput(Path path, Statistics statistics, List<LandMark> landMarks) throws IOException {
+        FlightEvents.OutputWrite event = new FlightEvents.OutputWrite();
+        event.begin();
+        try (JsonWriter out = open(path)) {
+            out.beginObject();
+            writeStatistics(out, statistics);
+            writeLandMarks(out, landMarks);
+            writeTimeSeries(out, statistics);
+            out.endObject();
+        }
+        commit(path);
+        commitEvent(event, "output", path, landMarks.size());
+    }
+
+    /**
+     * Writes the output of a simulation that ended because a sensor crashed.
+     */
+    public void writeErrorOutput(Path path, String error, String faultySensor,
+                                 Map<Integer, StampedDetectedObjects> cameraFrames,
+                                 Map<Integer, List<TrackedObject>> lidarFrames,
+                                 List<Pose> poses, Statistics statistics, List<LandMark> landMarks) throws IOException {
+        FlightEvents.OutputWrite event = new FlightEvents.OutputWrite();
+        event.begin();
+        try (JsonWriter out = open(path)) {
+            out.beginObject();
+            out.name("error").value(error);
+            out.name("faultySensor").value(faultySensor);
+
+            out.name("lastCamerasFrame").beginObject();
+            for (Map.Entry<Integer, StampedDetectedObjects> entry : cameraFrames.entrySet()) {
+                out.name("Camera" + entry.getKey());
+                GSON.toJson(entry.getValue(), StampedDetectedObjects.class, out);
+            }
+            out.endObject();
+
+            out.name("lastLiDarWorkerTrackersFrame").beginObject();
+            for (Map.Entry<Integer, List<TrackedObject>> entry : lidarFrames.entrySet()) {
+                out.name("LiDarWorkerTracker" + entry.getKey());
+                GSON.toJson(entry.getValue(), entry.getValue().getClass(), out);
+            }
+            out.endObject();
+
+            out.name("poses").beginArray();
+            for (Pose pose : poses) {
+                out.beginObject();
+                out.name("time").value(pose.getTime());
+                out.name("x").value(Float.valueOf(pose.getX())); // as a Float, so it prints like the input
+                out.name("y").value(Float.valueOf(pose.getY()));
+                out.name("yaw").value(Float.valueOf(pose.getYaw()));
+                out.endObject();
+            }
+            out.endArray();
+
+            out.name("statistics").beginObject();
+            writeStatistics(out, statistics);
+            writeLandMarks(out, landMarks);
+            out.endObject();
+            writeTimeSeries(out, statistics);
+            out.endObject();
+        }
+        commit(path);
+        commitEvent(event, "error", path, landMarks.size());
+    }
+
+    /**
+     * Copies {@code landMarks} and writes them, with the statistics, to {@code path} in the background.
+     *
+     * @return false if the checkpoint was skipped because the previous one is still being written.
+     */
+    public boolean checkpoint(Path path, int tick, List<LandMark> landMarks) {
+        if (!checkpointPending.compareAndSet(false, true)) {
+            skippedCheckpoints++;
+            return false;
+        }
+        Statistics statistics = Statistics.current();
+        List<LandMark> copy = new ArrayList<>(landMarks.size());
+        for (LandMark landMark : landMarks) {
+            copy.add(landMark.copy());
+        }
+        try {
+            checkpointExecutor.execute(() -> {
+                try {
+                    writeCheckpoint(path, tick, statistics, copy);
+                } catch (IOException e) {
+                    System.out.println("OutputWriter: Checkpoint at tick " + tick + " failed: " + e.getMessage());
+                } finally {
+                    checkpointPending.set(false);
+                }
+            });
+        } catch (RuntimeException e) {
+            checkpointPending.set(false); // rejected after shutdown
+            return false;
+        }
+        return true;
+    }
+
+    private void writeCheckpoint(Path path, int tick, Statistics statistics, List<LandMark> landMarks) throws IOException {
+        FlightEvents.OutputWrite event = new FlightEvents.OutputWrite();
+        event.begin();
+        try (JsonWriter out = open(path)) {
+            out.beginObject();
+            out.name("tick").value(tick);
+            writeStatistics(out, statistics);
+            writeLandMarks(out, landMarks);
+            out.endObject();
+        }
+        commit(path);
+        commitEvent(event, "checkpoint", path, landMarks.size());
+    }
+
+    private static void commitEvent(FlightEvents.OutputWrite event, String kind, Path path, int landMarks) {
+        if (event.shouldCommit()) {
+            event.tick = FlightEvents.currentTick();
+            event.kind = kind;
+            event.path = path.toString();
+            event.landMarks = landMarks;
+            try {
+                event.bytes = Files.size(path);
+            } catch (IOException e) {
+                event.bytes = -1; // the file is written; only its size is unknown
+            }
+            event.commit();
+        }
+    }
+
+    public int getSkippedCheckpoints() {
+        return skippedCheckpoints;
+    }
+
+    /**
+     * Lets the checkpoint being written, if any, finish, and stops the background thread.
+     */
+    public void shutdown() {
+        checkpointExecutor.shutdown();
+        try {
+            checkpointExecutor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private JsonWriter open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(temporaryOf(path), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        OutputStream stream = new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+        if (gzip) {
+            stream = new GZIPOutputStream(stream, BUFFER_SIZE);
+        }
+        return new JsonWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8));
+    }
+
+    private static void commit(Path path) throws IOException {
+        try {
+            Files.move(temporaryOf(path), path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporaryOf(path), path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static Path temporaryOf(Path path) {
+        return path.resolveSibling(path.getFileName() + ".tmp");
+    }
+
+    private static void writeStatistics(JsonWriter out, Statistics statistics) throws IOException {
+        out.name("systemRuntime").value(statistics.systemRuntime);
+        out.name("numDetectedObjects").value(statistics.numDetectedObjects);
+        out.name("numTrackedObjects").value(statistics.numTrackedObjects);
+        out.name("numLandmarks").value(statistics.numLandmarks);
+    }
+
+    /**
+     * Writes the per-tick counts as parallel arrays, oldest tick first.
+     */
+    private static void writeTimeSeries(JsonWriter out, Statistics statistics) throws IOException {
+        TickTimeSeries.Samples samples = statistics.timeSeries;
+        if (samples == null) {
+            return;
+        }
+        out.name("timeSeries").beginObject();
+        out.name("ticks").beginArray();
+        for (int i = 0; i < samples.size(); i++) {
+            out.value(samples.getTick(i));
+        }
+        out.endArray();
+        out.name("detectedObjects").beginArray();
+        for (int i = 0; i < samples.size(); i++) {
+            out.value(samples.getDetectedObjects(i));
+        }
+        out.endArray();
+        out.name("trackedObjects").beginArray();
+        for (int i = 0; i < samples.size(); i++) {
+            out.value(samples.getTrackedObjects(i));
+        }
+        out.endArray();
+        out.name("landMarks").beginArray();
+        for (int i = 0; i < samples.size(); i++) {
+            out.value(samples.getLandMarks(i));
+        }
+        out.endArray();
+        out.endObject();
+    }
+
+    private static void writeLandMarks(JsonWriter out, List<LandMark> landMarks) throws IOException {
+        out.name("landMarks").beginObject();
+        for (LandMark landMark : landMarks) {
+            out.name(landMark.getId()).beginObject();
+            out.name("id").value(landMark.getId());
+            out.name("description").value(landMark.getDescription());
+            out.name("coordinates").beginArray();
+            for (int i = 0; i < landMark.getPointCount(); i++) {
+                out.beginObject();
+                out.name("x").value(landMark.getX(i));
+                out.name("y").value(landMark.getY(i));
+                out.endObject();
+            }
+            out.endArray();
+            out.endObject();
+        }
+        out.endObject();
+    }
+
+    /**
+     * The counters of the {@link StatisticalFolder}, read at one moment.
+     */
+    public static final class Statistics {
+        private final int systemRuntime;
+        private final int numDetectedObjects;
+        private final int numTrackedObjects;
+        private final int numLandmarks;
+        private final TickTimeSeries.Samples timeSeries; // null to leave the time series out
+
+        public Statistics(int systemRuntime, int numDetectedObjects, int numTrackedObjects, int numLandmarks) {
+            this(systemRuntime, numDetectedObjects, numTrackedObjects, numLandmarks, null);
+        }
+
+        public Statistics(int systemRuntime, int numDetectedObjects, int numTrackedObjects, int numLandmarks,
+                          TickTimeSeries.Samples timeSeries) {
+            this.systemRuntime = systemRuntime;
+            this.numDetectedObjects = numDetectedObjects;
+            this.numTrackedObjects = numTrackedObjects;
+            this.numLandmarks = numLandmarks;
+            this.timeSeries = timeSeries;
+        }
+
+        public static Statistics current() {
+            StatisticalFolder folder = StatisticalFolder.getInstance();
+            return new Statistics(folder.getSystemRuntime(), folder.getNumDetectedObjects(),
+                    folder.getNumTrackedObjects(), folder.getNumLandmarks(), folder.getTimeSeries().getSamples());
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package bgu.spl.mics.application.objects;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Reduces the cloud points of a LiDAR record before they are sent to FusionSlam.
+ * <p>
+ * Two methods are supported:
+ * <ul>
+ *   <li>{@code voxel}: the space is split into cubes of side {@code size} and only the first
+ *       point that falls in each cube is kept.</li>
+ *   <li>{@code distance}: a point is kept only if it is at least {@code size} away from the
+ *       previously kept point.</li>
+ * </ul>
+ * Both keep the surviving points in their original order, so the index-by-index averaging
+ * in {@link LandMark#updateCoordinates(List)} still pairs up the same parts of an object.
+ * </p>
+ */
+public class PointDownsampler {
+    public enum Method { NONE, VOXEL, DISTANCE }
+
+    public static final PointDownsampler NONE = new PointDownsampler(Method.NONE, 0);
+
+    private final Method method;
+    private final double size;
+
+    public PointDownsampler(Method method, double size) {
+        if (method != Method.NONE && !(size > 0)) {
+            throw new IllegalArgumentException("Downsampling size must be positive: " + size);
+        }
+        this.method = method;
+        this.size = size;
+    }
+
+    /**
+     * Creates a downsampler from its configuration values.
+     *
+     * @param method "voxel", "distance" or "none" (case insensitive); null means none.
+     * @param size   The voxel side or the minimal distance between kept points.
+     */
+    public static PointDownsampler of(String method, double size) {
+        if (method == null) {
+            return NONE;
+        }
+        try {
+            Method parsed = Method.valueOf(method.trim().toUpperCase(Locale.ROOT));
+            return parsed == Method.NONE ? NONE : new PointDownsampler(parsed, size);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown downsampling method: " + method, e);
+        }
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+
+    public double getSize() {
+        return size;
+    }
+
+    /**
+     * @return The kept points of {@code record} as (x, y) cloud points.
+     */
+    public List<CloudPoint> downsample(StampedCloudPoints record) {
+        switch (method) {
+            case VOXEL:
+                return voxel(record);
+            case DISTANCE:
+                return distance(record);
+            default:
+                return record.getCloudPoints();
+        }
+    }
+
+    private List<CloudPoint> voxel(StampedCloudPoints record) {
+        List<CloudPoint> kept = new ArrayList<>();
+        Set<Long> occupied = new HashSet<>();
+        for (int i = 0; i < record.size(); i++) {
+            if (occupied.add(voxelKey(record.getX(i), record.getY(i), record.getZ(i)))) {
+                kept.add(new CloudPoint(record.getX(i), record.getY(i)));
+            }
+        }
+        return kept;
+    }
+
+    private List<CloudPoint> distance(StampedCloudPoints record) {
+        List<CloudPoint> kept = new ArrayList<>();
+        double minSquared = size * size;
+        double lastX = 0;
+        double lastY = 0;
+        double lastZ = 0;
+        for (int i = 0; i < record.size(); i++) {
+            double dx = record.getX(i) - lastX;
+            double dy = record.getY(i) - lastY;
+            double dz = record.getZ(i) - lastZ;
+            if (kept.isEmpty() || dx * dx + dy * dy + dz * dz >= minSquared) {
+                kept.add(new CloudPoint(record.getX(i), record.getY(i)));
+                lastX = record.getX(i);
+                lastY = record.getY(i);
+                lastZ = record.getZ(i);
+            }
+        }
+        return kept;
+    }
+
+    // Packs the three cell indices into 21 bits each; the grid wraps beyond +-2^20 cells,
+    // which only merges cells that are millions of voxels apart.
+    private long voxelKey(double x, double y, double z) {
+        long cx = (long) Math.floor(x / size) & 0x1FFFFF;
+        long cy = (long) Math.floor(y / size) & 0x1FFFFF;
+        long cz = (long) Math.floor(z / size) & 0x1FFFFF;
+        return (cx << 42) | (cy << 21) | cz;
+    }
+}
@@ -0,0 +1,133 @@
+package bgu.spl.mics.application.objects;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A single-writer, multi-reader ring of the most recent poses, shared between the
+ * PoseService (the writer) and FusionSlam (a reader) instead of sending a PoseEvent per tick.
+ * <p>
+ * The pose of tick {@code t} lives in slot {@code t & mask}. Slots are elements of an
+ * {@link AtomicReferenceArray}, so a reader that sees a pose also sees the fields it was built with.
+ * The writer stores the pose first and only then advances the volatile {@code latestTick}, so a
+ * reader that sees {@code latestTick >= t} will find the pose of {@code t} in its slot, unless the
+ * writer has since gone a whole ring further. Readers detect that case by checking the pose's time
+ * and report the pose as lost.
+ * </p>
+ * <p>
+ * Neither side takes a lock on the normal path. A reader that needs a tick which has not been
+ * published yet can block in {@link #awaitTick(int, long)}; the writer only touches the lock
+ * when some reader is actually waiting.
+ * </p>
+ */
+public class PoseChannel {
+    private final AtomicReferenceArray<Pose> slots;
+    private final int mask;
+    private volatile int latestTick = -1;
+    private volatile boolean closed = false;
+    private volatile int waiters = 0;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition published = lock.newCondition();
+
+    /**
+     * @param capacity The number of poses kept; rounded up to a power of two.
+     */
+    public PoseChannel(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Pose channel capacity must be positive: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * Publishes a pose. Must only be called from the single writer thread, with increasing times.
+     */
+    public void publish(Pose pose) {
+        int time = pose.getTime();
+        if (time <= latestTick) {
+            throw new IllegalArgumentException("Pose times must increase: " + time + " after " + latestTick);
+        }
+        slots.set(time & mask, pose);
+        latestTick = time;
+        if (waiters > 0) {
+            signalAll();
+        }
+    }
+
+    /**
+     * Marks the end of the stream and wakes every waiting reader.
+     */
+    public void close() {
+        closed = true;
+        signalAll();
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * @return The time of the most recently published pose, or -1 before the first one.
+     */
+    public int getLatestTick() {
+        return latestTick;
+    }
+
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Returns the pose of {@code time} without blocking.
+     *
+     * @return The pose, or null if it was not published yet, was never published, or was overwritten.
+     */
+    public Pose get(int time) {
+        if (time < 0 || time > latestTick) {
+            return null;
+        }
+        Pose pose = slots.get(time & mask);
+        return pose != null && pose.getTime() == time ? pose : null;
+    }
+
+    /**
+     * Blocks until the pose of {@code time} is published, the channel is closed, or the timeout passes.
+     *
+     * @return The pose, or null if it did not arrive in time or was overwritten.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    public Pose awaitTick(int time, long timeoutMillis) throws InterruptedException {
+        if (latestTick >= time || closed) {
+            return get(time);
+        }
+        long remaining = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        lock.lock();
+        try {
+            waiters++;
+            // re-checked under the lock, so a publish between the check and the wait is not missed
+            while (latestTick < time && !closed && remaining > 0) {
+                remaining = published.awaitNanos(remaining);
+            }
+        } finally {
+            waiters--;
+            lock.unlock();
+        }
+        return get(time);
+    }
+
+    private void signalAll() {
+        lock.lock();
+        try {
+            published.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,598 @@
+package bgu.spl.mics.application.objects;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A 2D pose graph that corrects the GPSIMU poses with landmark observations.
+ * <p>
+ * Nodes are the robot's poses (x, y, yaw) and the landmarks (x, y). Every pose has a weak prior
+ * at its GPSIMU value and an odometry edge to the previous pose, with the relative motion between
+ * the two GPSIMU poses as measurement. Every tracked object adds an edge from the pose that saw it
+ * to its landmark, with the centroid of its points in the robot's frame as measurement. When a
+ * landmark is seen again after a while, its edges pull the current poses back towards the place
+ * it was first seen, which removes drift.
+ * </p>
+ * <p>
+ * To keep the time per optimization bounded, only the last {@code windowSize} poses are variables.
+ * When a pose leaves the window it is fixed, and its observations, which are now linear in the
+ * landmark position, are folded into a prior on the landmark. Every optimization runs a few
+ * Gauss-Newton iterations over the window poses and the landmarks they saw. The unknowns are
+ * ordered by time, each landmark right after the last pose that saw it, which keeps the fill of
+ * the {@link SparseCholesky} factor close to the band of poses and the landmarks seen together.
+ * New poses are placed relative to the latest estimate, so a correction carries forward.
+ * Not thread safe.
+ * </p>
+ */
+public class PoseGraph {
+    public static final int DEFAULT_WINDOW_SIZE = 200;
+
+    private static final int MAX_ITERATIONS = 5;
+    private static final double CONVERGED = 1e-10; // squared length of a Gauss-Newton step
+    // information (1 / variance) of the measurements
+    private static final double PRIOR_WEIGHT = 0.01; // GPSIMU position, sigma 10 m
+    private static final double PRIOR_YAW_WEIGHT = 1; // GPSIMU yaw, sigma 1 rad
+    private static final double ODOMETRY_WEIGHT = 100; // relative motion, sigma 0.1 m
+    private static final double ODOMETRY_YAW_WEIGHT = 1000; // relative turn, sigma ~1.8 degrees
+    private static final double LANDMARK_WEIGHT = 25; // observed centroid, sigma 0.2 m
+
+    private final int windowSize;
+    // every pose ever added, indexed by tick: GPSIMU measurement and current estimate (yaw in radians)
+    private double[] measuredX = new double[64];
+    private double[] measuredY = new double[64];
+    private double[] measuredYaw = new double[64];
+    private double[] estimateX = new double[64];
+    private double[] estimateY = new double[64];
+    private double[] estimateYaw = new double[64];
+    private boolean[] present = new boolean[64];
+    private int latestTick = -1;
+    private int anchorTick = -1; // the latest pose that left the window, or -1
+
+    private final ArrayDeque<WindowPose> window = new ArrayDeque<>();
+    private final Map<Integer, WindowPose> windowByTick = new HashMap<>();
+    private final Map<String, Node> landMarks = new HashMap<>();
+
+    private int optimizations = 0;
+    private int lastIterations = 0;
+    private double lastInitialError = 0;
+    private double lastFinalError = 0;
+    private long lastNanos = 0;
+    private long maxNanos = 0;
+
+    public PoseGraph(int windowSize) {
+        if (windowSize < 2) {
+            throw new IllegalArgumentException("Window size must be at least 2: " + windowSize);
+        }
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * Adds a GPSIMU pose. Poses must come in increasing time order; older ones are ignored.
+     *
+     * @return true if the pose was added.
+     */
+    public boolean addPose(Pose pose) {
+        int tick = pose.getTime();
+        if (tick <= latestTick || tick < 0) {
+            return false;
+        }
+        ensureCapacity(tick + 1);
+        measuredX[tick] = pose.getX();
+        measuredY[tick] = pose.getY();
+        measuredYaw[tick] = Math.toRadians(pose.getYaw());
+        if (latestTick < 0) {
+            estimateX[tick] = measuredX[tick];
+            estimateY[tick] = measuredY[tick];
+            estimateYaw[tick] = measuredYaw[tick];
+        } else {
+            // the measured motion since the previous pose, applied to the previous estimate
+            int previous = latestTick;
+            double[] motion = relativeMotion(previous, tick);
+            double c = Math.cos(estimateYaw[previous]);
+            double s = Math.sin(estimateYaw[previous]);
+            estimateX[tick] = estimateX[previous] + c * motion[0] - s * motion[1];
+            estimateY[tick] = estimateY[previous] + s * motion[0] + c * motion[1];
+            estimateYaw[tick] = normalize(estimateYaw[previous] + motion[2]);
+        }
+        present[tick] = true;
+        latestTick = tick;
+
+        WindowPose entry = new WindowPose(tick);
+        window.addLast(entry);
+        windowByTick.put(tick, entry);
+        if (window.size() > windowSize) {
+            retire(window.removeFirst());
+        }
+        return true;
+    }
+
+    /**
+     * Adds an observation of landmark {@code id} at (localX, localY) in the frame of the pose at {@code time}.
+     *
+     * @return true if this closes a loop: the landmark was seen before, by a pose that has left the
+     *         window, and not during the last {@code windowSize} ticks.
+     */
+    public boolean addObservation(int time, String id, double localX, double localY) {
+        WindowPose pose = windowByTick.get(time);
+        if (pose == null || id == null) {
+            return false;
+        }
+        boolean loopClosure = false;
+        Node landMark = landMarks.get(id);
+        if (landMark == null) {
+            landMark = new Node();
+            double c = Math.cos(estimateYaw[time]);
+            double s = Math.sin(estimateYaw[time]);
+            landMark.x = estimateX[time] + c * localX - s * localY;
+            landMark.y = estimateY[time] + s * localX + c * localY;
+            landMarks.put(id, landMark);
+        } else if (landMark.priorWeight > 0 && time - landMark.lastSeen >= windowSize) {
+            loopClosure = true;
+        }
+        landMark.lastSeen = Math.max(landMark.lastSeen, time);
+        pose.observations.add(new Observation(landMark, localX, localY));
+        return loopClosure;
+    }
+
+    /**
+     * Adds an observation per tracked object at the centroid of its points.
+     *
+     * @return true if any of them closes a loop.
+     */
+    public boolean addObservations(int time, List<TrackedObject> trackedObjects) {
+        boolean loopClosure = false;
+        for (TrackedObject object : trackedObjects) {
+            List<CloudPoint> points = object.getCoordinates();
+            if (points.isEmpty()) {
+                continue;
+            }
+            double x = 0;
+            double y = 0;
+            for (CloudPoint point : points) {
+                x += point.getX();
+                y += point.getY();
+            }
+            loopClosure |= addObservation(time, object.getId(), x / points.size(), y / points.size());
+        }
+        return loopClosure;
+    }
+
+    /**
+     * @return true if a pose was added for exactly this tick.
+     */
+    public boolean contains(int time) {
+        return time >= 0 && time < present.length && present[time];
+    }
+
+    /**
+     * @return The optimized frame of the pose at {@code time}, or null if there is none.
+     */
+    public PoseTrajectory.Frame frameAt(int time) {
+        if (!contains(time)) {
+            return null;
+        }
+        return new PoseTrajectory.Frame(estimateX[time], estimateY[time],
+                Math.cos(estimateYaw[time]), Math.sin(estimateYaw[time]));
+    }
+
+    /**
+     * @return The optimized pose at {@code time}, with yaw in degrees, or null.
+     */
+    public Pose getEstimate(int time) {
+        if (!contains(time)) {
+            return null;
+        }
+        return new Pose((float) estimateX[time], (float) estimateY[time],
+                (float) Math.toDegrees(estimateYaw[time]), time);
+    }
+
+    /**
+     * @return The optimized position of the landmark as {x, y}, or null.
+     */
+    public double[] getLandMarkEstimate(String id) {
+        Node node = landMarks.get(id);
+        return node == null ? null : new double[] {node.x, node.y};
+    }
+
+    public int getWindowPoseCount() {
+        return window.size();
+    }
+
+    public int getOptimizations() {
+        return optimizations;
+    }
+
+    public int getLastIterations() {
+        return lastIterations;
+    }
+
+    /**
+     * @return The weighted squared error of the window before the last optimization.
+     */
+    public double getLastInitialError() {
+        return lastInitialError;
+    }
+
+    /**
+     * @return The weighted squared error of the window after the last optimization.
+     */
+    public double getLastFinalError() {
+        return lastFinalError;
+    }
+
+    public long getLastNanos() {
+        return lastNanos;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    /**
+     * Runs Gauss-Newton over the window until the step is negligible or the iteration limit.
+     */
+    public void optimize() {
+        if (window.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        Problem problem = new Problem();
+        lastIterations = 0;
+        lastInitialError = -1;
+        for (int iteration = 0; iteration < MAX_ITERATIONS; iteration++) {
+            double error = problem.linearize();
+            if (lastInitialError < 0) {
+                lastInitialError = error;
+            }
+            double[] step = problem.solve();
+            problem.apply(step);
+            lastIterations++;
+            double length = 0;
+            for (double value : step) {
+                length += value * value;
+            }
+            if (length < CONVERGED) {
+                break;
+            }
+        }
+        lastFinalError = problem.linearize();
+        optimizations++;
+        lastNanos = System.nanoTime() - start;
+        maxNanos = Math.max(maxNanos, lastNanos);
+    }
+
+    /**
+     * Fixes a pose that leaves the window and moves its observations into the landmarks' priors.
+     */
+    private void retire(WindowPose pose) {
+        windowByTick.remove(pose.tick);
+        anchorTick = pose.tick;
+        double c = Math.cos(estimateYaw[pose.tick]);
+        double s = Math.sin(estimateYaw[pose.tick]);
+        for (Observation observation : pose.observations) {
+            // With the pose fixed, the observation says the landmark is at this global point, with
+            // the same (isotropic) weight.
+            double gx = estimateX[pose.tick] + c * observation.x - s * observation.y;
+            double gy = estimateY[pose.tick] + s * observation.x + c * observation.y;
+            Node landMark = observation.landMark;
+            landMark.priorWeight += LANDMARK_WEIGHT;
+            landMark.priorSumX += LANDMARK_WEIGHT * gx;
+            landMark.priorSumY += LANDMARK_WEIGHT * gy;
+        }
+    }
+
+    /**
+     * @return The motion from the GPSIMU pose at {@code from} to the one at {@code to}, in the frame of {@code from}.
+     */
+    private double[] relativeMotion(int from, int to) {
+        double c = Math.cos(measuredYaw[from]);
+        double s = Math.sin(measuredYaw[from]);
+        double dx = measuredX[to] - measuredX[from];
+        double dy = measuredY[to] - measuredY[from];
+        return new double[] {c * dx + s * dy, -s * dx + c * dy, normalize(measuredYaw[to] - measuredYaw[from])};
+    }
+
+    private static double normalize(double angle) {
+        return angle - 2 * Math.PI * Math.floor((angle + Math.PI) / (2 * Math.PI));
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= present.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, present.length * 2);
+        measuredX = Arrays.copyOf(measuredX, newCapacity);
+        measuredY = Arrays.copyOf(measuredY, newCapacity);
+        measuredYaw = Arrays.copyOf(measuredYaw, newCapacity);
+        estimateX = Arrays.copyOf(estimateX, newCapacity);
+        estimateY = Arrays.copyOf(estimateY, newCapacity);
+        estimateYaw = Arrays.copyOf(estimateYaw, newCapacity);
+        present = Arrays.copyOf(present, newCapacity);
+    }
+
+    private static class Node {
+        double x;
+        double y;
+        int lastSeen; // tick of the latest observation
+        // prior from the observations of poses that left the window
+        double priorWeight;
+        double priorSumX;
+        double priorSumY;
+    }
+
+    private static class Observation {
+        final Node landMark;
+        final double x;
+        final double y;
+
+        Observation(Node landMark, double x, double y) {
+            this.landMark = landMark;
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    private static class WindowPose {
+        final int tick;
+        final List<Observation> observations = new ArrayList<>();
+
+        WindowPose(int tick) {
+            this.tick = tick;
+        }
+    }
+
+    /**
+     * The normal equations of the window: the unknowns in elimination order, and H and b of the
+     * current linearization. H is kept as dense blocks, listed per column unknown.
+     */
+    private class Problem {
+        final int[] poseTicks; // window poses, oldest first
+        final int[] poseVar;
+        final List<Node> nodes = new ArrayList<>();
+        final Map<Node, Integer> nodeVar = new IdentityHashMap<>();
+        final int[] offset; // of every unknown in x
+        final int[] dimension; // 3 for a pose, 2 for a landmark
+        final int size;
+        final List<List<Block>> columns = new ArrayList<>(); // blocks H(row, col) with row <= col
+        double[] gradient;
+
+        Problem() {
+            poseTicks = new int[window.size()];
+            poseVar = new int[window.size()];
+            Map<Node, Integer> lastSeen = new IdentityHashMap<>();
+            int w = 0;
+            for (WindowPose pose : window) {
+                poseTicks[w] = pose.tick;
+                for (Observation observation : pose.observations) {
+                    lastSeen.put(observation.landMark, w);
+                }
+                w++;
+            }
+            int vars = poseTicks.length + lastSeen.size();
+            offset = new int[vars];
+            dimension = new int[vars];
+            int var = 0;
+            int next = 0;
+            w = 0;
+            for (WindowPose pose : window) {
+                poseVar[w] = var;
+                offset[var] = next;
+                dimension[var] = 3;
+                next += 3;
+                var++;
+                for (Observation observation : pose.observations) {
+                    Node node = observation.landMark;
+                    if (lastSeen.get(node) == w && !nodeVar.containsKey(node)) {
+                        nodes.add(node);
+                        nodeVar.put(node, var);
+                        offset[var] = next;
+                        dimension[var] = 2;
+                        next += 2;
+                        var++;
+                    }
+                }
+                w++;
+            }
+            size = next;
+            for (int i = 0; i < vars; i++) {
+                columns.add(new ArrayList<>());
+            }
+        }
+
+        /**
+         * Builds H and b at the current estimate.
+         *
+         * @return The weighted squared error.
+         */
+        double linearize() {
+            for (List<Block> column : columns) {
+                column.clear();
+            }
+            gradient = new double[size];
+            double error = 0;
+            double[] priorOmega = {PRIOR_WEIGHT, PRIOR_WEIGHT, PRIOR_YAW_WEIGHT};
+            double[] odometryOmega = {ODOMETRY_WEIGHT, ODOMETRY_WEIGHT, ODOMETRY_YAW_WEIGHT};
+            double[] landMarkOmega = {LANDMARK_WEIGHT, LANDMARK_WEIGHT};
+            double[] identity3 = {1, 0, 0, 0, 1, 0, 0, 0, 1};
+            double[] identity2 = {1, 0, 0, 1};
+
+            for (int w = 0; w < poseTicks.length; w++) {
+                int t = poseTicks[w];
+                double[] e = {estimateX[t] - measuredX[t], estimateY[t] - measuredY[t],
+                        normalize(estimateYaw[t] - measuredYaw[t])};
+                error += addEdge(e, priorOmega, poseVar[w], identity3, -1, null);
+
+                int previous = w > 0 ? poseTicks[w - 1] : anchorTick;
+                if (previous >= 0) {
+                    double[] z = relativeMotion(previous, t);
+                    double c = Math.cos(estimateYaw[previous]);
+                    double s = Math.sin(estimateYaw[previous]);
+                    double dx = estimateX[t] - estimateX[previous];
+                    double dy = estimateY[t] - estimateY[previous];
+                    double[] odometry = {c * dx + s * dy - z[0], -s * dx + c * dy - z[1],
+                            normalize(estimateYaw[t] - estimateYaw[previous] - z[2])};
+                    double[] from = {-c, -s, -s * dx + c * dy, s, -c, -c * dx - s * dy, 0, 0, -1};
+                    double[] to = {c, s, 0, -s, c, 0, 0, 0, 1};
+                    error += addEdge(odometry, odometryOmega, w > 0 ? poseVar[w - 1] : -1, from, poseVar[w], to);
+                }
+
+                double c = Math.cos(estimateYaw[t]);
+                double s = Math.sin(estimateYaw[t]);
+                for (Observation observation : windowByTick.get(t).observations) {
+                    Node node = observation.landMark;
+                    double dx = node.x - estimateX[t];
+                    double dy = node.y - estimateY[t];
+                    double[] e2 = {c * dx + s * dy - observation.x, -s * dx + c * dy - observation.y};
+                    double[] poseJacobian = {-c, -s, -s * dx + c * dy, s, -c, -c * dx - s * dy};
+                    double[] landMarkJacobian = {c, s, -s, c};
+                    error += addEdge(e2, landMarkOmega, poseVar[w], poseJacobian,
+                            nodeVar.get(node), landMarkJacobian);
+                }
+            }
+            for (Node node : nodes) {
+                if (node.priorWeight > 0) {
+                    double[] e = {node.x - node.priorSumX / node.priorWeight, node.y - node.priorSumY / node.priorWeight};
+                    error += addEdge(e, new double[] {node.priorWeight, node.priorWeight},
+                            nodeVar.get(node), identity2, -1, null);
+                }
+            }
+            return error;
+        }
+
+        /**
+         * Adds an edge with error e, diagonal information omega and the Jacobians of up to two
+         * unknowns a and b (-1 for a fixed one), each row-major with e.length rows.
+         *
+         * @return The weighted squared error of the edge.
+         */
+        double addEdge(double[] e, double[] omega, int a, double[] ja, int b, double[] jb) {
+            double error = 0;
+            for (int r = 0; r < e.length; r++) {
+                error += omega[r] * e[r] * e[r];
+            }
+            if (a >= 0) {
+                addGradient(e, omega, a, ja);
+                addBlock(omega, a, ja, a, ja);
+            }
+            if (b >= 0) {
+                addGradient(e, omega, b, jb);
+                addBlock(omega, b, jb, b, jb);
+            }
+            if (a >= 0 && b >= 0) {
+                if (a < b) {
+                    addBlock(omega, a, ja, b, jb);
+                } else {
+                    addBlock(omega, b, jb, a, ja);
+                }
+            }
+            return error;
+        }
+
+        void addGradient(double[] e, double[] omega, int var, double[] j) {
+            int columns = j.length / e.length;
+            for (int col = 0; col < columns; col++) {
+                double sum = 0;
+                for (int r = 0; r < e.length; r++) {
+                    sum += j[r * columns + col] * omega[r] * e[r];
+                }
+                gradient[offset[var] + col] -= sum;
+            }
+        }
+
+        /**
+         * H(row, col) += J_row^T omega J_col, for row <= col.
+         */
+        void addBlock(double[] omega, int row, double[] jr, int col, double[] jc) {
+            int rows = omega.length;
+            int dr = dimension[row];
+            int dc = dimension[col];
+            Block block = null;
+            for (Block candidate : columns.get(col)) { // a column has a few blocks at most
+                if (candidate.row == row) {
+                    block = candidate;
+                    break;
+                }
+            }
+            if (block == null) {
+                block = new Block(row, new double[dr * dc]);
+                columns.get(col).add(block);
+            }
+            for (int i = 0; i < dr; i++) {
+                for (int j = 0; j < dc; j++) {
+                    double sum = 0;
+                    for (int r = 0; r < rows; r++) {
+                        sum += jr[r * dr + i] * omega[r] * jc[r * dc + j];
+                    }
+                    block.values[i * dc + j] += sum;
+                }
+            }
+        }
+
+        /**
+         * @return The Gauss-Newton step, from the upper triangle of H in compressed sparse columns.
+         */
+        double[] solve() {
+            int[] colPtr = new int[size + 1];
+            for (int col = 0; col < columns.size(); col++) {
+                List<Block> column = columns.get(col);
+                column.sort(Comparator.comparingInt(block -> block.row));
+                int dc = dimension[col];
+                for (Block block : column) {
+                    for (int j = 0; j < dc; j++) {
+                        colPtr[offset[col] + j + 1] += block.row == col ? j + 1 : dimension[block.row];
+                    }
+                }
+            }
+            for (int j = 0; j < size; j++) {
+                colPtr[j + 1] += colPtr[j];
+            }
+            int[] rowIdx = new int[colPtr[size]];
+            double[] values = new double[colPtr[size]];
+            int p = 0;
+            for (int col = 0; col < columns.size(); col++) {
+                int dc = dimension[col];
+                for (int j = 0; j < dc; j++) {
+                    for (Block block : columns.get(col)) {
+                        int dr = dimension[block.row];
+                        for (int i = 0; i < dr && (block.row != col || i <= j); i++) {
+                            rowIdx[p] = offset[block.row] + i;
+                            values[p++] = block.values[i * dc + j];
+                        }
+                    }
+                }
+            }
+            return SparseCholesky.factor(size, colPtr, rowIdx, values).solve(gradient);
+        }
+
+        void apply(double[] step) {
+            for (int w = 0; w < poseTicks.length; w++) {
+                int t = poseTicks[w];
+                int o = offset[poseVar[w]];
+                estimateX[t] += step[o];
+                estimateY[t] += step[o + 1];
+                estimateYaw[t] = normalize(estimateYaw[t] + step[o + 2]);
+            }
+            for (Node node : nodes) {
+                int o = offset[nodeVar.get(node)];
+                node.x += step[o];
+                node.y += step[o + 1];
+            }
+        }
+    }
+
+    private static class Block {
+        final int row; // unknown
+        final double[] values; // row-major, dimension(row) x dimension(column)
+
+        Block(int row, double[] values) {
+            this.row = row;
+            this.values = values;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package bgu.spl.mics.application.objects;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Supplies the robot's recorded poses tick by tick.
+ * <p>
+ * Ticks are asked for in increasing order, which lets streaming sources forget the poses
+ * they have already handed out.
+ * </p>
+ */
+public interface PoseSource extends AutoCloseable {
+
+    /**
+     * @return The pose recorded at {@code tick}, or null if there is none.
+     */
+    Pose getPoseAtTick(int tick);
+
+    /**
+     * @return true if no pose is recorded after {@code tick}.
+     */
+    boolean isLastTick(int tick);
+
+    @Override
+    void close();
+
+    /**
+     * Opens a pose file, memory-mapping it if it is in the binary format and streaming it otherwise.
+     *
+     * @param lookahead How many poses a streaming source reads ahead of the simulation.
+     */
+    static PoseSource open(Path path, int lookahead) throws IOException {
+        if (BinaryPoseSource.isBinary(path)) {
+            return BinaryPoseSource.open(path);
+        }
+        return new StreamingPoseSource(path, lookahead);
+    }
+}
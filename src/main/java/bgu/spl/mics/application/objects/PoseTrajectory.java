@@ -0,0 +1,169 @@
+package bgu.spl.mics.application.objects;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The robot's poses, indexed directly by tick.
+ * <p>
+ * Each pose is stored in primitive arrays at the index of its time, together with the cosine and
+ * sine of its yaw, which are computed once when the pose is added. Looking a pose up is an array
+ * access, and moving a point into the global frame is four multiplications and four additions.
+ * When interpolation is enabled, a tick with no pose of its own gets one interpolated linearly
+ * between the nearest poses before and after it.
+ * </p>
+ */
+public class PoseTrajectory {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private float[] xs = new float[INITIAL_CAPACITY];
+    private float[] ys = new float[INITIAL_CAPACITY];
+    private float[] yaws = new float[INITIAL_CAPACITY];
+    private double[] coss = new double[INITIAL_CAPACITY];
+    private double[] sins = new double[INITIAL_CAPACITY];
+    private boolean[] present = new boolean[INITIAL_CAPACITY];
+    private final List<Pose> poses = new ArrayList<>(); // in arrival order, for the output file
+    private int firstTime = Integer.MAX_VALUE;
+    private int lastTime = -1;
+    private boolean interpolate;
+
+    public PoseTrajectory(boolean interpolate) {
+        this.interpolate = interpolate;
+    }
+
+    public void setInterpolate(boolean interpolate) {
+        this.interpolate = interpolate;
+    }
+
+    /**
+     * Stores {@code pose} at the index of its time, replacing any earlier pose for that tick.
+     */
+    public void add(Pose pose) {
+        int time = pose.getTime();
+        if (time < 0) {
+            throw new IllegalArgumentException("Pose time must not be negative: " + time);
+        }
+        ensureCapacity(time + 1);
+        double radYaw = Math.toRadians(pose.getYaw());
+        xs[time] = pose.getX();
+        ys[time] = pose.getY();
+        yaws[time] = pose.getYaw();
+        coss[time] = Math.cos(radYaw);
+        sins[time] = Math.sin(radYaw);
+        present[time] = true;
+        poses.add(pose);
+        firstTime = Math.min(firstTime, time);
+        lastTime = Math.max(lastTime, time);
+    }
+
+    /**
+     * @return true if a pose was recorded for exactly this tick.
+     */
+    public boolean contains(int time) {
+        return time >= 0 && time < present.length && present[time];
+    }
+
+    /**
+     * @return The pose recorded at this tick, or null.
+     */
+    public Pose getPose(int time) {
+        if (!contains(time)) {
+            return null;
+        }
+        return new Pose(xs[time], ys[time], yaws[time], time);
+    }
+
+    /**
+     * Returns the frame used to move points seen at {@code time} into the global frame.
+     *
+     * @return The recorded pose of that tick, an interpolated one if enabled and possible, or null.
+     */
+    public Frame frameAt(int time) {
+        if (contains(time)) {
+            return new Frame(xs[time], ys[time], coss[time], sins[time]);
+        }
+        if (!interpolate || time <= firstTime || time >= lastTime) {
+            return null;
+        }
+        int before = time - 1;
+        while (!present[before]) {
+            before--;
+        }
+        int after = time + 1;
+        while (!present[after]) {
+            after++;
+        }
+        double t = (double) (time - before) / (after - before);
+        double x = xs[before] + (xs[after] - xs[before]) * t;
+        double y = ys[before] + (ys[after] - ys[before]) * t;
+        double yawDelta = yaws[after] - yaws[before];
+        yawDelta -= 360 * Math.floor((yawDelta + 180) / 360); // take the shorter way around
+        double radYaw = Math.toRadians(yaws[before] + yawDelta * t);
+        return new Frame(x, y, Math.cos(radYaw), Math.sin(radYaw));
+    }
+
+    /**
+     * @return The poses in the order they were added.
+     */
+    public List<Pose> getPoses() {
+        return Collections.unmodifiableList(poses);
+    }
+
+    public int size() {
+        return poses.size();
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= present.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, present.length * 2);
+        xs = Arrays.copyOf(xs, newCapacity);
+        ys = Arrays.copyOf(ys, newCapacity);
+        yaws = Arrays.copyOf(yaws, newCapacity);
+        coss = Arrays.copyOf(coss, newCapacity);
+        sins = Arrays.copyOf(sins, newCapacity);
+        present = Arrays.copyOf(present, newCapacity);
+    }
+
+    /**
+     * A rigid 2D transform from the robot's frame at some tick to the global frame.
+     */
+    public static final class Frame {
+        private final double x;
+        private final double y;
+        private final double cos;
+        private final double sin;
+
+        Frame(double x, double y, double cos, double sin) {
+            this.x = x;
+            this.y = y;
+            this.cos = cos;
+            this.sin = sin;
+        }
+
+        /**
+         * @return The robot's global x position in this frame.
+         */
+        public double getX() {
+            return x;
+        }
+
+        /**
+         * @return The robot's global y position in this frame.
+         */
+        public double getY() {
+            return y;
+        }
+
+        public double toGlobalX(double localX, double localY) {
+            return cos * localX - sin * localY + x;
+        }
+
+        public double toGlobalY(double localX, double localY) {
+            return sin * localX + cos * localY + y;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package bgu.spl.mics.application.objects;
+
+import java.util.Arrays;
+
+/**
+ * Cholesky factorization A = L L<sup>T</sup> of a sparse symmetric positive definite matrix.
+ * <p>
+ * The matrix is given as its upper triangle in compressed sparse column form. The factorization
+ * is up-looking: the elimination tree of A gives, for every row k of L, the columns that row has
+ * entries in, so only nonzeros of L are ever computed. A first, symbolic pass over the same
+ * tree counts the entries of every column of L, so L is allocated once at its exact size.
+ * No fill-reducing ordering is applied; the caller orders the unknowns.
+ * </p>
+ */
+public class SparseCholesky {
+    private final int n;
+    private final int[] lp; // column pointers of L
+    private final int[] li; // row indices of L, the diagonal first in every column
+    private final double[] lx;
+
+    private SparseCholesky(int n, int[] lp, int[] li, double[] lx) {
+        this.n = n;
+        this.lp = lp;
+        this.li = li;
+        this.lx = lx;
+    }
+
+    /**
+     * Factors the n x n matrix whose upper triangle, diagonal included, is given in compressed
+     * sparse column form. Entries below the diagonal are ignored.
+     *
+     * @throws IllegalArgumentException If the matrix is not positive definite.
+     */
+    public static SparseCholesky factor(int n, int[] colPtr, int[] rowIdx, double[] values) {
+        int[] parent = eliminationTree(n, colPtr, rowIdx);
+        int[] stack = new int[n];
+        int[] marks = new int[n];
+        Arrays.fill(marks, -1);
+
+        // Symbolic pass: the pattern of row k of L is the part of the elimination tree reachable
+        // from the entries of column k of A.
+        int[] counts = new int[n];
+        for (int k = 0; k < n; k++) {
+            int top = reach(k, colPtr, rowIdx, parent, stack, marks);
+            for (int t = top; t < n; t++) {
+                counts[stack[t]]++;
+            }
+            counts[k]++; // the diagonal
+        }
+        int[] lp = new int[n + 1];
+        for (int k = 0; k < n; k++) {
+            lp[k + 1] = lp[k] + counts[k];
+        }
+        int[] li = new int[lp[n]];
+        double[] lx = new double[lp[n]];
+
+        // Numeric pass, one row of L at a time.
+        int[] next = new int[n];
+        System.arraycopy(lp, 0, next, 0, n);
+        double[] x = new double[n];
+        Arrays.fill(marks, -1);
+        for (int k = 0; k < n; k++) {
+            int top = reach(k, colPtr, rowIdx, parent, stack, marks);
+            x[k] = 0;
+            for (int p = colPtr[k]; p < colPtr[k + 1]; p++) {
+                if (rowIdx[p] <= k) {
+                    x[rowIdx[p]] += values[p];
+                }
+            }
+            double d = x[k];
+            x[k] = 0;
+            for (int t = top; t < n; t++) {
+                int i = stack[t];
+                double lki = x[i] / lx[lp[i]];
+                x[i] = 0;
+                for (int p = lp[i] + 1; p < next[i]; p++) {
+                    x[li[p]] -= lx[p] * lki;
+                }
+                d -= lki * lki;
+                int p = next[i]++;
+                li[p] = k;
+                lx[p] = lki;
+            }
+            if (!(d > 0)) {
+                throw new IllegalArgumentException("Matrix is not positive definite at column " + k);
+            }
+            int p = next[k]++;
+            li[p] = k;
+            lx[p] = Math.sqrt(d);
+        }
+        return new SparseCholesky(n, lp, li, lx);
+    }
+
+    /**
+     * @return The number of nonzeros in L.
+     */
+    public int getNonZeros() {
+        return lp[n];
+    }
+
+    /**
+     * Solves A x = b.
+     *
+     * @return x, in a new array.
+     */
+    public double[] solve(double[] b) {
+        double[] x = b.clone();
+        for (int j = 0; j < n; j++) { // L y = b
+            x[j] /= lx[lp[j]];
+            for (int p = lp[j] + 1; p < lp[j + 1]; p++) {
+                x[li[p]] -= lx[p] * x[j];
+            }
+        }
+        for (int j = n - 1; j >= 0; j--) { // L^T x = y
+            for (int p = lp[j] + 1; p < lp[j + 1]; p++) {
+                x[j] -= lx[p] * x[li[p]];
+            }
+            x[j] /= lx[lp[j]];
+        }
+        return x;
+    }
+
+    private static int[] eliminationTree(int n, int[] colPtr, int[] rowIdx) {
+        int[] parent = new int[n];
+        int[] ancestor = new int[n];
+        for (int k = 0; k < n; k++) {
+            parent[k] = -1;
+            ancestor[k] = -1;
+            for (int p = colPtr[k]; p < colPtr[k + 1]; p++) {
+                // Follow the path from i to the root of its subtree, compressing it to k on the way.
+                for (int i = rowIdx[p]; i != -1 && i < k; ) {
+                    int next = ancestor[i];
+                    ancestor[i] = k;
+                    if (next == -1) {
+                        parent[i] = k;
+                    }
+                    i = next;
+                }
+            }
+        }
+        return parent;
+    }
+
+    /**
+     * Finds the columns of row k of L, in topological order, in stack[top..n-1].
+     *
+     * @return top.
+     */
+    private static int reach(int k, int[] colPtr, int[] rowIdx, int[] parent, int[] stack, int[] marks) {
+        int top = stack.length;
+        marks[k] = k;
+        for (int p = colPtr[k]; p < colPtr[k + 1]; p++) {
+            int i = rowIdx[p];
+            if (i > k) {
+                continue;
+            }
+            int length = 0;
+            for (; marks[i] != k; i = parent[i]) {
+                stack[length++] = i; // the path, bottom up, at the start of the stack
+                marks[i] = k;
+            }
+            while (length > 0) {
+                stack[--top] = stack[--length]; // moved to the end, so ancestors come after descendants
+            }
+        }
+        return top;
+    }
+}
@@ -0,0 +1,226 @@
+package bgu.spl.mics.application.objects;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A uniform grid over axis-aligned bounding boxes, keyed by {@code K}.
+ * <p>
+ * Every box is listed in each cell it overlaps. Boxes that would cover more than
+ * {@code MAX_CELLS_PER_BOX} cells are kept in a separate list that every query checks, so one
+ * huge box cannot flood the grid. Distances are measured from the query point to the nearest
+ * point of a box, which is 0 inside it. Not thread safe.
+ * </p>
+ */
+public class SpatialGrid<K> {
+    private static final int MAX_CELLS_PER_BOX = 64;
+
+    private final double cellSize;
+    private final Map<Long, List<Box<K>>> cells = new HashMap<>();
+    private final Map<K, Box<K>> boxes = new HashMap<>();
+    private final List<Box<K>> oversized = new ArrayList<>();
+
+    public SpatialGrid(double cellSize) {
+        if (!(cellSize > 0)) {
+            throw new IllegalArgumentException("Cell size must be positive: " + cellSize);
+        }
+        this.cellSize = cellSize;
+    }
+
+    /**
+     * Inserts {@code key} with the given box, replacing its previous box if it had one.
+     */
+    public void put(K key, double minX, double minY, double maxX, double maxY) {
+        Box<K> old = boxes.get(key);
+        if (old != null) {
+            if (cellOf(old.minX) == cellOf(minX) && cellOf(old.minY) == cellOf(minY)
+                    && cellOf(old.maxX) == cellOf(maxX) && cellOf(old.maxY) == cellOf(maxY)) {
+                old.set(minX, minY, maxX, maxY); // same cells, only the bounds moved
+                return;
+            }
+            remove(key);
+        }
+        Box<K> box = new Box<>(key);
+        box.set(minX, minY, maxX, maxY);
+        boxes.put(key, box);
+        long cellCount = (cellOf(maxX) - cellOf(minX) + 1) * (cellOf(maxY) - cellOf(minY) + 1);
+        if (cellCount > MAX_CELLS_PER_BOX) {
+            oversized.add(box);
+            return;
+        }
+        for (long cx = cellOf(minX); cx <= cellOf(maxX); cx++) {
+            for (long cy = cellOf(minY); cy <= cellOf(maxY); cy++) {
+                cells.computeIfAbsent(cellKey(cx, cy), c -> new ArrayList<>()).add(box);
+            }
+        }
+    }
+
+    /**
+     * Removes {@code key} from the grid.
+     *
+     * @return true if it was present.
+     */
+    public boolean remove(K key) {
+        Box<K> box = boxes.remove(key);
+        if (box == null) {
+            return false;
+        }
+        if (oversized.remove(box)) {
+            return true;
+        }
+        for (long cx = cellOf(box.minX); cx <= cellOf(box.maxX); cx++) {
+            for (long cy = cellOf(box.minY); cy <= cellOf(box.maxY); cy++) {
+                long cell = cellKey(cx, cy);
+                List<Box<K>> list = cells.get(cell);
+                list.remove(box);
+                if (list.isEmpty()) {
+                    cells.remove(cell);
+                }
+            }
+        }
+        return true;
+    }
+
+    public int size() {
+        return boxes.size();
+    }
+
+    /**
+     * @return The keys whose box is within {@code radius} of (x, y), nearest first.
+     */
+    public List<K> withinRadius(double x, double y, double radius) {
+        List<Box<K>> found = new ArrayList<>();
+        Set<Box<K>> seen = new HashSet<>();
+        for (long cx = cellOf(x - radius); cx <= cellOf(x + radius); cx++) {
+            for (long cy = cellOf(y - radius); cy <= cellOf(y + radius); cy++) {
+                List<Box<K>> list = cells.get(cellKey(cx, cy));
+                if (list != null) {
+                    for (Box<K> box : list) {
+                        if (box.distance(x, y) <= radius && seen.add(box)) {
+                            found.add(box);
+                        }
+                    }
+                }
+            }
+        }
+        for (Box<K> box : oversized) {
+            if (box.distance(x, y) <= radius) {
+                found.add(box);
+            }
+        }
+        return sortedKeys(found, x, y, found.size());
+    }
+
+    /**
+     * @return Up to {@code k} keys whose boxes are nearest to (x, y), nearest first.
+     */
+    public List<K> nearest(double x, double y, int k) {
+        if (k <= 0 || boxes.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Box<K>> candidates = new ArrayList<>(oversized);
+        Set<Box<K>> seen = new HashSet<>(oversized);
+        long centerX = cellOf(x);
+        long centerY = cellOf(y);
+        int inCells = boxes.size() - oversized.size();
+        int found = 0;
+        // Search rings of cells around the point. Every box in ring r is at least (r - 1) cells away,
+        // so the search can stop once k boxes closer than that are known.
+        for (long ring = 0; found < inCells; ring++) {
+            if (candidates.size() >= k && kthDistance(candidates, x, y, k) <= (ring - 1) * cellSize) {
+                break;
+            }
+            if (ring == 0) {
+                found += collect(centerX, centerY, seen, candidates);
+                continue;
+            }
+            // Only the perimeter of the ring: its top and bottom rows, then its side columns without the corners
+            for (long cx = centerX - ring; cx <= centerX + ring; cx++) {
+                found += collect(cx, centerY - ring, seen, candidates);
+                found += collect(cx, centerY + ring, seen, candidates);
+            }
+            for (long cy = centerY - ring + 1; cy <= centerY + ring - 1; cy++) {
+                found += collect(centerX - ring, cy, seen, candidates);
+                found += collect(centerX + ring, cy, seen, candidates);
+            }
+        }
+        return sortedKeys(candidates, x, y, k);
+    }
+
+    /**
+     * Adds the boxes of cell (cx, cy) not seen yet to {@code candidates}.
+     *
+     * @return The number of boxes added.
+     */
+    private int collect(long cx, long cy, Set<Box<K>> seen, List<Box<K>> candidates) {
+        List<Box<K>> list = cells.get(cellKey(cx, cy));
+        if (list == null) {
+            return 0;
+        }
+        int added = 0;
+        for (Box<K> box : list) {
+            if (seen.add(box)) {
+                candidates.add(box);
+                added++;
+            }
+        }
+        return added;
+    }
+
+    private static <K> double kthDistance(List<Box<K>> boxes, double x, double y, int k) {
+        double[] distances = new double[boxes.size()];
+        for (int i = 0; i < distances.length; i++) {
+            distances[i] = boxes.get(i).distance(x, y);
+        }
+        Arrays.sort(distances);
+        return distances[k - 1];
+    }
+
+    private static <K> List<K> sortedKeys(List<Box<K>> boxes, double x, double y, int limit) {
+        boxes.sort(Comparator.comparingDouble(box -> box.distance(x, y)));
+        List<K> keys = new ArrayList<>(Math.min(limit, boxes.size()));
+        for (int i = 0; i < boxes.size() && i < limit; i++) {
+            keys.add(boxes.get(i).key);
+        }
+        return keys;
+    }
+
+    private long cellOf(double coordinate) {
+        return (long) Math.floor(coordinate / cellSize);
+    }
+
+    private static long cellKey(long cx, long cy) {
+        return (cx << 32) ^ (cy & 0xFFFFFFFFL);
+    }
+
+    private static class Box<K> {
+        final K key;
+        double minX;
+        double minY;
+        double maxX;
+        double maxY;
+
+        Box(K key) {
+            this.key = key;
+        }
+
+        void set(double minX, double minY, double maxX, double maxY) {
+            this.minX = minX;
+            this.minY = minY;
+            this.maxX = maxX;
+            this.maxY = maxY;
+        }
+
+        double distance(double x, double y) {
+            double dx = Math.max(0, Math.max(minX - x, x - maxX));
+            double dy = Math.max(0, Math.max(minY - y, y - maxY));
+            return Math.sqrt(dx * dx + dy * dy);
+        }
+    }
+}
@@ -6,33 +6,57 @@ import java.util.List;
 /**
  * Represents a group of cloud points corresponding to a specific timestamp.
  * Used by the LiDAR system to store and process point cloud data for tracked objects.
+ * This is a lightweight view over a record of {@link LiDarColumns}; the points themselves
+ * stay in the columnar arrays.
  */
 public class StampedCloudPoints {
-    private String id;
-    private int time;
-    private List<CloudPoint> cloudPoints;
+    private final LiDarColumns columns;
+    private final int record;
 
-    public StampedCloudPoints(String id, int time, List<CloudPoint> cloudPoints) {
-        this.id = id;
-        this.time = time;
-        this.cloudPoints = cloudPoints;
+    public StampedCloudPoints(LiDarColumns columns, int record) {
+        this.columns = columns;
+        this.record = record;
     }
 
     public String getId() {
-        return id;
+        return columns.getId(record);
     }
 
     public int getTime() {
-        return time;
+        return columns.getTime(record);
     }
 
-    public List<CloudPoint> getCloudPoints() {
-        return cloudPoints;
+    /**
+     * @return The number of points in this record.
+     */
+    public int size() {
+        return columns.getSize(record);
+    }
+
+    public double getX(int i) {
+        return columns.getX(columns.getStart(record) + i);
+    }
+
+    public double getY(int i) {
+        return columns.getY(columns.getStart(record) + i);
+    }
+
+    public double getZ(int i) {
+        return columns.getZ(columns.getStart(record) + i);
     }
 
-    public void addCloudPoint(CloudPoint cloudPoint) {
-        if (cloudPoint != null) {
-            cloudPoints.add(cloudPoint);
+    /**
+     * Materializes the points of this record as (x, y) {@link CloudPoint}s.
+     *
+     * @return A new list of cloud points.
+     */
+    public List<CloudPoint> getCloudPoints() {
+        int start = columns.getStart(record);
+        int size = columns.getSize(record);
+        List<CloudPoint> cloudPoints = new ArrayList<>(size);
+        for (int i = start; i < start + size; i++) {
+            cloudPoints.add(new CloudPoint(columns.getX(i), columns.getY(i)));
         }
+        return cloudPoints;
     }
 }
@@ -1,19 +1,33 @@
 package bgu.spl.mics.application.objects;
 
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.DoubleAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 /**
  * Holds statistical information about the system's operation.
  * This class aggregates metrics such as the runtime of the system,
  * the number of objects detected and tracked, and the number of landmarks identified.
+ * <p>
+ * The counters are {@link LongAdder}s: threads that update one at the same time add to separate
+ * cells, padded against false sharing, which are only summed when the counter is read. A
+ * {@link TickTimeSeries} keeps the per-tick counts of the last ticks.
+ * </p>
  */
 
 public class StatisticalFolder {
 
     // שדות הנתונים
-    private final AtomicInteger systemRuntime = new AtomicInteger(0); 
-    private final AtomicInteger numDetectedObjects = new AtomicInteger(0); 
-    private final AtomicInteger numTrackedObjects = new AtomicInteger(0); 
-    private final AtomicInteger numLandmarks = new AtomicInteger(0); 
+    private final LongAdder systemRuntime = new LongAdder();
+    private final LongAdder numDetectedObjects = new LongAdder();
+    private final LongAdder numTrackedObjects = new LongAdder();
+    private final LongAdder numLandmarks = new LongAdder();
+    private final LongAdder rawCloudPoints = new LongAdder();
+    private final LongAdder keptCloudPoints = new LongAdder();
+    private final LongAdder fusedCloudPoints = new LongAdder();
+    private final LongAdder fusionNanos = new LongAdder();
+    private final LongAdder simplifiedPoints = new LongAdder();
+    private final DoubleAccumulator simplificationError = new DoubleAccumulator(Math::max, 0);
+    private volatile int currentTick = 0;
+    private volatile TickTimeSeries timeSeries = new TickTimeSeries(TickTimeSeries.DEFAULT_CAPACITY);
 
     // Singleton
     private static class Holder {
@@ -27,35 +41,130 @@ public class StatisticalFolder {
     }
 
     public void incrementSystemRuntime() {
-        systemRuntime.incrementAndGet();
+        systemRuntime.increment();
     }
 
     public void addDetectedObjects(int count) {
-        numDetectedObjects.addAndGet(count);
+        numDetectedObjects.add(count);
     }
 
     public void addTrackedObjects(int count) {
-        numTrackedObjects.addAndGet(count);
+        numTrackedObjects.add(count);
     }
 
     public void addLandmarks(int count) {
-        numLandmarks.addAndGet(count);
+        numLandmarks.add(count);
+    }
+
+    /**
+     * Keeps the per-tick counts of the last {@code capacity} ticks, dropping those recorded so far.
+     */
+    public void setTimeSeriesCapacity(int capacity) {
+        timeSeries = new TickTimeSeries(capacity);
+    }
+
+    /**
+     * Records the detections, tracked objects and new landmarks counted since the previous call as
+     * the sample of {@code tick}. Called once per tick, by FusionSlamService.
+     */
+    public void recordTick(int tick) {
+        currentTick = tick;
+        timeSeries.record(tick, numDetectedObjects.sum(), numTrackedObjects.sum(), numLandmarks.sum());
+    }
+
+    /**
+     * @return The tick of the last {@link #recordTick(int)}.
+     */
+    public int getCurrentTick() {
+        return currentTick;
+    }
+
+    public long getFusionNanos() {
+        return fusionNanos.sum();
+    }
+
+    public TickTimeSeries getTimeSeries() {
+        return timeSeries;
+    }
+
+    /**
+     * Records how many cloud points a LiDAR read and how many survived downsampling.
+     */
+    public void addCloudPoints(int raw, int kept) {
+        rawCloudPoints.add(raw);
+        keptCloudPoints.add(kept);
+    }
+
+    /**
+     * Records the time FusionSlam spent transforming and merging {@code points} cloud points.
+     */
+    public void addFusionTime(long nanos, int points) {
+        fusionNanos.add(nanos);
+        fusedCloudPoints.add(points);
+    }
+
+    /**
+     * Records that simplification dropped {@code count} points of a landmark whose largest error is {@code error}.
+     */
+    public void addSimplifiedPoints(int count, double error) {
+        simplifiedPoints.add(count);
+        simplificationError.accumulate(error);
+    }
+
+    public long getSimplifiedPoints() {
+        return simplifiedPoints.sum();
+    }
+
+    /**
+     * @return The largest distance, in meters, from a dropped landmark point to the simplified line.
+     */
+    public double getSimplificationError() {
+        return simplificationError.get();
+    }
+
+    public long getRawCloudPoints() {
+        return rawCloudPoints.sum();
+    }
+
+    public long getKeptCloudPoints() {
+        return keptCloudPoints.sum();
+    }
+
+    /**
+     * @return The fraction of LiDAR points removed by downsampling, between 0 and 1.
+     */
+    public double getReductionRatio() {
+        long raw = rawCloudPoints.sum();
+        return raw == 0 ? 0 : 1 - (double) keptCloudPoints.sum() / raw;
+    }
+
+    /**
+     * Estimates the FusionSlam time saved by downsampling, from the measured cost per fused point.
+     *
+     * @return The estimated saving in nanoseconds.
+     */
+    public long getEstimatedFusionNanosSaved() {
+        long fused = fusedCloudPoints.sum();
+        if (fused == 0) {
+            return 0;
+        }
+        return (rawCloudPoints.sum() - keptCloudPoints.sum()) * fusionNanos.sum() / fused;
     }
 
     public int getSystemRuntime() {
-        return systemRuntime.get();
+        return systemRuntime.intValue();
     }
 
     public int getNumDetectedObjects() {
-        return numDetectedObjects.get();
+        return numDetectedObjects.intValue();
     }
 
     public int getNumTrackedObjects() {
-        return numTrackedObjects.get();
+        return numTrackedObjects.intValue();
     }
 
     public int getNumLandmarks() {
-        return numLandmarks.get();
+        return numLandmarks.intValue();
     }
 
     public void printStatistics() {
@@ -63,6 +172,24 @@ public class StatisticalFolder {
         System.out.println("Number of Detected Objects: " + getNumDetectedObjects());
         System.out.println("Number of Tracked Objects: " + getNumTrackedObjects());
         System.out.println("Number of Landmarks: " + getNumLandmarks());
+        printDownsamplingReport();
+        printSimplificationReport();
+    }
+
+    public void printDownsamplingReport() {
+        if (getRawCloudPoints() == getKeptCloudPoints()) {
+            return;
+        }
+        System.out.println(String.format("LiDAR downsampling: kept %d of %d cloud points (%.1f%% reduction), "
+                + "~%.3f ms of fusion time saved", getKeptCloudPoints(), getRawCloudPoints(),
+                getReductionRatio() * 100, getEstimatedFusionNanosSaved() / 1e6));
+    }
+
+    public void printSimplificationReport() {
+        if (getSimplifiedPoints() == 0) {
+            return;
+        }
+        System.out.println(String.format("Landmark simplification: dropped %d points, largest error %.4f m",
+                getSimplifiedPoints(), getSimplificationError()));
     }
 }
- 
\ No newline at end of file
@@ -0,0 +1,166 @@
+package bgu.spl.mics.application.objects;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import com.google.gson.stream.JsonReader;
+
+/**
+ * Reads pose_data.json incrementally on a background thread.
+ * <p>
+ * The reader thread parses one pose at a time with a streaming {@link JsonReader} and hands it
+ * over through a bounded queue, so the simulation can start after the first poses are read and
+ * memory stays within twice {@code lookahead} poses however long the trajectory is.
+ * </p>
+ * <p>
+ * The constructor waits for the first {@code lookahead} poses, so a file that is malformed from
+ * the start fails there. A file that breaks further on fails the call that reaches the break.
+ * </p>
+ */
+public class StreamingPoseSource implements PoseSource {
+    private static final Pose END = new Pose(0, 0, 0, Integer.MIN_VALUE);
+
+    private final Path path;
+    private final BlockingQueue<Pose> queue;
+    private final ArrayDeque<Pose> pending = new ArrayDeque<>(); // taken from the queue, not handed out yet
+    private final Thread reader;
+    private volatile Exception failure;
+    private volatile boolean closed = false;
+    private boolean ended = false;
+
+    /**
+     * @param lookahead How many poses may be read ahead of the simulation.
+     * @throws IOException If the file is not readable or its first poses cannot be parsed.
+     */
+    public StreamingPoseSource(Path path, int lookahead) throws IOException {
+        if (!Files.isReadable(path)) {
+            throw new IOException("Pose file not readable: " + path);
+        }
+        this.path = path;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, lookahead));
+        this.reader = new Thread(this::readLoop, "PoseReader");
+        reader.setDaemon(true);
+        reader.start();
+        try {
+            for (int read = 0; read < lookahead && fill(); read++) {
+                // the first poses wait in pending
+            }
+        } catch (RuntimeException e) {
+            close();
+            throw new IOException("Invalid pose data in " + path, e.getCause());
+        }
+    }
+
+    @Override
+    public Pose getPoseAtTick(int tick) {
+        while (true) {
+            while (!pending.isEmpty() && pending.peekFirst().getTime() < tick) {
+                pending.pollFirst();
+            }
+            if (!pending.isEmpty()) {
+                return pending.peekFirst().getTime() == tick ? pending.peekFirst() : null;
+            }
+            if (!fill()) {
+                return null;
+            }
+        }
+    }
+
+    @Override
+    public boolean isLastTick(int tick) {
+        // look ahead until a later pose shows up or the file ends
+        while (pending.isEmpty() || pending.peekLast().getTime() <= tick) {
+            if (!fill()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        reader.interrupt();
+    }
+
+    /**
+     * Moves the next pose from the reader thread into {@code pending}.
+     *
+     * @return false at the end of the file.
+     * @throws RuntimeException If the reader thread failed to parse the file.
+     */
+    private boolean fill() {
+        if (ended) {
+            return false;
+        }
+        Pose pose;
+        try {
+            pose = queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        if (pose == END) {
+            ended = true;
+            if (failure != null) {
+                throw new RuntimeException("Failed to load pose list from file: " + path, failure);
+            }
+            return false;
+        }
+        pending.addLast(pose);
+        return true;
+    }
+
+    private void readLoop() {
+        try (Reader file = Files.newBufferedReader(path, StandardCharsets.UTF_8);
+             JsonReader json = new JsonReader(file)) {
+            json.beginArray();
+            while (json.hasNext() && !closed) {
+                queue.put(readPose(json));
+            }
+        } catch (InterruptedException e) {
+            return; // closed
+        } catch (IOException | RuntimeException e) {
+            failure = e;
+        }
+        try {
+            queue.put(END);
+        } catch (InterruptedException e) {
+            // closed while the consumer was not reading
+        }
+    }
+
+    static Pose readPose(JsonReader json) throws IOException {
+        int time = 0;
+        float x = 0;
+        float y = 0;
+        float yaw = 0;
+        json.beginObject();
+        while (json.hasNext()) {
+            switch (json.nextName()) {
+                case "time":
+                    time = json.nextInt();
+                    break;
+                case "x":
+                    x = (float) json.nextDouble();
+                    break;
+                case "y":
+                    y = (float) json.nextDouble();
+                    break;
+                case "yaw":
+                    yaw = (float) json.nextDouble();
+                    break;
+                default:
+                    json.skipValue();
+            }
+        }
+        json.endObject();
+        return new Pose(x, y, yaw, time);
+    }
+}
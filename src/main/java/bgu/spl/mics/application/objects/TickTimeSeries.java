@@ -0,0 +1,106 @@
+package bgu.spl.mics.application.objects;
+
+/**
+ * The number of detections, tracked objects and new landmarks of every tick, for the last
+ * {@code capacity} ticks.
+ * <p>
+ * Samples are kept in parallel primitive arrays used as a ring buffer, so recording a tick
+ * allocates nothing and the memory does not grow with the length of the run. A sample is the
+ * difference between the running totals at the end of its tick and at the previous sample.
+ * </p>
+ */
+public class TickTimeSeries {
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    private final int[] ticks;
+    private final long[] detectedObjects;
+    private final long[] trackedObjects;
+    private final long[] landMarks;
+    private int next = 0; // where the next sample goes
+    private int count = 0;
+    private long lastDetected;
+    private long lastTracked;
+    private long lastLandMarks;
+
+    public TickTimeSeries(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Time series capacity must be at least 1: " + capacity);
+        }
+        ticks = new int[capacity];
+        detectedObjects = new long[capacity];
+        trackedObjects = new long[capacity];
+        landMarks = new long[capacity];
+    }
+
+    public int getCapacity() {
+        return ticks.length;
+    }
+
+    /**
+     * Records the sample of {@code tick} from the running totals, overwriting the oldest when full.
+     */
+    public synchronized void record(int tick, long detectedTotal, long trackedTotal, long landMarksTotal) {
+        ticks[next] = tick;
+        detectedObjects[next] = detectedTotal - lastDetected;
+        trackedObjects[next] = trackedTotal - lastTracked;
+        landMarks[next] = landMarksTotal - lastLandMarks;
+        lastDetected = detectedTotal;
+        lastTracked = trackedTotal;
+        lastLandMarks = landMarksTotal;
+        next = (next + 1) % ticks.length;
+        count = Math.min(count + 1, ticks.length);
+    }
+
+    /**
+     * @return A copy of the samples, oldest first.
+     */
+    public synchronized Samples getSamples() {
+        Samples samples = new Samples(count);
+        int first = (next - count + ticks.length) % ticks.length;
+        for (int i = 0; i < count; i++) {
+            int slot = (first + i) % ticks.length;
+            samples.ticks[i] = ticks[slot];
+            samples.detectedObjects[i] = detectedObjects[slot];
+            samples.trackedObjects[i] = trackedObjects[slot];
+            samples.landMarks[i] = landMarks[slot];
+        }
+        return samples;
+    }
+
+    /**
+     * The samples at one moment, oldest first, as parallel arrays.
+     */
+    public static final class Samples {
+        private final int[] ticks;
+        private final long[] detectedObjects;
+        private final long[] trackedObjects;
+        private final long[] landMarks;
+
+        private Samples(int count) {
+            ticks = new int[count];
+            detectedObjects = new long[count];
+            trackedObjects = new long[count];
+            landMarks = new long[count];
+        }
+
+        public int size() {
+            return ticks.length;
+        }
+
+        public int getTick(int index) {
+            return ticks[index];
+        }
+
+        public long getDetectedObjects(int index) {
+            return detectedObjects[index];
+        }
+
+        public long getTrackedObjects(int index) {
+            return trackedObjects[index];
+        }
+
+        public long getLandMarks(int index) {
+            return landMarks[index];
+        }
+    }
+}
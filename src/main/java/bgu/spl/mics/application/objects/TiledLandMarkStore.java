@@ -0,0 +1,277 @@
+package bgu.spl.mics.application.objects;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A landmark store that keeps only some of the map on the heap.
+ * <p>
+ * Landmarks are partitioned into square tiles by the center of their bounding box when they are
+ * added, and stay in that tile. At most {@code maxResidentTiles} tiles are kept in memory, in
+ * least-recently-used order; a tile that is evicted is written to its own memory-mapped file in
+ * {@code directory} if it changed since it was last written, and read back on the next access.
+ * The ids, the tile of every id, the insertion order and the spatial index stay in memory.
+ * </p>
+ * <p>
+ * Nothing is evicted during a fusion batch, so the engine can hold on to the landmarks it looked
+ * up; the tiles over the limit are evicted when the batch ends. {@link #asList()} is a view that loads tiles as it is read,
+ * so the output can be written without holding the whole map. Not thread safe.
+ * </p>
+ */
+public class TiledLandMarkStore extends LandMarkStore implements AutoCloseable {
+    public static final int DEFAULT_MAX_RESIDENT_TILES = 64;
+
+    private static final int MAGIC = 0x3154414D; // "MAT1"
+
+    private final Path directory;
+    private final double tileSize;
+    private final int maxResidentTiles;
+    private final Map<String, Long> tileOf = new HashMap<>();
+    private final List<String> order = new ArrayList<>();
+    private final LinkedHashMap<Long, Tile> resident = new LinkedHashMap<>(16, 0.75f, true); // LRU first
+    private final Set<Long> onDisk = new HashSet<>();
+    private boolean inBatch = false; // nothing is evicted during a batch
+    private long loads = 0;
+    private long spills = 0;
+
+    /**
+     * @param directory        Where evicted tiles are written; created if missing.
+     * @param tileSize         The side of a tile in meters.
+     * @param maxResidentTiles The number of tiles kept in memory outside a batch.
+     */
+    public TiledLandMarkStore(Path directory, double tileSize, int maxResidentTiles) throws IOException {
+        if (!(tileSize > 0)) {
+            throw new IllegalArgumentException("Tile size must be positive: " + tileSize);
+        }
+        if (maxResidentTiles < 1) {
+            throw new IllegalArgumentException("At least one tile must stay resident: " + maxResidentTiles);
+        }
+        this.directory = Files.createDirectories(directory);
+        this.tileSize = tileSize;
+        this.maxResidentTiles = maxResidentTiles;
+    }
+
+    @Override
+    public void add(LandMark landMark) {
+        if (tileOf.containsKey(landMark.getId())) {
+            throw new IllegalArgumentException("Landmark already exists: " + landMark.getId());
+        }
+        long key = tileKey(landMark);
+        Tile tile = tile(key, true);
+        tile.landMarks.put(landMark.getId(), landMark);
+        tile.dirty = true;
+        tileOf.put(landMark.getId(), key);
+        order.add(landMark.getId());
+        markChanged(landMark);
+    }
+
+    /**
+     * Records the change and marks the tile for writing. If the tile was evicted since the landmark
+     * was looked up, the tile is read back and {@code landMark} replaces its stale copy.
+     */
+    @Override
+    public void markChanged(LandMark landMark) {
+        Long key = tileOf.get(landMark.getId());
+        if (key != null) {
+            Tile tile = tile(key, false);
+            tile.landMarks.put(landMark.getId(), landMark);
+            tile.dirty = true;
+        }
+        super.markChanged(landMark);
+    }
+
+    @Override
+    public void beginBatch() {
+        inBatch = true;
+    }
+
+    @Override
+    public void endBatch() {
+        inBatch = false;
+        evict();
+    }
+
+    @Override
+    public LandMark get(String id) {
+        Long key = tileOf.get(id);
+        return key == null ? null : tile(key, false).landMarks.get(id);
+    }
+
+    @Override
+    public int size() {
+        return order.size();
+    }
+
+    /**
+     * @return A read-only view of the landmarks in insertion order, loading tiles as it is read.
+     */
+    @Override
+    public List<LandMark> asList() {
+        return new AbstractList<LandMark>() {
+            @Override
+            public LandMark get(int index) {
+                return TiledLandMarkStore.this.get(order.get(index));
+            }
+
+            @Override
+            public int size() {
+                return order.size();
+            }
+        };
+    }
+
+    public int getResidentTileCount() {
+        return resident.size();
+    }
+
+    public int getTileCount() {
+        Set<Long> tiles = new HashSet<>(onDisk);
+        tiles.addAll(resident.keySet());
+        return tiles.size();
+    }
+
+    /**
+     * @return The number of times a tile was read back from disk.
+     */
+    public long getLoads() {
+        return loads;
+    }
+
+    /**
+     * @return The number of times a changed tile was written to disk.
+     */
+    public long getSpills() {
+        return spills;
+    }
+
+    /**
+     * Deletes the tile files. The store must not be used afterwards.
+     */
+    @Override
+    public void close() throws IOException {
+        resident.clear();
+        for (long key : onDisk) {
+            Files.deleteIfExists(fileOf(key));
+        }
+        onDisk.clear();
+    }
+
+    private long tileKey(LandMark landMark) {
+        if (landMark.getPointCount() == 0) {
+            return 0;
+        }
+        long tx = (long) Math.floor((landMark.getMinX() + landMark.getMaxX()) / 2 / tileSize);
+        long ty = (long) Math.floor((landMark.getMinY() + landMark.getMaxY()) / 2 / tileSize);
+        return (tx << 32) ^ (ty & 0xFFFFFFFFL);
+    }
+
+    /**
+     * @return The resident tile, read back or created if needed.
+     */
+    private Tile tile(long key, boolean create) {
+        Tile tile = resident.get(key);
+        if (tile == null) {
+            if (onDisk.contains(key)) {
+                tile = read(key);
+                loads++;
+            } else if (create) {
+                tile = new Tile(key);
+            } else {
+                throw new IllegalStateException("Tile " + key + " is neither in memory nor on disk");
+            }
+            resident.put(key, tile);
+        }
+        if (!inBatch) {
+            evict();
+        }
+        return tile;
+    }
+
+    /**
+     * Evicts least recently used tiles until the resident ones fit. The tile used last is the most
+     * recent one, so it is never evicted here.
+     */
+    private void evict() {
+        if (resident.size() <= maxResidentTiles) {
+            return;
+        }
+        Iterator<Tile> tiles = resident.values().iterator();
+        while (resident.size() > maxResidentTiles && tiles.hasNext()) {
+            Tile tile = tiles.next();
+            if (tile.dirty || !onDisk.contains(tile.key)) {
+                write(tile);
+            }
+            tiles.remove();
+        }
+    }
+
+    private void write(Tile tile) {
+        int size = 8;
+        for (LandMark landMark : tile.landMarks.values()) {
+            size += landMark.getEncodedSize();
+        }
+        try (FileChannel channel = FileChannel.open(fileOf(tile.key), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC);
+            buffer.putInt(tile.landMarks.size());
+            for (LandMark landMark : tile.landMarks.values()) {
+                landMark.writeTo(buffer);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write map tile " + fileOf(tile.key), e);
+        }
+        tile.dirty = false;
+        onDisk.add(tile.key);
+        spills++;
+    }
+
+    private Tile read(long key) {
+        Tile tile = new Tile(key);
+        try (FileChannel channel = FileChannel.open(fileOf(key), StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a map tile");
+            }
+            int count = buffer.getInt();
+            for (int i = 0; i < count; i++) {
+                LandMark landMark = LandMark.readFrom(buffer);
+                tile.landMarks.put(landMark.getId(), landMark);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read map tile " + fileOf(key), e);
+        }
+        return tile;
+    }
+
+    private Path fileOf(long key) {
+        return directory.resolve("tile_" + (key >> 32) + "_" + (int) key + ".bin");
+    }
+
+    private static class Tile {
+        final long key;
+        final Map<String, LandMark> landMarks = new LinkedHashMap<>();
+        boolean dirty;
+
+        Tile(long key) {
+            this.key = key;
+        }
+    }
+}
@@ -2,11 +2,13 @@ package bgu.spl.mics.application.services;
 import java.util.List;
 import bgu.spl.mics.MicroService;
 import bgu.spl.mics.application.messages.CrashedBroadcast;
+import bgu.spl.mics.application.messages.MapDeltaBroadcast;
 import bgu.spl.mics.application.messages.PoseEvent;
 import bgu.spl.mics.application.messages.TerminatedBroadcast;
 import bgu.spl.mics.application.messages.TickBroadcast;
 import bgu.spl.mics.application.messages.TrackedObjectsEvent;
 import bgu.spl.mics.application.objects.FusionSlam;
+import bgu.spl.mics.application.objects.MapDelta;
 import bgu.spl.mics.application.objects.Pose;
 import bgu.spl.mics.application.objects.STATUS;
 import bgu.spl.mics.application.objects.TrackedObject;
@@ -19,6 +21,8 @@ import bgu.spl.mics.application.objects.StatisticalFolder;
  * 
  * This service receives TrackedObjectsEvents from LiDAR workers and PoseEvents from the PoseService,
  * transforming and updating the map with new landmarks.
+ * When map deltas are enabled, it broadcasts the landmarks that changed after every tick, and when
+ * snapshots are enabled, it publishes a snapshot of the map after every tick.
  */
 public class FusionSlamService extends MicroService {
     private final FusionSlam fusionSlam;
@@ -54,6 +58,13 @@ public class FusionSlamService extends MicroService {
         this.subscribeBroadcast(TickBroadcast.class, tick -> {
             int currentTime = tick.getTick();
             StatisticalFolder.getInstance().incrementSystemRuntime();
+            StatisticalFolder.getInstance().recordTick(currentTime);
+            fusionSlam.drainPoseChannel();
+            fusionSlam.publishSnapshot(currentTime);
+            MapDelta delta = fusionSlam.collectMapDelta(currentTime);
+            if (delta != null) {
+                this.sendBroadcast(new MapDeltaBroadcast(delta));
+            }
             if(fusionSlam.handleTickBroadcast(currentTime)){
                 this.sendBroadcast(new TerminatedBroadcast(this.getName()));
                 terminate();
@@ -59,6 +59,7 @@ public class LiDarService extends MicroService {
        this.subscribeBroadcast(TerminatedBroadcast.class, terminated-> {
             System.out.println(getName() + ": Received TerminatedBroadcast" + terminated.getMsName());
             if(terminated.getMsName() == "TimeService") {
+                lidarDatabase.removeConsumer(lidar.getId());
                 sendBroadcast(new TerminatedBroadcast(getName()));
                 terminate();
             }  
@@ -67,13 +68,16 @@ public class LiDarService extends MicroService {
         this.subscribeBroadcast(CrashedBroadcast.class, crashed-> {
             System.out.println((getName() + ": Received CrashedBroadcast from " + crashed.getMsName()));
             lidar.setStatus(STATUS.ERROR);
+            lidarDatabase.removeConsumer(lidar.getId());
             terminate();
         });
 
         this.subscribeBroadcast(TickBroadcast.class, tick -> {
             currentTick = tick.getTick(); 
+            lidarDatabase.advanceConsumer(lidar.getId(), currentTick);
             if (lidarDatabase.getLastTime() + lidar.getFrequency() < currentTick) {
                 lidar.setStatus(STATUS.DOWN);
+                lidarDatabase.removeConsumer(lidar.getId());
                 sendBroadcast(new TerminatedBroadcast(getName()));
                 terminate();
                 return;
@@ -81,6 +85,7 @@ public class LiDarService extends MicroService {
 
             if (lidar.checkForError(currentTick, lidarDatabase)) {
                 System.out.println(getName() + ": ERROR detected. Sending CrashedBroadcast and terminating.");
+                lidarDatabase.removeConsumer(lidar.getId());
                 sendBroadcast(new CrashedBroadcast(getName(), "Sensor " + getName() + " disconnected"));
                 terminate();
                 return;
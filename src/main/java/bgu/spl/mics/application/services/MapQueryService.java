@@ -0,0 +1,60 @@
+package bgu.spl.mics.application.services;
+
+import bgu.spl.mics.MicroService;
+import bgu.spl.mics.application.messages.CrashedBroadcast;
+import bgu.spl.mics.application.messages.LandMarkLookupEvent;
+import bgu.spl.mics.application.messages.LandMarkRangeEvent;
+import bgu.spl.mics.application.messages.NearestLandMarksEvent;
+import bgu.spl.mics.application.messages.TerminatedBroadcast;
+import bgu.spl.mics.application.objects.FusionSlam;
+import bgu.spl.mics.application.objects.MapSnapshot;
+
+/**
+ * MapQueryService answers lookup, range and nearest-landmark queries from other services.
+ * <p>
+ * Every query is answered from the latest {@link MapSnapshot} published by FusionSlam, so it never
+ * waits for or races the fusion. The answers are the snapshot's copies of the landmarks.
+ * The service is not one of the sensors FusionSlam waits for: it does not send a
+ * TerminatedBroadcast, and stops once FusionSlamService has terminated or a sensor crashed.
+ * </p>
+ */
+public class MapQueryService extends MicroService {
+    private final FusionSlam fusionSlam;
+
+    /**
+     * @throws IllegalStateException If FusionSlam does not publish snapshots.
+     */
+    public MapQueryService(FusionSlam fusionSlam) {
+        super("MapQueryService");
+        if (fusionSlam.getSnapshot() == null) {
+            throw new IllegalStateException("Map snapshots are not enabled");
+        }
+        this.fusionSlam = fusionSlam;
+    }
+
+    @Override
+    protected void initialize() {
+        System.out.println(getName() + " initialized.");
+
+        this.subscribeEvent(LandMarkLookupEvent.class, event ->
+                complete(event, snapshot().get(event.getId())));
+
+        this.subscribeEvent(LandMarkRangeEvent.class, event ->
+                complete(event, snapshot().withinRadius(event.getX(), event.getY(), event.getRadius())));
+
+        this.subscribeEvent(NearestLandMarksEvent.class, event ->
+                complete(event, snapshot().nearest(event.getX(), event.getY(), event.getK())));
+
+        this.subscribeBroadcast(TerminatedBroadcast.class, terminated -> {
+            if ("FusionSlamService".equals(terminated.getMsName())) {
+                terminate();
+            }
+        });
+
+        this.subscribeBroadcast(CrashedBroadcast.class, crashed -> terminate());
+    }
+
+    private MapSnapshot snapshot() {
+        return fusionSlam.getSnapshot();
+    }
+}
@@ -7,6 +7,7 @@ import bgu.spl.mics.application.messages.TerminatedBroadcast;
 import bgu.spl.mics.application.messages.TickBroadcast;
 import bgu.spl.mics.application.objects.GPSIMU;
 import bgu.spl.mics.application.objects.Pose;
+import bgu.spl.mics.application.objects.PoseChannel;
 import bgu.spl.mics.application.objects.STATUS;
 
 
@@ -17,6 +18,7 @@ import bgu.spl.mics.application.objects.STATUS;
 public class PoseService extends MicroService {
 
     private final GPSIMU gpsimu;
+    private final PoseChannel poseChannel; // null when poses are sent as PoseEvents
     private int currentTick;
 
     /**
@@ -25,8 +27,19 @@ public class PoseService extends MicroService {
      * @param gpsimu The GPSIMU object that provides the robot's pose data.
      */
     public PoseService(GPSIMU gpsimu) {
+        this(gpsimu, null);
+    }
+
+    /**
+     * Constructor for a PoseService that publishes into a shared pose channel instead of sending PoseEvents.
+     *
+     * @param gpsimu      The GPSIMU object that provides the robot's pose data.
+     * @param poseChannel The channel FusionSlam reads poses from.
+     */
+    public PoseService(GPSIMU gpsimu, PoseChannel poseChannel) {
         super("PoseService");
         this.gpsimu = gpsimu;
+        this.poseChannel = poseChannel;
         currentTick = 0;
     }
 
@@ -42,18 +55,36 @@ public class PoseService extends MicroService {
             currentTick = tick.getTick(); 
             gpsimu.setCurrentTick(currentTick);
             
-            if (gpsimu.isLastTick(currentTick)) {
+            boolean lastTick;
+            Pose currentPose;
+            try {
+                lastTick = gpsimu.isLastTick(currentTick);
+                currentPose = lastTick ? null : gpsimu.getPoseAtTick(currentTick);
+            } catch (RuntimeException e) {
+                // the pose file is parsed as the simulation runs, so a malformed part fails here
+                System.out.println(getName() + ": ERROR reading pose data. Sending CrashedBroadcast and terminating.");
+                gpsimu.setStatus(STATUS.ERROR);
+                release();
+                sendBroadcast(new CrashedBroadcast(getName(), e.getMessage()));
+                terminate();
+                return;
+            }
+
+            if (lastTick) {
                 System.out.println(getName() + ": Reached the last tick. Sending TerminatedBroadcast and terminating.");
                 gpsimu.setStatus(STATUS.DOWN);
+                release();
                 sendBroadcast(new TerminatedBroadcast(getName()));
                 terminate();
                 return;
             }
             
-            Pose currentPose = gpsimu.getPoseList().get(currentTick - 1);
-            if (gpsimu.getStatus() != STATUS.UP && currentPose != null) {
+            if (gpsimu.getStatus() != STATUS.UP || currentPose == null) {
                 System.out.println(getName() + ": No pose data available at tick " + tick.getTick());
             }
+            else if (poseChannel != null) {
+                poseChannel.publish(currentPose);
+            }
             else {
                 this.sendEvent(new PoseEvent(currentPose));
             }
@@ -62,15 +93,24 @@ public class PoseService extends MicroService {
         this.subscribeBroadcast(CrashedBroadcast.class, crashed-> {
             System.out.println((getName() + ": Received CrashedBroadcast from " + crashed.getMsName()));
             gpsimu.setStatus(STATUS.ERROR);
+            release();
             terminate();
         });
 
         this.subscribeBroadcast(TerminatedBroadcast.class, terminated-> {
             System.out.println(getName() + ": Received TerminatedBroadcast");
             if(terminated.getMsName() == "TimeService") {
+                release();
                 sendBroadcast(new TerminatedBroadcast(getName()));
                 terminate();
             }  
         });
     }
+
+    private void release() {
+        gpsimu.close();
+        if (poseChannel != null) {
+            poseChannel.close();
+        }
+    }
 }
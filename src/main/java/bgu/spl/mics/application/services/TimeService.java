@@ -1,5 +1,7 @@
 package bgu.spl.mics.application.services;
 
+import bgu.spl.mics.FlightEvents;
+import bgu.spl.mics.MessageBusImpl;
 import bgu.spl.mics.MicroService;
 import bgu.spl.mics.application.messages.TerminatedBroadcast;
 import bgu.spl.mics.application.messages.TickBroadcast;
@@ -43,10 +45,20 @@ public class TimeService extends MicroService {
                 while (currentTick < duration && running) {
                     // Increment tick count
                     currentTick++;
+                    FlightEvents.setCurrentTick(currentTick);
                     System.out.println("TimeService: Tick " + currentTick);
                     
                     // Send TickBroadcast
+                    FlightEvents.Tick event = new FlightEvents.Tick();
+                    event.begin();
                     sendBroadcast(new TickBroadcast(currentTick));
+                    if (event.shouldCommit()) {
+                        event.tick = currentTick;
+                        event.service = getName();
+                        event.subscribers = MessageBusImpl.getInstance().getBroadcastSubscribers()
+                                .get(TickBroadcast.class).size();
+                        event.commit();
+                    }
 
                     // Sleep for tickTime duration
                     Thread.sleep(tickTime);
@@ -0,0 +1,29 @@
+package bgu.spl.mics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import bgu.spl.mics.application.configs.Configuration;
+
+class ConfigurationTest {
+
+    @Test
+    void testShardsWithAnOccupancyGridAreRejected(@TempDir Path tempDir) throws Exception {
+        // @PRE-CONDITION: A configuration with 4 fusion shards, a parallel engine and an occupancy grid.
+        // @POST-CONDITION: Reading it fails and names both options the shards cannot be combined with.
+        Path file = tempDir.resolve("configuration_file.json");
+        Files.write(file, ("{\"Cameras\": {}, \"LiDarWorkers\": {}, \"FusionShards\": 4,"
+                + " \"FusionParallelism\": 2, \"OccupancyGridResolution\": 0.5}").getBytes(StandardCharsets.UTF_8));
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> Configuration.getInstance(file.toString()));
+        assertTrue(e.getMessage().contains("FusionParallelism"), e.getMessage());
+        assertTrue(e.getMessage().contains("OccupancyGridResolution"), e.getMessage());
+    }
+}
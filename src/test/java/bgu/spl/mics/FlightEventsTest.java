@@ -0,0 +1,90 @@
+package bgu.spl.mics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import bgu.spl.mics.application.messages.TickBroadcast;
+import bgu.spl.mics.application.objects.OutputWriter;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+class FlightEventsTest {
+
+    private static List<RecordedEvent> eventsNamed(List<RecordedEvent> events, String name) {
+        List<RecordedEvent> named = new ArrayList<>();
+        for (RecordedEvent event : events) {
+            if (event.getEventType().getName().equals(name)) {
+                named.add(event);
+            }
+        }
+        return named;
+    }
+
+    @Test
+    void testRecordingHasMessageAndOutputEventsOfTheTick(@TempDir Path tempDir) throws Exception {
+        // @PRE-CONDITION: A recording of the message bus and output events is running at tick 7; a service
+        //                 handles one TickBroadcast and terminates, then an output file is written.
+        // @POST-CONDITION: The recording has the enqueue and the dispatch of the broadcast to the service,
+        //                  and the write of the output, all at tick 7.
+        Path recordingFile = tempDir.resolve("run.jfr");
+        Path outputFile = tempDir.resolve("output_file.json");
+        CountDownLatch subscribed = new CountDownLatch(1);
+        MicroService service = new MicroService("FlightProbe") {
+            @Override
+            protected void initialize() {
+                subscribeBroadcast(TickBroadcast.class, tick -> terminate());
+                subscribed.countDown();
+            }
+        };
+        try (Recording recording = new Recording()) {
+            recording.enable("gurion.MessageEnqueue");
+            recording.enable("gurion.MessageDispatch");
+            recording.enable("gurion.OutputWrite");
+            recording.start();
+            FlightEvents.setCurrentTick(7);
+            Thread thread = new Thread(service);
+            thread.start();
+            subscribed.await();
+            MessageBusImpl.getInstance().sendBroadcast(new TickBroadcast(7));
+            thread.join(5000);
+            OutputWriter writer = new OutputWriter(false);
+            writer.writeOutput(outputFile, new OutputWriter.Statistics(7, 0, 0, 0), new ArrayList<>());
+            writer.shutdown();
+            recording.stop();
+            recording.dump(recordingFile);
+        } finally {
+            FlightEvents.setCurrentTick(0);
+        }
+        List<RecordedEvent> events = RecordingFile.readAllEvents(recordingFile);
+
+        RecordedEvent enqueue = null;
+        for (RecordedEvent event : eventsNamed(events, "gurion.MessageEnqueue")) {
+            if ("FlightProbe".equals(event.getString("service"))) {
+                enqueue = event;
+            }
+        }
+        assertNotNull(enqueue);
+        assertEquals(7, enqueue.getInt("tick"));
+        assertEquals(TickBroadcast.class.getName(), enqueue.getClass("messageType").getName());
+        assertEquals(1, enqueue.getInt("mailboxDepth"), "The mailbox was empty when the broadcast was enqueued.");
+
+        List<RecordedEvent> dispatches = eventsNamed(events, "gurion.MessageDispatch");
+        assertEquals(1, dispatches.size());
+        assertEquals("FlightProbe", dispatches.get(0).getString("service"));
+        assertEquals(7, dispatches.get(0).getInt("tick"));
+
+        List<RecordedEvent> writes = eventsNamed(events, "gurion.OutputWrite");
+        assertEquals(1, writes.size());
+        assertEquals("output", writes.get(0).getString("kind"));
+        assertEquals(outputFile.toString(), writes.get(0).getString("path"));
+        assertTrue(writes.get(0).getLong("bytes") > 0);
+    }
+}
@@ -0,0 +1,143 @@
+package bgu.spl.mics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import bgu.spl.mics.application.objects.CloudPoint;
+import bgu.spl.mics.application.objects.FusionEngine;
+import bgu.spl.mics.application.objects.LandMark;
+import bgu.spl.mics.application.objects.LandMarkStore;
+import bgu.spl.mics.application.objects.Pose;
+import bgu.spl.mics.application.objects.PoseTrajectory;
+import bgu.spl.mics.application.objects.TrackedObject;
+
+class FusionEngineTest {
+
+    /**
+     * A batch of {@code count} objects over {@code ids} distinct ids, so most ids repeat within the batch.
+     */
+    static List<TrackedObject> randomBatch(Random random, int count, int ids, int points) {
+        List<TrackedObject> batch = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            List<CloudPoint> coordinates = new ArrayList<>(points);
+            int size = 1 + random.nextInt(points);
+            for (int p = 0; p < size; p++) {
+                coordinates.add(new CloudPoint(random.nextGaussian() * 5, random.nextGaussian() * 5));
+            }
+            batch.add(new TrackedObject("Object_" + random.nextInt(ids), 1, "Object", coordinates));
+        }
+        return batch;
+    }
+
+    @Test
+    void testParallelFusionMatchesSerial() {
+        // @PRE-CONDITION: Three batches with repeated ids, fused serially and on 4 threads.
+        // @POST-CONDITION: Both stores hold the same landmarks, in the same order, with identical coordinates.
+        PoseTrajectory trajectory = new PoseTrajectory(false);
+        trajectory.add(new Pose(1.5f, -2f, 33f, 1));
+        PoseTrajectory.Frame frame = trajectory.frameAt(1);
+
+        FusionEngine serial = new FusionEngine(1);
+        FusionEngine parallel = new FusionEngine(4);
+        LandMarkStore expected = new LandMarkStore();
+        LandMarkStore actual = new LandMarkStore();
+        Random random = new Random(7);
+        for (int round = 0; round < 3; round++) {
+            List<TrackedObject> batch = randomBatch(random, 500, 120, 8);
+            assertEquals(serial.fuse(batch, frame, expected), parallel.fuse(batch, frame, actual));
+        }
+        parallel.shutdown();
+
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            LandMark e = expected.asList().get(i);
+            LandMark a = actual.asList().get(i);
+            assertEquals(e.getId(), a.getId());
+            assertEquals(e.getCoordinates().size(), a.getCoordinates().size());
+            for (int p = 0; p < e.getCoordinates().size(); p++) {
+                assertEquals(e.getCoordinates().get(p).getX(), a.getCoordinates().get(p).getX());
+                assertEquals(e.getCoordinates().get(p).getY(), a.getCoordinates().get(p).getY());
+            }
+        }
+    }
+
+    @Test
+    void testParallelFusionMatchesThePerObjectLoop() {
+        // @PRE-CONDITION: Three batches with repeated ids, fused on 4 threads and by the per-object loop
+        //                 FusionSlam used before the engine: transform, then create the landmark or update it.
+        // @POST-CONDITION: Both hold the same landmarks, in the same order, with identical coordinates.
+        PoseTrajectory trajectory = new PoseTrajectory(false);
+        trajectory.add(new Pose(-4f, 2.5f, 71f, 1));
+        PoseTrajectory.Frame frame = trajectory.frameAt(1);
+
+        Map<String, LandMark> expected = new LinkedHashMap<>();
+        FusionEngine parallel = new FusionEngine(4);
+        LandMarkStore actual = new LandMarkStore();
+        Random random = new Random(19);
+        for (int round = 0; round < 3; round++) {
+            List<TrackedObject> batch = randomBatch(random, 400, 90, 8);
+            parallel.fuse(batch, frame, actual);
+            for (TrackedObject object : batch) {
+                List<CloudPoint> transformedPoints = new ArrayList<>();
+                for (CloudPoint point : object.getCoordinates()) {
+                    transformedPoints.add(new CloudPoint(frame.toGlobalX(point.getX(), point.getY()),
+                            frame.toGlobalY(point.getX(), point.getY())));
+                }
+                LandMark existing = expected.get(object.getId());
+                if (existing == null) {
+                    expected.put(object.getId(), new LandMark(object.getId(), object.getDescription(), transformedPoints));
+                } else {
+                    existing.updateCoordinates(transformedPoints);
+                }
+            }
+        }
+        parallel.shutdown();
+
+        List<LandMark> serial = new ArrayList<>(expected.values());
+        assertEquals(serial.size(), actual.size());
+        for (int i = 0; i < serial.size(); i++) {
+            LandMark e = serial.get(i);
+            LandMark a = actual.asList().get(i);
+            assertEquals(e.getId(), a.getId());
+            assertEquals(e.getCoordinates().size(), a.getCoordinates().size());
+            for (int p = 0; p < e.getCoordinates().size(); p++) {
+                assertEquals(e.getCoordinates().get(p).getX(), a.getCoordinates().get(p).getX());
+                assertEquals(e.getCoordinates().get(p).getY(), a.getCoordinates().get(p).getY());
+            }
+        }
+    }
+
+    @Test
+    void testProximityAssociationOfObjectsWithoutId() {
+        // @PRE-CONDITION: A store with a spatial index and a landmark around (10, 10); association radius 1.
+        // @POST-CONDITION: An unnamed object near it is merged into it, and a far one starts a new landmark.
+        PoseTrajectory trajectory = new PoseTrajectory(false);
+        trajectory.add(new Pose(0, 0, 0, 1));
+        PoseTrajectory.Frame frame = trajectory.frameAt(1);
+        LandMarkStore store = new LandMarkStore();
+        store.enableSpatialIndex(1.0);
+        FusionEngine engine = new FusionEngine(1);
+        engine.setAssociationRadius(1.0);
+
+        engine.fuse(List.of(new TrackedObject("Wall_1", 1, "Wall",
+                List.of(new CloudPoint(10, 10), new CloudPoint(11, 10)))), frame, store);
+        int added = engine.fuse(List.of(
+                new TrackedObject(null, 1, "Wall", List.of(new CloudPoint(10.2, 10.4), new CloudPoint(11.2, 10.4))),
+                new TrackedObject("", 1, "Chair", List.of(new CloudPoint(-5, -5)))), frame, store);
+
+        assertEquals(1, added);
+        assertEquals(2, store.size());
+        assertEquals(10.1, store.get("Wall_1").getCoordinates().get(0).getX(), 1e-9);
+        assertEquals(10.2, store.get("Wall_1").getMaxY(), 1e-9, "The bounding box follows the update.");
+        assertEquals("Chair", store.asList().get(1).getDescription());
+        assertEquals("Wall_1", store.nearest(10.5, 10.5, 1).get(0).getId());
+        assertEquals(1, store.withinRadius(-5, -4, 1.5).size());
+    }
+}
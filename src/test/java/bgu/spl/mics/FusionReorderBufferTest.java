@@ -0,0 +1,56 @@
+package bgu.spl.mics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import bgu.spl.mics.application.objects.CloudPoint;
+import bgu.spl.mics.application.objects.FusionReorderBuffer;
+import bgu.spl.mics.application.objects.TrackedObject;
+
+class FusionReorderBufferTest {
+
+    private static List<TrackedObject> batch(int time, String id) {
+        return Collections.singletonList(
+                new TrackedObject(id, time, "Wall", Collections.singletonList(new CloudPoint(1.0, 2.0))));
+    }
+
+    @Test
+    void testReadyBatchesAreReleasedInTimeOrder() {
+        // @PRE-CONDITION: Batches of times 5, 3 and 4 are parked.
+        // @POST-CONDITION: Batches whose pose is known come out ordered by time; the rest stay parked.
+        FusionReorderBuffer buffer = new FusionReorderBuffer(10, 5);
+        buffer.park(5, batch(5, "Wall_5"), 5);
+        buffer.park(3, batch(3, "Wall_3"), 5);
+        buffer.park(4, batch(4, "Wall_4"), 5);
+
+        List<Map.Entry<Integer, List<TrackedObject>>> ready = buffer.takeReady(time -> time <= 4);
+        assertEquals(2, ready.size());
+        assertEquals(3, ready.get(0).getKey());
+        assertEquals("Wall_4", ready.get(1).getValue().get(0).getId());
+        assertEquals(1, buffer.size());
+        assertEquals(0, buffer.getDropped());
+    }
+
+    @Test
+    void testCapacityAndTimeoutDropOldestBatches() {
+        // @PRE-CONDITION: A buffer of 2 objects with a timeout of 3 ticks.
+        // @POST-CONDITION: A third batch evicts the oldest time, and batches parked 3 ticks ago expire.
+        FusionReorderBuffer buffer = new FusionReorderBuffer(2, 3);
+        buffer.park(1, batch(1, "A"), 1);
+        buffer.park(2, batch(2, "B"), 2);
+        buffer.park(3, batch(3, "C"), 3);
+        assertEquals(2, buffer.size());
+        assertEquals(1, buffer.getDropped());
+
+        buffer.expire(5);
+        assertEquals(1, buffer.size(), "The batch parked at tick 2 expired.");
+        buffer.expire(6);
+        assertEquals(0, buffer.size());
+        assertEquals(3, buffer.getDropped());
+    }
+}
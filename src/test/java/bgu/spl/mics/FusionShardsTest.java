@@ -0,0 +1,74 @@
+package bgu.spl.mics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import bgu.spl.mics.application.objects.CloudPoint;
+import bgu.spl.mics.application.objects.FusionEngine;
+import bgu.spl.mics.application.objects.FusionShards;
+import bgu.spl.mics.application.objects.LandMark;
+import bgu.spl.mics.application.objects.LandMarkStore;
+import bgu.spl.mics.application.objects.Pose;
+import bgu.spl.mics.application.objects.PoseTrajectory;
+import bgu.spl.mics.application.objects.TrackedObject;
+
+class FusionShardsTest {
+
+    @Test
+    void testShardedFusionMatchesSerial() {
+        // @PRE-CONDITION: Five batches with repeated ids, fused serially and over 3 shards.
+        // @POST-CONDITION: The merged landmarks are the serial ones, in the same order, with identical coordinates.
+        PoseTrajectory trajectory = new PoseTrajectory(false);
+        trajectory.add(new Pose(1.5f, -2f, 33f, 1));
+        trajectory.add(new Pose(3f, 0.5f, -120f, 2));
+
+        FusionEngine serial = new FusionEngine(1);
+        LandMarkStore expected = new LandMarkStore();
+        FusionShards shards = new FusionShards(3);
+        Random random = new Random(11);
+        for (int round = 0; round < 5; round++) {
+            PoseTrajectory.Frame frame = trajectory.frameAt(1 + round % 2);
+            List<TrackedObject> batch = FusionEngineTest.randomBatch(random, 200, 150, 6);
+            serial.fuse(batch, frame, expected);
+            shards.submit(batch, frame);
+        }
+
+        List<LandMark> actual = shards.getLandMarks();
+        shards.shutdown();
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            LandMark e = expected.asList().get(i);
+            LandMark a = actual.get(i);
+            assertEquals(e.getId(), a.getId());
+            assertSame(a, shards.get(a.getId()));
+            assertEquals(e.getCoordinates().size(), a.getCoordinates().size());
+            for (int p = 0; p < e.getCoordinates().size(); p++) {
+                assertEquals(e.getCoordinates().get(p).getX(), a.getCoordinates().get(p).getX());
+                assertEquals(e.getCoordinates().get(p).getY(), a.getCoordinates().get(p).getY());
+            }
+        }
+    }
+
+    @Test
+    void testFailedBatchFailsFlushAndShutdown() {
+        // @PRE-CONDITION: A batch submitted without a pose frame, so its fusion throws on the shard.
+        // @POST-CONDITION: flush() and shutdown() rethrow the failure instead of returning an incomplete map.
+        FusionShards shards = new FusionShards(2);
+        shards.submit(List.of(new TrackedObject("Broken", 1, "Wall", List.of(new CloudPoint(1, 2)))), null);
+
+        RuntimeException flushed = assertThrows(RuntimeException.class, shards::flush);
+        assertInstanceOf(NullPointerException.class, flushed.getCause());
+        assertThrows(RuntimeException.class, shards::shutdown);
+    }
+
+    @Test
+    void testInvalidShardCount() {
+        // @PRE-CONDITION: A shard count of 0.
+        // @POST-CONDITION: The constructor rejects it.
+        assertThrows(IllegalArgumentException.class, () -> new FusionShards(0));
+    }
+}
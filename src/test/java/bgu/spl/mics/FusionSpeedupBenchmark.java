@@ -0,0 +1,52 @@
+package bgu.spl.mics;
+
+import java.util.List;
+import java.util.Random;
+
+import bgu.spl.mics.application.objects.FusionEngine;
+import bgu.spl.mics.application.objects.LandMarkStore;
+import bgu.spl.mics.application.objects.Pose;
+import bgu.spl.mics.application.objects.PoseTrajectory;
+import bgu.spl.mics.application.objects.TrackedObject;
+
+/**
+ * Speedup of {@link FusionEngine} over the serial path for 1 to 32 threads.
+ * <p>
+ * Fuses the same batches (20,000 tracked objects over 5,000 ids, up to 500 points each) with each
+ * parallelism and prints the best of five runs. Not part of the unit tests; run with
+ * </p>
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=bgu.spl.mics.FusionSpeedupBenchmark
+ * </pre>
+ * Thread counts above the number of cores are still measured, but cannot speed anything up.
+ */
+public class FusionSpeedupBenchmark {
+
+    public static void main(String[] args) {
+        int[] threads = { 1, 2, 4, 8, 16, 32 };
+        PoseTrajectory trajectory = new PoseTrajectory(false);
+        trajectory.add(new Pose(1.5f, -2f, 33f, 1));
+        PoseTrajectory.Frame frame = trajectory.frameAt(1);
+        List<TrackedObject> batch = FusionEngineTest.randomBatch(new Random(42), 20_000, 5_000, 500);
+
+        System.out.println(Runtime.getRuntime().availableProcessors() + " cores available");
+        double serialMillis = 0;
+        for (int parallelism : threads) {
+            FusionEngine engine = new FusionEngine(parallelism);
+            long best = Long.MAX_VALUE;
+            for (int run = 0; run < 5; run++) {
+                LandMarkStore store = new LandMarkStore();
+                long start = System.nanoTime();
+                engine.fuse(batch, frame, store);
+                engine.fuse(batch, frame, store); // the second pass updates existing landmarks only
+                best = Math.min(best, System.nanoTime() - start);
+            }
+            engine.shutdown();
+            double millis = best / 1e6;
+            if (parallelism == 1) {
+                serialMillis = millis;
+            }
+            System.out.printf("%2d threads: %8.1f ms, speedup %.2fx%n", parallelism, millis, serialMillis / millis);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package bgu.spl.mics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import bgu.spl.mics.application.objects.CloudPoint;
+import bgu.spl.mics.application.objects.LandMark;
+import bgu.spl.mics.application.objects.LandMarkStore;
+
+/**
+ * Per-object cost of finding the landmark of a tracked object as the map grows.
+ * <p>
+ * For each map size (default 1k, 10k, 100k and 1M landmarks) it times lookups of random existing
+ * ids in the {@link LandMarkStore}, and, up to 100k landmarks, in a plain list scanned the way
+ * FusionSlam used to. Not part of the unit tests; run with
+ * </p>
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=bgu.spl.mics.LandMarkStoreBenchmark
+ * </pre>
+ */
+public class LandMarkStoreBenchmark {
+    private static final int LOOKUPS = 200_000;
+    private static final int SCAN_LOOKUPS = 2_000;
+
+    public static void main(String[] args) {
+        int[] sizes = args.length > 0 ? parse(args) : new int[] { 1_000, 10_000, 100_000, 1_000_000 };
+        Random random = new Random(42);
+        LandMarkStore store = new LandMarkStore();
+        List<LandMark> list = new ArrayList<>();
+        long sink = 0;
+        for (int size : sizes) {
+            while (store.size() < size) {
+                LandMark landMark = new LandMark("Object_" + store.size(), "Object",
+                        Collections.singletonList(new CloudPoint(0, 0)));
+                store.add(landMark);
+                list.add(landMark);
+            }
+            for (int warmup = 0; warmup < 2; warmup++) {
+                long start = System.nanoTime();
+                for (int i = 0; i < LOOKUPS; i++) {
+                    sink += store.get("Object_" + random.nextInt(size)).getCoordinates().size();
+                }
+                if (warmup == 1) {
+                    System.out.printf("%,9d landmarks: indexed %8.1f ns/object", size,
+                            (System.nanoTime() - start) / (double) LOOKUPS);
+                }
+            }
+            if (size <= 100_000) {
+                long start = System.nanoTime();
+                for (int i = 0; i < SCAN_LOOKUPS; i++) {
+                    sink += scan(list, "Object_" + random.nextInt(size)).getCoordinates().size();
+                }
+                System.out.printf(", linear scan %,12.1f ns/object", (System.nanoTime() - start) / (double) SCAN_LOOKUPS);
+            }
+            System.out.println();
+        }
+        System.out.println("(checksum " + sink + ")");
+    }
+
+    private static LandMark scan(List<LandMark> landMarks, String id) {
+        for (LandMark landMark : landMarks) {
+            if (landMark.getId().equals(id)) {
+                return landMark;
+            }
+        }
+        return null;
+    }
+
+    private static int[] parse(String[] args) {
+        int[] sizes = new int[args.length];
+        for (int i = 0; i < args.length; i++) {
+            sizes[i] = Integer.parseInt(args[i]);
+        }
+        return sizes;
+    }
+}
@@ -0,0 +1,53 @@
+package bgu.spl.mics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+
+import org.junit.jupiter.api.Test;
+
+import bgu.spl.mics.application.objects.LandMark;
+import bgu.spl.mics.application.objects.LandMarkStore;
+
+class LandMarkStoreTest {
+
+    @Test
+    void testLookupByIdKeepsInsertionOrder() {
+        // @PRE-CONDITION: An empty store.
+        // @POST-CONDITION: Landmarks are found by id, listed in insertion order, and ids are unique.
+        LandMarkStore store = new LandMarkStore();
+        store.add(new LandMark("Wall_2", "Wall", new ArrayList<>()));
+        store.add(new LandMark("Chair_1", "Chair", new ArrayList<>()));
+        store.add(new LandMark("Wall_1", "Wall", new ArrayList<>()));
+
+        assertEquals(3, store.size());
+        assertEquals("Chair", store.get("Chair_1").getDescription());
+        assertNull(store.get("Door"));
+        assertEquals("Wall_2", store.asList().get(0).getId());
+        assertEquals("Wall_1", store.asList().get(2).getId());
+        assertThrows(IllegalArgumentException.class, () -> store.add(new LandMark("Wall_1", "Wall", new ArrayList<>())));
+        assertThrows(UnsupportedOperationException.class, () -> store.asList().clear());
+    }
+
+    @Test
+    void testChangesAreKeptOnlyWhileTracked() {
+        // @PRE-CONDITION: A store with change tracking off, as when map deltas are off.
+        // @POST-CONDITION: Added and changed landmarks are not kept for a drain until tracking is turned on,
+        //                  and turning it off again forgets the changes not drained yet.
+        LandMarkStore store = new LandMarkStore();
+        LandMark wall = new LandMark("Wall_1", "Wall", new ArrayList<>());
+        store.add(wall);
+        store.markChanged(wall);
+        assertTrue(store.drainChanged().isEmpty());
+
+        store.trackChanges(true);
+        store.add(new LandMark("Door", "Door", new ArrayList<>()));
+        store.markChanged(wall);
+        assertEquals(2, store.drainChanged().size());
+        assertTrue(store.drainChanged().isEmpty());
+
+        store.markChanged(wall);
+        store.trackChanges(false);
+        assertTrue(store.drainChanged().isEmpty());
+    }
+}
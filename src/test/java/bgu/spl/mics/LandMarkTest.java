@@ -0,0 +1,144 @@
+package bgu.spl.mics;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import bgu.spl.mics.application.objects.CloudPoint;
+import bgu.spl.mics.application.objects.GeometrySimplifier;
+import bgu.spl.mics.application.objects.LandMark;
+
+class LandMarkTest {
+
+    @Test
+    void testRunningMeanWeightedByObservations() {
+        // @PRE-CONDITION: A landmark seen at x = 0, then at x = 3 and x = 6; the last observation has an extra point.
+        // @POST-CONDITION: The first point is the mean of all three (3), not halved twice (4.5),
+        //                  and the extra point is appended with one observation.
+        LandMark landMark = new LandMark("Wall_1", "Wall", List.of(new CloudPoint(0, 1)));
+        landMark.updateCoordinates(List.of(new CloudPoint(3, 1)));
+        landMark.updateCoordinates(List.of(new CloudPoint(6, 1), new CloudPoint(7, 8)));
+
+        assertEquals(2, landMark.getPointCount());
+        assertEquals(3.0, landMark.getX(0), 1e-12);
+        assertEquals(3, landMark.getObservationCount(0));
+        assertEquals(7.0, landMark.getX(1));
+        assertEquals(1, landMark.getObservationCount(1));
+        assertEquals(8.0, landMark.getMaxY());
+        assertThrows(IndexOutOfBoundsException.class, () -> landMark.getX(2));
+    }
+
+    @Test
+    void testMergeDoesNotAllocate() {
+        // @PRE-CONDITION: A landmark with 32 points, and 32-point observations built in advance.
+        // @POST-CONDITION: Merging 20,000 observations allocates (next to) nothing on this thread.
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+
+        List<List<CloudPoint>> observations = new ArrayList<>();
+        for (int o = 0; o < 16; o++) {
+            List<CloudPoint> points = new ArrayList<>();
+            for (int p = 0; p < 32; p++) {
+                points.add(new CloudPoint(p + o * 0.01, -p - o * 0.01));
+            }
+            observations.add(points);
+        }
+        LandMark landMark = new LandMark("Wall_1", "Wall", observations.get(0));
+        for (int i = 0; i < 20_000; i++) {
+            landMark.updateCoordinates(observations.get(i & 15)); // warm up
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 20_000; i++) {
+            landMark.updateCoordinates(observations.get(i & 15));
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        assertTrue(allocated < 4096, "Merging allocated " + allocated + " bytes.");
+        assertEquals(40_001, landMark.getObservationCount(0));
+    }
+
+    private static List<CloudPoint> corner(double offset) {
+        // an L-shaped wall: 11 points along x, then 10 up along y, with a little noise
+        List<CloudPoint> points = new ArrayList<>();
+        for (int i = 0; i <= 10; i++) {
+            points.add(new CloudPoint(i + offset, (i % 2) * 0.01));
+        }
+        for (int i = 1; i <= 10; i++) {
+            points.add(new CloudPoint(10 + offset + (i % 2) * 0.01, i));
+        }
+        return points;
+    }
+
+    @Test
+    void testSimplificationKeepsCornersAndMergesIntoKeptPoints() {
+        // @PRE-CONDITION: An L-shaped wall of 21 points, simplified with a 5 cm tolerance, then seen again 1 m further.
+        // @POST-CONDITION: Only the ends and the corner are kept, the error is the 1 cm noise, and the next
+        //                  observation is merged into those three points by their original index.
+        LandMark landMark = new LandMark("Wall_1", "Wall", corner(0));
+        int dropped = landMark.simplify(new GeometrySimplifier(0.05, 64));
+
+        assertEquals(18, dropped);
+        assertEquals(3, landMark.getPointCount());
+        assertEquals(10.0, landMark.getX(1), 1e-12);
+        assertEquals(0.0, landMark.getY(1), 1e-12);
+        assertEquals(0.01, landMark.getSimplificationError(), 1e-3);
+
+        landMark.updateCoordinates(corner(1));
+        assertEquals(3, landMark.getPointCount(), "Points at dropped indices are not added back.");
+        assertEquals(10.5, landMark.getX(1), 1e-12);
+        assertEquals(10.5, landMark.getX(2), 1e-12);
+        assertEquals(10.0, landMark.getY(2), 1e-12);
+        assertEquals(2, landMark.getObservationCount(2));
+
+
+    }
+
+    @Test
+    void testSimplificationOfAppendedPoints() {
+        // @PRE-CONDITION: A straight wall of 5 points simplified to its ends, then seen with 3 more points.
+        // @POST-CONDITION: Only the appended points are simplified, from the last kept point, so the two new
+        //                  middle points are dropped and the old end stays.
+        List<CloudPoint> wall = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            wall.add(new CloudPoint(i, 0));
+        }
+        GeometrySimplifier simplifier = new GeometrySimplifier(0.05, 64);
+        LandMark landMark = new LandMark("Wall_1", "Wall", wall.subList(0, 5));
+        assertEquals(3, landMark.simplify(simplifier));
+
+        landMark.updateCoordinates(wall);
+        assertEquals(5, landMark.getPointCount());
+        assertEquals(2, landMark.simplify(simplifier));
+        assertEquals(3, landMark.getPointCount(), "The earlier end is not simplified again.");
+        assertEquals(4.0, landMark.getX(1));
+        assertEquals(7.0, landMark.getX(2));
+        assertEquals(0.0, landMark.getSimplificationError());
+    }
+
+    @Test
+    void testSimplificationCapsThePointCount() {
+        // @PRE-CONDITION: A zigzag of 100 points whose every point is 1 m off the line, capped at 10 points.
+        // @POST-CONDITION: 10 points are kept despite the zero tolerance, and the error reported is that of the
+        //                  dropped points.
+        List<CloudPoint> zigzag = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            zigzag.add(new CloudPoint(i, i % 2));
+        }
+        LandMark landMark = new LandMark("Wall_1", "Wall", zigzag);
+
+        assertEquals(90, landMark.simplify(new GeometrySimplifier(0, 10)));
+        assertEquals(10, landMark.getPointCount());
+        assertEquals(0.0, landMark.getX(0));
+        assertEquals(99.0, landMark.getX(9));
+        assertTrue(landMark.getSimplificationError() > 0.5);
+        assertEquals(0, landMark.simplify(new GeometrySimplifier(0, 10)));
+    }
+}
@@ -0,0 +1,156 @@
+package bgu.spl.mics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import bgu.spl.mics.application.objects.CloudPoint;
+import bgu.spl.mics.application.objects.LiDarBinaryFile;
+import bgu.spl.mics.application.objects.LiDarColumns;
+import bgu.spl.mics.application.objects.LiDarDataBase;
+import bgu.spl.mics.application.objects.LiDarJsonParser;
+import bgu.spl.mics.application.objects.LiDarParseException;
+import bgu.spl.mics.application.objects.LiDarWindow;
+import bgu.spl.mics.application.objects.StampedCloudPoints;
+
+class LiDarDataBaseTest {
+
+    private static LiDarDataBase dataBase;
+
+    @BeforeAll
+    static void setUp() {
+        dataBase = LiDarDataBase.getInstance();
+        dataBase.loadData("src/test/java/bgu/spl/mics/resources/lidar_data.json");
+    }
+
+    @Test
+    void testStampedCloudPointsAtTime() {
+        // @PRE-CONDITION: The database was loaded from lidar_data.json.
+        // @POST-CONDITION: The view at time 2 exposes the Chair_1 record with all three coordinates.
+        List<StampedCloudPoints> atTime = dataBase.getStampedCloudPointsAtTime(2);
+        assertEquals(1, atTime.size(), "There should be one record at time 2.");
+
+        StampedCloudPoints chair = atTime.get(0);
+        assertEquals("Chair_1", chair.getId());
+        assertEquals(2, chair.getTime());
+        assertEquals(2, chair.size());
+        assertEquals(1.1, chair.getX(1));
+        assertEquals(-0.4, chair.getY(1));
+        assertEquals(0.1, chair.getZ(1), "The z coordinate should be kept.");
+
+        List<CloudPoint> points = chair.getCloudPoints();
+        assertEquals(2, points.size());
+        assertEquals(1.0, points.get(0).getX());
+        assertEquals(-0.5, points.get(0).getY());
+    }
+
+    @Test
+    void testMissingTimeAndLastTime() {
+        // @PRE-CONDITION: The database was loaded from lidar_data.json.
+        // @POST-CONDITION: Unknown times return an empty list, the last time is 5 and the first error is at 5.
+        assertTrue(dataBase.getStampedCloudPointsAtTime(42).isEmpty());
+        assertEquals(5, dataBase.getLastTime());
+        assertEquals(5, dataBase.getFirstErrorTime());
+    }
+
+    @Test
+    void testBinaryRoundTrip(@TempDir Path tempDir) throws Exception {
+        // @PRE-CONDITION: lidar_data.json is converted to the binary format.
+        // @POST-CONDITION: The memory-mapped file returns the same records as the JSON file.
+        Path binary = tempDir.resolve("lidar_data.bin");
+        LiDarBinaryFile.write(LiDarDataBase.readJson("src/test/java/bgu/spl/mics/resources/lidar_data.json"), binary);
+        assertTrue(LiDarBinaryFile.isBinary(binary));
+
+        try (LiDarBinaryFile file = LiDarBinaryFile.open(binary)) {
+            assertEquals(5, file.getRecordCount());
+            assertEquals(5, file.getLastTime());
+            assertEquals(5, file.getFirstErrorTime());
+            for (int time = 1; time <= 5; time++) {
+                List<StampedCloudPoints> expected = dataBase.getStampedCloudPointsAtTime(time);
+                List<StampedCloudPoints> actual = file.readTick(time);
+                assertEquals(expected.size(), actual.size());
+                for (int r = 0; r < expected.size(); r++) {
+                    assertEquals(expected.get(r).getId(), actual.get(r).getId());
+                    assertEquals(expected.get(r).size(), actual.get(r).size());
+                    for (int i = 0; i < expected.get(r).size(); i++) {
+                        assertEquals(expected.get(r).getX(i), actual.get(r).getX(i));
+                        assertEquals(expected.get(r).getY(i), actual.get(r).getY(i));
+                        assertEquals(expected.get(r).getZ(i), actual.get(r).getZ(i));
+                    }
+                }
+            }
+            assertTrue(file.readTick(6).isEmpty());
+        }
+    }
+
+    @Test
+    void testWindowEvictsConsumedTicks(@TempDir Path tempDir) throws Exception {
+        // @PRE-CONDITION: A window with a lag of 1 tick and no read-ahead over the binary recording.
+        // @POST-CONDITION: Ticks below the slowest consumer minus the lag are evicted and re-read on demand.
+        Path binary = tempDir.resolve("lidar_data.bin");
+        LiDarBinaryFile.write(LiDarDataBase.readJson("src/test/java/bgu/spl/mics/resources/lidar_data.json"), binary);
+
+        try (LiDarBinaryFile file = LiDarBinaryFile.open(binary)) {
+            LiDarWindow window = new LiDarWindow(file, 1, 0);
+            for (int time = 1; time <= 5; time++) {
+                assertEquals(1, window.get(time).size());
+            }
+            assertEquals(5, window.getResidentTicks());
+            assertEquals(5, window.getMisses());
+
+            window.advance(1, 4);
+            window.advance(2, 5);
+            assertEquals(3, window.getResidentTicks(), "Ticks 1 and 2 should be evicted.");
+            assertEquals("Table_1", window.get(3).get(0).getId());
+            assertEquals(5, window.getMisses(), "Tick 3 should still be resident.");
+
+            window.get(1);
+            assertEquals(6, window.getMisses(), "An evicted tick is decoded again.");
+            assertEquals(3, window.getResidentTicks(), "An evicted tick is not cached again.");
+        }
+    }
+
+    @Test
+    void testParallelParseMatchesSequential(@TempDir Path tempDir) throws Exception {
+        // @PRE-CONDITION: A synthetic recording large enough to be split into chunks.
+        // @POST-CONDITION: Parsing it in parallel gives the same records, in the same order, as one thread.
+        Path file = tempDir.resolve("lidar_data.json");
+        LiDarLoadBenchmark.writeSyntheticFile(file, 10L << 20);
+
+        LiDarColumns sequential = LiDarJsonParser.parse(file, 1);
+        LiDarColumns parallel = LiDarJsonParser.parse(file, 4);
+        assertEquals(sequential.getRecordCount(), parallel.getRecordCount());
+        assertEquals(sequential.getPointCount(), parallel.getPointCount());
+        for (int r = 0; r < sequential.getRecordCount(); r += 97) {
+            assertEquals(sequential.getId(r), parallel.getId(r));
+            assertEquals(sequential.getTime(r), parallel.getTime(r));
+            assertEquals(sequential.getStart(r), parallel.getStart(r));
+        }
+        for (int p = 0; p < sequential.getPointCount(); p += 101) {
+            assertEquals(sequential.getX(p), parallel.getX(p));
+            assertEquals(sequential.getZ(p), parallel.getZ(p));
+        }
+        assertEquals(Double.parseDouble("0.1176"), LiDarDataBase.readJson("example_input/lidar_data.json").getX(0));
+    }
+
+    @Test
+    void testMalformedRecordReportsOffset(@TempDir Path tempDir) throws Exception {
+        // @PRE-CONDITION: The second record has a cloud point with a single coordinate.
+        // @POST-CONDITION: The parser reports the byte offsets of the point and of its record.
+        String json = "[{\"time\": 1, \"id\": \"A\", \"cloudPoints\": [[1.0, 2.0]]},\n"
+                + " {\"time\": 2, \"id\": \"B\", \"cloudPoints\": [[1.0]]}]";
+        Path file = tempDir.resolve("broken.json");
+        Files.write(file, json.getBytes(StandardCharsets.UTF_8));
+
+        LiDarParseException e = assertThrows(LiDarParseException.class, () -> LiDarJsonParser.parse(file, 1));
+        assertEquals(json.indexOf("{\"time\": 2"), e.getRecordOffset());
+        assertEquals(json.indexOf("[1.0]]"), e.getOffset());
+    }
+}
@@ -0,0 +1,123 @@
+package bgu.spl.mics;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import bgu.spl.mics.application.objects.LiDarColumns;
+import bgu.spl.mics.application.objects.LiDarJsonParser;
+
+/**
+ * Load-time benchmark for lidar_data.json.
+ * <p>
+ * Generates a synthetic recording of each requested size (in MB, default 10, 1024 and 10240) and
+ * times the streaming parser sequentially and in parallel. Files up to 100 MB are also loaded the old
+ * way (Gson into {@code List<Map<String, Object>>}) for comparison. Not part of the unit tests; run with
+ * </p>
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=bgu.spl.mics.LiDarLoadBenchmark -Dexec.args="10 1024"
+ * </pre>
+ * The 10 GB run needs a heap of about 16 GB and the same amount of free disk space.
+ */
+public class LiDarLoadBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        String[] sizes = args.length > 0 ? args : new String[] { "10", "1024", "10240" };
+        Path dir = Files.createTempDirectory("lidar-bench");
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (String size : sizes) {
+            long megabytes = Long.parseLong(size);
+            Path file = dir.resolve("lidar_" + megabytes + "mb.json");
+            writeSyntheticFile(file, megabytes << 20);
+            try {
+                if (megabytes <= 100) {
+                    long start = System.nanoTime();
+                    loadWithGson(file);
+                    report(megabytes, "gson maps", start);
+                }
+                long start = System.nanoTime();
+                LiDarColumns columns = LiDarJsonParser.parse(file, 1);
+                report(megabytes, "streaming, 1 thread", start);
+                columns = null;
+                start = System.nanoTime();
+                columns = LiDarJsonParser.parse(file, cores);
+                report(megabytes, "streaming, parallel on " + cores + " cores", start);
+                System.out.println("  " + columns.getRecordCount() + " records, " + columns.getPointCount() + " points");
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(dir);
+    }
+
+    /**
+     * Writes a lidar_data.json-shaped file of roughly {@code bytes} bytes.
+     */
+    public static void writeSyntheticFile(Path file, long bytes) throws IOException {
+        Random random = new Random(42);
+        try (Writer writer = new BufferedWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8), 1 << 16)) {
+            CountingWriter out = new CountingWriter(writer);
+            out.write("[\n");
+            int record = 0;
+            while (out.count < bytes) {
+                if (record > 0) {
+                    out.write(",\n");
+                }
+                out.write("    {\"time\": " + (record / 4 + 1) + ", \"id\": \"Object_" + record + "\", \"cloudPoints\": [");
+                int points = 4 + random.nextInt(12);
+                for (int p = 0; p < points; p++) {
+                    if (p > 0) {
+                        out.write(", ");
+                    }
+                    out.write(String.format(Locale.ROOT, "[%.5f, %.5f, %.3f]",
+                            random.nextGaussian() * 5, random.nextGaussian() * 5, random.nextDouble()));
+                }
+                out.write("]}");
+                record++;
+            }
+            out.write("\n]\n");
+        }
+    }
+
+    private static void loadWithGson(Path file) throws IOException {
+        Type listType = new TypeToken<List<Map<String, Object>>>() {}.getType();
+        try (Reader reader = Files.newBufferedReader(file)) {
+            List<Map<String, Object>> records = new Gson().fromJson(reader, listType);
+            if (records.isEmpty()) {
+                throw new IllegalStateException("No records");
+            }
+        }
+    }
+
+    private static void report(long megabytes, String variant, long startNanos) {
+        long millis = (System.nanoTime() - startNanos) / 1_000_000;
+        System.out.println(megabytes + " MB, " + variant + ": " + millis + " ms ("
+                + (millis == 0 ? "-" : megabytes * 1000 / millis) + " MB/s)");
+    }
+
+    private static class CountingWriter {
+        private final Writer writer;
+        private long count = 0;
+
+        CountingWriter(Writer writer) {
+            this.writer = writer;
+        }
+
+        void write(String s) throws IOException {
+            writer.write(s);
+            count += s.length();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package bgu.spl.mics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import bgu.spl.mics.application.objects.CloudPoint;
+import bgu.spl.mics.application.objects.FusionEngine;
+import bgu.spl.mics.application.objects.LandMark;
+import bgu.spl.mics.application.objects.LandMarkStore;
+import bgu.spl.mics.application.objects.MapDelta;
+import bgu.spl.mics.application.objects.MapDeltaLog;
+import bgu.spl.mics.application.objects.Pose;
+import bgu.spl.mics.application.objects.PoseTrajectory;
+import bgu.spl.mics.application.objects.TrackedObject;
+
+class MapDeltaTest {
+
+    private static TrackedObject object(String id, double x) {
+        return new TrackedObject(id, 1, "Wall", List.of(new CloudPoint(x, 0)));
+    }
+
+    @Test
+    void testDeltasRebuildTheMap(@TempDir Path tempDir) throws Exception {
+        // @PRE-CONDITION: Two ticks of fusion into a store tracking changes; the second updates Wall_1 and adds Door.
+        // @POST-CONDITION: The second delta holds only Wall_1 (version 2) and Door; applying both deltas
+        //                  gives the consumer the same landmarks as the store, and the log has one line per tick.
+        PoseTrajectory trajectory = new PoseTrajectory(false);
+        trajectory.add(new Pose(0, 0, 0, 1));
+        PoseTrajectory.Frame frame = trajectory.frameAt(1);
+        FusionEngine engine = new FusionEngine(1);
+        LandMarkStore store = new LandMarkStore();
+        store.trackChanges(true);
+        Map<String, LandMark> consumer = new HashMap<>();
+        Path file = tempDir.resolve("deltas.jsonl");
+        MapDeltaLog log = new MapDeltaLog(file);
+
+        engine.fuse(List.of(object("Wall_1", 1), object("Wall_2", 5)), frame, store);
+        MapDelta first = new MapDelta(1, store.drainChanged());
+        log.append(first);
+        assertEquals(2, first.applyTo(consumer));
+
+        engine.fuse(List.of(object("Wall_1", 3), object("Door", 9)), frame, store);
+        MapDelta second = new MapDelta(2, store.drainChanged());
+        log.append(second);
+        assertEquals(2, second.getLandMarks().size());
+        assertEquals("Door", second.getLandMarks().get(0).getId(), "New landmarks are added before the updates.");
+        assertEquals("Wall_1", second.getLandMarks().get(1).getId());
+        assertEquals(2, second.getLandMarks().get(1).getVersion());
+        assertEquals(2, second.applyTo(consumer));
+        assertEquals(0, first.applyTo(consumer), "Older versions are not applied again.");
+        assertTrue(store.drainChanged().isEmpty());
+        log.close();
+
+        assertEquals(store.size(), consumer.size());
+        for (LandMark landMark : store.asList()) {
+            assertEquals(landMark.getVersion(), consumer.get(landMark.getId()).getVersion());
+            assertEquals(landMark.getX(0), consumer.get(landMark.getId()).getX(0));
+        }
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertEquals(2, lines.size());
+        JsonObject line = JsonParser.parseString(lines.get(1)).getAsJsonObject();
+        assertEquals(2, line.get("tick").getAsInt());
+        assertEquals(2.0, line.getAsJsonArray("landMarks").get(1).getAsJsonObject()
+                .getAsJsonArray("coordinates").get(0).getAsJsonObject().get("x").getAsDouble());
+    }
+}
@@ -0,0 +1,76 @@
+package bgu.spl.mics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import bgu.spl.mics.application.objects.CloudPoint;
+import bgu.spl.mics.application.objects.FusionEngine;
+import bgu.spl.mics.application.objects.LandMark;
+import bgu.spl.mics.application.objects.LandMarkStore;
+import bgu.spl.mics.application.objects.MapSnapshot;
+import bgu.spl.mics.application.objects.Pose;
+import bgu.spl.mics.application.objects.PoseTrajectory;
+import bgu.spl.mics.application.objects.TrackedObject;
+
+class MapSnapshotTest {
+
+    private static TrackedObject object(String id, double x) {
+        return new TrackedObject(id, 1, "Wall", List.of(new CloudPoint(x, 0)));
+    }
+
+    @Test
+    void testSnapshotsAreIsolatedAndShareUnchangedLandmarks() {
+        // @PRE-CONDITION: A snapshot after tick 1 with Wall_1 and Wall_2; tick 2 updates Wall_1, adds Door and a pose.
+        // @POST-CONDITION: The first snapshot still shows the map of tick 1; the second one reuses the copy of
+        //                  Wall_2, has a new copy of Wall_1, and sees both poses.
+        PoseTrajectory trajectory = new PoseTrajectory(false);
+        trajectory.add(new Pose(0, 0, 0, 1));
+        FusionEngine engine = new FusionEngine(1);
+        LandMarkStore store = new LandMarkStore();
+        engine.fuse(List.of(object("Wall_1", 1), object("Wall_2", 5)), trajectory.frameAt(1), store);
+        MapSnapshot first = MapSnapshot.empty(1.0).next(1, store.asList(), trajectory.getPoses());
+
+        trajectory.add(new Pose(0, 0, 0, 2));
+        engine.fuse(List.of(object("Wall_1", 3), object("Door", 9)), trajectory.frameAt(2), store);
+        MapSnapshot second = first.next(2, store.asList(), trajectory.getPoses());
+
+        assertEquals(2, first.getLandMarks().size());
+        assertEquals(1.0, first.get("Wall_1").getX(0));
+        assertNull(first.get("Door"));
+        assertEquals(1, first.getPoses().size());
+
+        assertEquals(3, second.getLandMarks().size());
+        assertEquals(2.0, second.get("Wall_1").getX(0));
+        assertSame(first.get("Wall_2"), second.get("Wall_2"), "An unchanged landmark is not copied again.");
+        assertNotSame(store.get("Wall_1"), second.get("Wall_1"), "Readers never see the live landmark.");
+        assertEquals(2, second.getPoses().size());
+        assertEquals(2, second.getPoses().get(1).getTime());
+        assertThrows(UnsupportedOperationException.class, () -> second.getLandMarks().clear());
+    }
+
+    @Test
+    void testRangeAndNearestQueries() {
+        // @PRE-CONDITION: Landmarks at x = 0, 2, 4, ..., 18 on the x axis.
+        // @POST-CONDITION: The range and nearest queries return the expected landmarks, nearest first.
+        List<LandMark> live = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            live.add(new LandMark("LandMark_" + i, "Post", List.of(new CloudPoint(2 * i, 0))));
+        }
+        MapSnapshot snapshot = MapSnapshot.empty(1.0).next(1, live, new ArrayList<>());
+
+        List<LandMark> inRange = snapshot.withinRadius(7.5, 0, 2);
+        assertEquals(2, inRange.size());
+        assertEquals("LandMark_4", inRange.get(0).getId());
+        assertEquals("LandMark_3", inRange.get(1).getId());
+
+        List<LandMark> nearest = snapshot.nearest(18.5, 1, 3);
+        assertEquals(3, nearest.size());
+        assertEquals("LandMark_9", nearest.get(0).getId());
+        assertEquals("LandMark_8", nearest.get(1).getId());
+        assertEquals("LandMark_7", nearest.get(2).getId());
+    }
+}
@@ -0,0 +1,69 @@
+package bgu.spl.mics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import bgu.spl.mics.application.messages.TickBroadcast;
+import bgu.spl.mics.application.objects.MetricsServer;
+
+class MetricsServerTest {
+
+    private static String scrape(int port) throws Exception {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + port + "/metrics")
+                .openConnection();
+        try {
+            assertEquals(200, connection.getResponseCode());
+            assertTrue(connection.getContentType().startsWith("text/plain"));
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            try (InputStream in = connection.getInputStream()) {
+                byte[] buffer = new byte[4096];
+                for (int n; (n = in.read(buffer)) != -1; ) {
+                    body.write(buffer, 0, n);
+                }
+            }
+            return new String(body.toByteArray(), StandardCharsets.UTF_8);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    @Test
+    void testScrapeReportsCountersMailboxesAndMessages() throws Exception {
+        // @PRE-CONDITION: A service named with a quote is registered and has one TickBroadcast waiting in its
+        //                 mailbox; the server listens on a free local port.
+        // @POST-CONDITION: /metrics answers in the Prometheus text format, with the statistics, the mailbox
+        //                  depth of the service under an escaped label and the count of sent TickBroadcasts.
+        MessageBusImpl bus = MessageBusImpl.getInstance();
+        MicroService service = new MicroService("Metrics \"probe\"") {
+            @Override
+            protected void initialize() {
+            }
+        };
+        bus.register(service);
+        bus.subscribeBroadcast(TickBroadcast.class, service);
+        bus.sendBroadcast(new TickBroadcast(1));
+        MetricsServer server = new MetricsServer(0);
+        server.start();
+        try {
+            String metrics = scrape(server.getPort());
+
+            assertTrue(metrics.contains("# TYPE gurion_current_tick gauge\ngurion_current_tick "));
+            assertTrue(metrics.contains("# TYPE gurion_detected_objects_total counter\n"));
+            assertTrue(metrics.contains("\ngurion_landmarks "));
+            assertTrue(metrics.contains("\ngurion_fusion_seconds_total "));
+            assertTrue(metrics.contains("\ngurion_mailbox_depth{service=\"Metrics \\\"probe\\\"\"} 1\n"), metrics);
+            assertTrue(metrics.matches("(?s).*\ngurion_messages_sent_total\\{type=\"TickBroadcast\"} [1-9][0-9]*\n.*"),
+                    metrics);
+        } finally {
+            server.stop();
+            bus.unregister(service);
+        }
+    }
+}
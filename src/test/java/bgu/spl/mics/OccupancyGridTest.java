@@ -0,0 +1,37 @@
+package bgu.spl.mics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import bgu.spl.mics.application.objects.OccupancyGrid;
+
+class OccupancyGridTest {
+
+    @Test
+    void testRayMarksFreeCellsAndHit(@TempDir Path tempDir) throws Exception {
+        // @PRE-CONDITION: An empty grid with 0.1 m cells; the robot at the origin sees a hit at (2.05, -0.95).
+        // @POST-CONDITION: Cells on the ray are more likely free, the hit cell more likely occupied,
+        //                  only the touched tiles exist, and the binary export reads back the same map.
+        OccupancyGrid grid = new OccupancyGrid(0.1);
+        grid.addRay(0.05, 0.05, 2.05, -0.95);
+        grid.addRay(0.05, 0.05, 2.05, -0.95);
+
+        assertTrue(grid.getOccupancy(2.05, -0.95) > 0.5);
+        assertTrue(grid.getOccupancy(1.05, -0.45) < 0.5, "The middle of the ray is free.");
+        assertTrue(grid.getOccupancy(0.05, 0.05) < 0.5, "The robot's own cell is free.");
+        assertEquals(0.5, grid.getOccupancy(-3, 4), "Unseen cells are unknown.");
+        assertEquals(2, grid.getTileCount(), "The ray crosses y = 0, which is a tile border.");
+
+        Path file = tempDir.resolve("grid.bin");
+        grid.write(file);
+        OccupancyGrid read = OccupancyGrid.read(file);
+        assertEquals(0.1, read.getResolution());
+        assertEquals(2, read.getTileCount());
+        assertEquals(grid.getLogOdds(2.05, -0.95), read.getLogOdds(2.05, -0.95), 1.0 / 32);
+        assertEquals(grid.getLogOdds(1.05, -0.45), read.getLogOdds(1.05, -0.45), 1.0 / 32);
+    }
+}
@@ -0,0 +1,110 @@
+package bgu.spl.mics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import bgu.spl.mics.application.objects.CloudPoint;
+import bgu.spl.mics.application.objects.DetectedObject;
+import bgu.spl.mics.application.objects.LandMark;
+import bgu.spl.mics.application.objects.OutputWriter;
+import bgu.spl.mics.application.objects.Pose;
+import bgu.spl.mics.application.objects.StampedDetectedObjects;
+import bgu.spl.mics.application.objects.TrackedObject;
+
+class OutputWriterTest {
+
+    private static List<LandMark> landMarks() {
+        List<LandMark> landMarks = new ArrayList<>();
+        landMarks.add(new LandMark("Wall_1", "Wall",
+                new ArrayList<>(Arrays.asList(new CloudPoint(1.5, -2), new CloudPoint(2.25, -2.5)))));
+        landMarks.add(new LandMark("Door", "Door", new ArrayList<>(Arrays.asList(new CloudPoint(0.1, 0.2)))));
+        return landMarks;
+    }
+
+    @Test
+    void testGzippedOutput(@TempDir Path tempDir) throws Exception {
+        // @PRE-CONDITION: A gzipping writer and two landmarks.
+        // @POST-CONDITION: The file is gzipped JSON with the statistics and landmarks in their usual keys,
+        //                  and no temporary file is left behind.
+        OutputWriter writer = new OutputWriter(true);
+        Path path = tempDir.resolve(writer.resolve("output_file.json").toString());
+        assertTrue(path.toString().endsWith(".gz"));
+        writer.writeOutput(path, new OutputWriter.Statistics(14, 9, 8, 2), landMarks());
+        writer.shutdown();
+
+        JsonObject output;
+        try (Reader reader = new InputStreamReader(new GZIPInputStream(Files.newInputStream(path)), StandardCharsets.UTF_8)) {
+            output = JsonParser.parseReader(reader).getAsJsonObject();
+        }
+        assertEquals(14, output.get("systemRuntime").getAsInt());
+        assertEquals(2, output.get("numLandmarks").getAsInt());
+        JsonObject wall = output.getAsJsonObject("landMarks").getAsJsonObject("Wall_1");
+        assertEquals("Wall", wall.get("description").getAsString());
+        assertEquals(2.25, wall.getAsJsonArray("coordinates").get(1).getAsJsonObject().get("x").getAsDouble());
+        assertEquals(1, Files.list(tempDir).count());
+    }
+
+    @Test
+    void testErrorOutputKeys(@TempDir Path tempDir) throws Exception {
+        // @PRE-CONDITION: A crash with one camera frame, one LiDAR frame and one pose.
+        // @POST-CONDITION: The error output has the same keys as example_input/error_output.json.
+        OutputWriter writer = new OutputWriter(false);
+        Path path = tempDir.resolve("output_file.json");
+        StampedDetectedObjects frame = new StampedDetectedObjects(12,
+                Collections.singletonList(new DetectedObject("Wall_3", "Wall")));
+        TrackedObject tracked = new TrackedObject("Wall_3", 12, "Wall",
+                new ArrayList<>(Arrays.asList(new CloudPoint(3.1, -0.4))));
+        writer.writeErrorOutput(path, "Camera disconnected", "Camera1",
+                Collections.singletonMap(1, frame),
+                Collections.singletonMap(1, Collections.singletonList(tracked)),
+                Collections.singletonList(new Pose(-3.2076f, 0.0755f, -87.48f, 2)),
+                new OutputWriter.Statistics(14, 9, 9, 2), landMarks());
+        writer.shutdown();
+
+        String json = new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+        assertTrue(json.contains("{\"time\":2,\"x\":-3.2076,\"y\":0.0755,\"yaw\":-87.48}"), json);
+        JsonObject output = JsonParser.parseString(json).getAsJsonObject();
+        assertEquals("Camera1", output.get("faultySensor").getAsString());
+        assertEquals(12, output.getAsJsonObject("lastCamerasFrame").getAsJsonObject("Camera1").get("time").getAsInt());
+        assertEquals("Wall_3", output.getAsJsonObject("lastLiDarWorkerTrackersFrame")
+                .getAsJsonArray("LiDarWorkerTracker1").get(0).getAsJsonObject().get("id").getAsString());
+        JsonObject statistics = output.getAsJsonObject("statistics");
+        assertEquals(9, statistics.get("numTrackedObjects").getAsInt());
+        assertEquals("Door", statistics.getAsJsonObject("landMarks").getAsJsonObject("Door")
+                .get("description").getAsString());
+    }
+
+    @Test
+    void testCheckpointIsACopy(@TempDir Path tempDir) throws Exception {
+        // @PRE-CONDITION: A checkpoint at tick 5, after which a landmark is updated.
+        // @POST-CONDITION: The checkpoint holds the landmark as it was at tick 5.
+        OutputWriter writer = new OutputWriter(false);
+        Path path = tempDir.resolve("checkpoint_file.json");
+        List<LandMark> landMarks = landMarks();
+        assertTrue(writer.checkpoint(path, 5, landMarks));
+        landMarks.get(1).updateCoordinates(Collections.singletonList(new CloudPoint(10.1, 10.2)));
+        writer.shutdown();
+
+        JsonObject checkpoint = JsonParser.parseString(
+                new String(Files.readAllBytes(path), StandardCharsets.UTF_8)).getAsJsonObject();
+        assertEquals(5, checkpoint.get("tick").getAsInt());
+        assertEquals(0.1, checkpoint.getAsJsonObject("landMarks").getAsJsonObject("Door")
+                .getAsJsonArray("coordinates").get(0).getAsJsonObject().get("x").getAsDouble());
+    }
+}
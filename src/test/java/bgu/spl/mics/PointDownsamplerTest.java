@@ -0,0 +1,68 @@
+package bgu.spl.mics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Locale;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import bgu.spl.mics.application.objects.CloudPoint;
+import bgu.spl.mics.application.objects.LiDarColumns;
+import bgu.spl.mics.application.objects.PointDownsampler;
+import bgu.spl.mics.application.objects.StampedCloudPoints;
+
+class PointDownsamplerTest {
+
+    private StampedCloudPoints record;
+
+    @BeforeEach
+    void setUp() {
+        LiDarColumns columns = new LiDarColumns();
+        int r = columns.startRecord("Wall_1", 1);
+        columns.addPoint(0.00, 0.00, 0.0);
+        columns.addPoint(0.05, 0.02, 0.0); // same 0.1 voxel as the first point
+        columns.addPoint(0.50, 0.00, 0.0);
+        columns.addPoint(0.52, 0.01, 0.0); // same voxel as the third point
+        columns.addPoint(1.00, 0.00, 0.0);
+        record = columns.view(r);
+    }
+
+    @Test
+    void testVoxelKeepsFirstPointPerVoxelInOrder() {
+        // @PRE-CONDITION: Five points, two pairs of which share a 0.1 voxel.
+        // @POST-CONDITION: Only the first point of each voxel is kept, in the original order.
+        List<CloudPoint> kept = PointDownsampler.of("voxel", 0.1).downsample(record);
+        assertEquals(3, kept.size());
+        assertEquals(0.0, kept.get(0).getX());
+        assertEquals(0.5, kept.get(1).getX());
+        assertEquals(1.0, kept.get(2).getX());
+    }
+
+    @Test
+    void testDistanceDecimationAndNone() {
+        // @PRE-CONDITION: The same five points.
+        // @POST-CONDITION: Points closer than 0.3 to the last kept point are dropped; "none" keeps everything.
+        List<CloudPoint> kept = PointDownsampler.of("distance", 0.3).downsample(record);
+        assertEquals(3, kept.size());
+        assertEquals(0.5, kept.get(1).getX());
+
+        assertEquals(5, PointDownsampler.of(null, 0).downsample(record).size());
+        assertThrows(IllegalArgumentException.class, () -> PointDownsampler.of("voxel", 0));
+        assertThrows(IllegalArgumentException.class, () -> PointDownsampler.of("octree", 1));
+    }
+
+    @Test
+    void testMethodNameIgnoresTheDefaultLocale() {
+        // @PRE-CONDITION: The default locale is Turkish, where "i" upper-cases to a dotted capital I.
+        // @POST-CONDITION: "distance" is still parsed as the distance method.
+        Locale previous = Locale.getDefault();
+        Locale.setDefault(new Locale("tr", "TR"));
+        try {
+            assertEquals(PointDownsampler.Method.DISTANCE, PointDownsampler.of("distance", 0.3).getMethod());
+        } finally {
+            Locale.setDefault(previous);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package bgu.spl.mics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+import bgu.spl.mics.application.objects.Pose;
+import bgu.spl.mics.application.objects.PoseChannel;
+
+class PoseChannelTest {
+
+    @Test
+    void testPublishedPosesAreReadableUntilOverwritten() {
+        // @PRE-CONDITION: A channel with room for 4 poses.
+        // @POST-CONDITION: Recent poses are returned by tick; unpublished and overwritten ticks return null.
+        PoseChannel channel = new PoseChannel(3);
+        assertEquals(4, channel.getCapacity(), "Capacity is rounded up to a power of two.");
+        assertNull(channel.get(1));
+
+        for (int tick = 1; tick <= 6; tick++) {
+            channel.publish(new Pose(tick, 0, 0, tick));
+        }
+        assertEquals(6, channel.getLatestTick());
+        assertEquals(3f, channel.get(3).getX());
+        assertNull(channel.get(2), "Tick 2 was overwritten by tick 6.");
+        assertNull(channel.get(7));
+        assertThrows(IllegalArgumentException.class, () -> channel.publish(new Pose(0, 0, 0, 6)));
+    }
+
+    @Test
+    void testAwaitTickBlocksUntilPublished() throws InterruptedException {
+        // @PRE-CONDITION: A reader waits for tick 2 before it is published.
+        // @POST-CONDITION: The reader wakes up with the pose once the writer publishes it; closing wakes waiters.
+        PoseChannel channel = new PoseChannel(8);
+        AtomicReference<Pose> received = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            try {
+                received.set(channel.awaitTick(2, 5000));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        reader.start();
+        channel.publish(new Pose(1, 1, 0, 1));
+        Thread.sleep(50);
+        channel.publish(new Pose(2, 2, 0, 2));
+        reader.join(5000);
+        assertFalse(reader.isAlive());
+        assertEquals(2, received.get().getTime());
+
+        channel.close();
+        assertNull(channel.awaitTick(3, 5000), "A closed channel does not block.");
+    }
+}
@@ -0,0 +1,86 @@
+package bgu.spl.mics;
+
+import java.util.Random;
+
+import bgu.spl.mics.application.objects.Pose;
+import bgu.spl.mics.application.objects.PoseGraph;
+
+/**
+ * Time per optimization of {@link PoseGraph} over a long run.
+ * <p>
+ * Drives 100,000 ticks around a 20 x 20 m loop of 400 ticks lined with 400 landmarks, seeing the 5 nearest at
+ * every tick, with a GPSIMU that drifts, and optimizes every 10 ticks and on every loop closure.
+ * Prints the mean and worst time per optimization for every 10,000 ticks; with a bounded window
+ * they should stay flat as the graph grows. Not part of the unit tests; run with
+ * </p>
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=bgu.spl.mics.PoseGraphBenchmark
+ * </pre>
+ */
+public class PoseGraphBenchmark {
+    private static final int TICKS = 100_000;
+    private static final int PERIOD = 400; // ticks per lap, longer than the window so laps close loops
+    private static final int LANDMARKS = 400;
+
+    public static void main(String[] args) {
+        PoseGraph graph = new PoseGraph(PoseGraph.DEFAULT_WINDOW_SIZE);
+        Random random = new Random(1);
+        double[][] landMarks = new double[LANDMARKS][];
+        for (int i = 0; i < LANDMARKS; i++) {
+            double[] p = lapPoint(i * (double) PERIOD / LANDMARKS);
+            landMarks[i] = new double[] {p[0] + random.nextGaussian(), p[1] + random.nextGaussian()};
+        }
+
+        long totalNanos = 0;
+        long worstNanos = 0;
+        int count = 0;
+        double driftX = 0;
+        double driftY = 0;
+        for (int tick = 1; tick <= TICKS; tick++) {
+            double[] truth = lapPoint(tick % PERIOD);
+            driftX += random.nextGaussian() * 0.01;
+            driftY += random.nextGaussian() * 0.01;
+            graph.addPose(new Pose((float) (truth[0] + driftX), (float) (truth[1] + driftY),
+                    (float) Math.toDegrees(truth[2]), tick));
+            boolean closure = false;
+            int nearest = (int) ((tick % PERIOD) * (double) LANDMARKS / PERIOD);
+            for (int k = -2; k <= 2; k++) {
+                int id = Math.floorMod(nearest + k, LANDMARKS);
+                double dx = landMarks[id][0] - truth[0];
+                double dy = landMarks[id][1] - truth[1];
+                double c = Math.cos(truth[2]);
+                double s = Math.sin(truth[2]);
+                closure |= graph.addObservation(tick, "LandMark_" + id, c * dx + s * dy, -s * dx + c * dy);
+            }
+            if (closure || tick % 10 == 0) {
+                long start = System.nanoTime();
+                graph.optimize();
+                long nanos = System.nanoTime() - start;
+                totalNanos += nanos;
+                worstNanos = Math.max(worstNanos, nanos);
+                count++;
+            }
+            if (tick % 10_000 == 0) {
+                System.out.printf("%6d poses: %5d optimizations, mean %6.2f ms, worst %6.2f ms%n",
+                        tick, count, totalNanos / 1e6 / count, worstNanos / 1e6);
+                totalNanos = 0;
+                worstNanos = 0;
+                count = 0;
+            }
+        }
+    }
+
+    /**
+     * @return {x, y, yaw} of a point at {@code t} ticks along the lap, yaw in radians.
+     */
+    private static double[] lapPoint(double t) {
+        double side = PERIOD / 4.0;
+        double along = 20 * (t % side) / side;
+        switch ((int) (t / side) % 4) {
+            case 0: return new double[] {along, 0, 0};
+            case 1: return new double[] {20, along, Math.PI / 2};
+            case 2: return new double[] {20 - along, 20, Math.PI};
+            default: return new double[] {0, 20 - along, -Math.PI / 2};
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package bgu.spl.mics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import bgu.spl.mics.application.objects.Pose;
+import bgu.spl.mics.application.objects.PoseGraph;
+import bgu.spl.mics.application.objects.SparseCholesky;
+
+class PoseGraphTest {
+
+    @Test
+    void testSparseCholeskySolves() {
+        // @PRE-CONDITION: A 300 x 300 SPD matrix with a band and an "arrow" of dense last rows, as upper CSC.
+        // @POST-CONDITION: Solving A x = A x0 gives back x0.
+        int n = 300;
+        double[][] a = new double[n][n];
+        Random random = new Random(3);
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n && j <= i + 3; j++) {
+                a[i][j] = a[j][i] = random.nextDouble() - 0.5;
+            }
+            for (int j = n - 5; j < n; j++) {
+                if (j > i) {
+                    a[i][j] = a[j][i] = random.nextDouble() - 0.5;
+                }
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            double sum = 0;
+            for (int j = 0; j < n; j++) {
+                sum += Math.abs(a[i][j]);
+            }
+            a[i][i] = sum + 1; // diagonally dominant
+        }
+        int[] colPtr = new int[n + 1];
+        int[] rowIdx = new int[n * n];
+        double[] values = new double[n * n];
+        int count = 0;
+        for (int j = 0; j < n; j++) {
+            for (int i = 0; i <= j; i++) {
+                if (a[i][j] != 0) {
+                    rowIdx[count] = i;
+                    values[count++] = a[i][j];
+                }
+            }
+            colPtr[j + 1] = count;
+        }
+        double[] x0 = new double[n];
+        double[] b = new double[n];
+        for (int i = 0; i < n; i++) {
+            x0[i] = random.nextGaussian();
+        }
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                b[i] += a[i][j] * x0[j];
+            }
+        }
+
+        SparseCholesky factor = SparseCholesky.factor(n, colPtr, rowIdx, values);
+        double[] x = factor.solve(b);
+        for (int i = 0; i < n; i++) {
+            assertEquals(x0[i], x[i], 1e-9);
+        }
+        assertTrue(factor.getNonZeros() < n * 10, "The band and the arrow do not fill in.");
+    }
+
+    @Test
+    void testLoopClosureRemovesDrift() {
+        // @PRE-CONDITION: The robot drives 30 m along x and back, seeing a post at (0, 2) at both ends.
+        //                 The GPSIMU drifts 5 cm per tick along x, so it ends 3 m off. Window of 20 poses.
+        // @POST-CONDITION: Seeing the post again is a loop closure, and after optimizing most of the drift
+        //                  of the last pose is gone and the post stays near (0, 2).
+        PoseGraph graph = new PoseGraph(20);
+        boolean closed = false;
+        for (int tick = 1; tick <= 61; tick++) {
+            double trueX = tick <= 31 ? tick - 1 : 61 - tick;
+            float yaw = tick <= 31 ? 0 : 180;
+            graph.addPose(new Pose((float) (trueX + 0.05 * (tick - 1)), 0, yaw, tick));
+            if (tick <= 3) {
+                assertFalse(graph.addObservation(tick, "Post", -trueX, 2));
+            } else if (tick >= 59) {
+                closed |= graph.addObservation(tick, "Post", trueX, -2); // seen facing backwards
+            }
+            assertTrue(graph.getWindowPoseCount() <= 20);
+        }
+        assertTrue(closed, "The post was out of the window for more than 20 ticks.");
+        assertEquals(3.0, graph.getEstimate(61).getX(), 1e-4, "Before optimizing, the estimate follows the GPSIMU.");
+
+        graph.optimize();
+
+        assertEquals(0.0, graph.getEstimate(61).getX(), 0.75, "Most of the 3 m drift is gone.");
+        assertEquals(0.0, graph.getEstimate(61).getY(), 0.1);
+        assertEquals(0.0, graph.getLandMarkEstimate("Post")[0], 0.3);
+        assertEquals(2.0, graph.getLandMarkEstimate("Post")[1], 0.1);
+        assertTrue(graph.getLastFinalError() < graph.getLastInitialError());
+        assertEquals(1, graph.getOptimizations());
+    }
+}
@@ -0,0 +1,83 @@
+package bgu.spl.mics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import bgu.spl.mics.application.objects.BinaryPoseSource;
+import bgu.spl.mics.application.objects.Pose;
+import bgu.spl.mics.application.objects.PoseSource;
+import bgu.spl.mics.application.objects.StreamingPoseSource;
+
+class PoseSourceTest {
+
+    private static final Path POSE_FILE = Paths.get("src/test/java/bgu/spl/mics/resources/pose_data.json");
+
+    private static void assertPoses(PoseSource source) {
+        assertFalse(source.isLastTick(1));
+        assertEquals(-3.2076f, source.getPoseAtTick(2).getX());
+        assertEquals(-92.68f, source.getPoseAtTick(3).getYaw());
+        assertFalse(source.isLastTick(4));
+        assertNull(source.getPoseAtTick(4), "There is no pose at tick 4.");
+        assertEquals(2.8094f, source.getPoseAtTick(5).getY());
+        assertTrue(source.isLastTick(5));
+        assertNull(source.getPoseAtTick(6));
+    }
+
+    @Test
+    void testStreamingSourceWithSmallLookahead() throws Exception {
+        // @PRE-CONDITION: pose_data.json with a gap at tick 4, read with a lookahead of one pose.
+        // @POST-CONDITION: Poses are returned by tick in order and the last tick is detected.
+        try (PoseSource source = new StreamingPoseSource(POSE_FILE, 1)) {
+            assertPoses(source);
+        }
+    }
+
+    @Test
+    void testBinaryRoundTrip(@TempDir Path tempDir) throws Exception {
+        // @PRE-CONDITION: pose_data.json is converted to the binary format.
+        // @POST-CONDITION: The memory-mapped source returns the same poses, and open() recognizes it.
+        Path binary = tempDir.resolve("pose_data.bin");
+        assertEquals(4, BinaryPoseSource.convert(POSE_FILE, binary));
+        assertTrue(BinaryPoseSource.isBinary(binary));
+        assertFalse(BinaryPoseSource.isBinary(POSE_FILE));
+        try (PoseSource source = PoseSource.open(binary, 16)) {
+            assertTrue(source instanceof BinaryPoseSource);
+            assertPoses(source);
+            Pose first = source.getPoseAtTick(1);
+            assertEquals(1, first.getTime());
+        }
+    }
+
+    @Test
+    void testStreamingSourceFailsOnInvalidFirstPoses(@TempDir Path tempDir) throws Exception {
+        // @PRE-CONDITION: A pose file whose second pose has a non-numeric time, read with a lookahead of 16.
+        // @POST-CONDITION: Opening the source fails with an IOException, before the simulation starts.
+        Path file = tempDir.resolve("pose_data.json");
+        Files.write(file, "[{\"time\": 1, \"x\": 0, \"y\": 0, \"yaw\": 0}, {\"time\": \"two\"}]"
+                .getBytes(StandardCharsets.UTF_8));
+        assertThrows(IOException.class, () -> PoseSource.open(file, 16));
+    }
+
+    @Test
+    void testStreamingSourceFailsWhereTruncated(@TempDir Path tempDir) throws Exception {
+        // @PRE-CONDITION: A pose file cut off after its second pose, read with a lookahead of one pose.
+        // @POST-CONDITION: The source opens and returns the two poses, and the call that reads past them throws.
+        Path file = tempDir.resolve("pose_data.json");
+        Files.write(file, "[{\"time\": 1, \"x\": 0, \"y\": 0, \"yaw\": 0}, {\"time\": 2, \"x\": 1, \"y\": 0, \"yaw\": 0}, {\"ti"
+                .getBytes(StandardCharsets.UTF_8));
+        try (PoseSource source = new StreamingPoseSource(file, 1)) {
+            assertEquals(0f, source.getPoseAtTick(1).getX());
+            assertFalse(source.isLastTick(1));
+            assertEquals(1f, source.getPoseAtTick(2).getX());
+            assertThrows(RuntimeException.class, () -> source.isLastTick(2));
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package bgu.spl.mics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import bgu.spl.mics.application.objects.Pose;
+import bgu.spl.mics.application.objects.PoseTrajectory;
+
+class PoseTrajectoryTest {
+
+    @Test
+    void testLookupByTickAndTransform() {
+        // @PRE-CONDITION: Poses at ticks 1 and 3, interpolation disabled.
+        // @POST-CONDITION: Recorded ticks are found directly, missing ticks are not, and points are rotated by the yaw.
+        PoseTrajectory trajectory = new PoseTrajectory(false);
+        trajectory.add(new Pose(0, 0, 0, 1));
+        trajectory.add(new Pose(1, 2, 90, 3));
+
+        assertTrue(trajectory.contains(3));
+        assertEquals(90f, trajectory.getPose(3).getYaw());
+        assertNull(trajectory.frameAt(2));
+        assertNull(trajectory.frameAt(100));
+        assertEquals(2, trajectory.getPoses().size());
+
+        PoseTrajectory.Frame frame = trajectory.frameAt(3);
+        assertEquals(1 - 2.0, frame.toGlobalX(1.0, 2.0), 1e-9);
+        assertEquals(2 + 1.0, frame.toGlobalY(1.0, 2.0), 1e-9);
+    }
+
+    @Test
+    void testInterpolationTakesShorterYawArc() {
+        // @PRE-CONDITION: Poses at ticks 1 (yaw 170) and 3 (yaw -170), interpolation enabled.
+        // @POST-CONDITION: Tick 2 lies halfway between them, facing 180 degrees rather than 0.
+        PoseTrajectory trajectory = new PoseTrajectory(true);
+        trajectory.add(new Pose(0, 0, 170, 1));
+        trajectory.add(new Pose(2, 4, -170, 3));
+
+        PoseTrajectory.Frame frame = trajectory.frameAt(2);
+        assertNotNull(frame);
+        assertEquals(1.0, frame.toGlobalX(0, 0), 1e-9);
+        assertEquals(2.0, frame.toGlobalY(0, 0), 1e-9);
+        assertEquals(1.0 - 1.0, frame.toGlobalX(1.0, 0), 1e-6);
+        assertNull(trajectory.getPose(2), "Interpolated poses are not stored.");
+    }
+}
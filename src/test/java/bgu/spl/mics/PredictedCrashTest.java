@@ -0,0 +1,74 @@
+package bgu.spl.mics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import bgu.spl.mics.application.GurionRockRunner;
+import bgu.spl.mics.application.objects.Camera;
+import bgu.spl.mics.application.objects.DetectedObject;
+import bgu.spl.mics.application.objects.LiDarDataBase;
+import bgu.spl.mics.application.objects.StampedDetectedObjects;
+
+class PredictedCrashTest {
+    private static final String LIDAR_DATA = "src/test/java/bgu/spl/mics/resources/lidar_data.json";
+
+    private List<Camera> cameras;
+    private LiDarDataBase dataBase;
+
+    @BeforeEach
+    void setUp() {
+        // One object at every time from 1 to 5; the camera fails at 3, the LiDAR data at 5
+        Camera camera = new Camera(1, 0);
+        for (int time = 1; time <= 5; time++) {
+            List<DetectedObject> objects = new ArrayList<>();
+            objects.add(new DetectedObject(time == 3 ? DetectedObject.ERROR_ID : "Object" + time, "Description"));
+            camera.addDetectedObject(new StampedDetectedObjects(time, objects));
+        }
+        cameras = new ArrayList<>();
+        cameras.add(camera);
+        dataBase = LiDarDataBase.getInstance();
+        dataBase.loadData(LIDAR_DATA);
+    }
+
+    @AfterEach
+    void tearDown() {
+        dataBase.loadData(LIDAR_DATA); // the database is shared with the other tests
+    }
+
+    @Test
+    void testTrimDropsDataAfterThePredictedCrash() {
+        // @PRE-CONDITION: The camera fails at 3 and the LiDAR data at 5; trimming is on.
+        // @POST-CONDITION: The crash is predicted at 3; both sensors keep their data up to 3 and lose the rest,
+        //                  and the LiDAR recording still ends at 5.
+        assertEquals(3, GurionRockRunner.applyPredictedCrash(cameras, dataBase, true));
+
+        Camera camera = cameras.get(0);
+        for (int time = 1; time <= 3; time++) {
+            assertNotNull(camera.getDetectedObjectsAtTime(time), "Detections at " + time + " are kept.");
+            assertFalse(dataBase.getStampedCloudPointsAtTime(time).isEmpty(), "Cloud points at " + time + " are kept.");
+        }
+        for (int time = 4; time <= 5; time++) {
+            assertNull(camera.getDetectedObjectsAtTime(time), "Detections at " + time + " are dropped.");
+            assertTrue(dataBase.getStampedCloudPointsAtTime(time).isEmpty(), "Cloud points at " + time + " are dropped.");
+        }
+        assertEquals(5, dataBase.getLastTime());
+    }
+
+    @Test
+    void testNoTrimKeepsAllData() {
+        // @PRE-CONDITION: The camera fails at 3 and the LiDAR data at 5; trimming is off.
+        // @POST-CONDITION: The crash is still predicted at 3, and no data of either sensor is dropped.
+        assertEquals(3, GurionRockRunner.applyPredictedCrash(cameras, dataBase, false));
+
+        for (int time = 1; time <= 5; time++) {
+            assertNotNull(cameras.get(0).getDetectedObjectsAtTime(time));
+            assertFalse(dataBase.getStampedCloudPointsAtTime(time).isEmpty());
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package bgu.spl.mics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import bgu.spl.mics.application.objects.SpatialGrid;
+
+class SpatialGridTest {
+
+    private static double distance(double[] box, double x, double y) {
+        double dx = Math.max(0, Math.max(box[0] - x, x - box[2]));
+        double dy = Math.max(0, Math.max(box[1] - y, y - box[3]));
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    @Test
+    void testQueriesMatchBruteForce() {
+        // @PRE-CONDITION: 500 random boxes, some of them far larger than a cell, some moved after insertion.
+        // @POST-CONDITION: Radius and k-nearest queries return the same boxes as a linear scan.
+        Random random = new Random(3);
+        SpatialGrid<Integer> grid = new SpatialGrid<>(2.0);
+        List<double[]> boxes = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            double x = random.nextDouble() * 200 - 100;
+            double y = random.nextDouble() * 200 - 100;
+            double size = i % 50 == 0 ? 40 : random.nextDouble() * 3;
+            boxes.add(new double[] { x, y, x + size, y + size });
+        }
+        for (int i = 0; i < boxes.size(); i++) {
+            double[] b = boxes.get(i);
+            grid.put(i, b[0] + 7, b[1], b[2] + 7, b[3]); // moved below
+        }
+        for (int i = 0; i < boxes.size(); i++) {
+            double[] b = boxes.get(i);
+            grid.put(i, b[0], b[1], b[2], b[3]);
+        }
+        assertEquals(500, grid.size());
+
+        for (int q = 0; q < 50; q++) {
+            double x = random.nextDouble() * 200 - 100;
+            double y = random.nextDouble() * 200 - 100;
+            List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < boxes.size(); i++) {
+                expected.add(i);
+            }
+            expected.sort(Comparator.comparingDouble(i -> distance(boxes.get(i), x, y)));
+
+            List<Integer> nearest = grid.nearest(x, y, 5);
+            for (int k = 0; k < 5; k++) {
+                assertEquals(distance(boxes.get(expected.get(k)), x, y), distance(boxes.get(nearest.get(k)), x, y), 1e-12);
+            }
+            long inRadius = expected.stream().filter(i -> distance(boxes.get(i), x, y) <= 6).count();
+            assertEquals(inRadius, grid.withinRadius(x, y, 6).size());
+        }
+
+        assertTrue(grid.remove(0));
+        assertFalse(grid.remove(0));
+        assertFalse(grid.withinRadius(boxes.get(0)[0], boxes.get(0)[1], 0).contains(0));
+    }
+
+    @Test
+    void testNearestFarFromEveryBoxFindsThemOnEverySide() {
+        // @PRE-CONDITION: One small box on each side of the origin, 40 to 70 cells away, none on a ring corner.
+        // @POST-CONDITION: nearest() from the origin walks out to each of them and returns all four, nearest first.
+        SpatialGrid<String> grid = new SpatialGrid<>(1.0);
+        grid.put("right", 40.2, 3.2, 40.4, 3.4);
+        grid.put("left", -50.4, -5.4, -50.2, -5.2);
+        grid.put("top", 7.2, 60.2, 7.4, 60.4);
+        grid.put("bottom", -2.4, -70.4, -2.2, -70.2);
+
+        assertEquals(List.of("right", "left", "top", "bottom"), grid.nearest(0, 0, 4));
+        assertEquals(List.of("right"), grid.nearest(0, 0, 1));
+    }
+}
@@ -0,0 +1,70 @@
+package bgu.spl.mics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import bgu.spl.mics.application.objects.OutputWriter;
+import bgu.spl.mics.application.objects.TickTimeSeries;
+
+class TickTimeSeriesTest {
+
+    @Test
+    void testRingBufferKeepsTheLastTicksAsDeltas() {
+        // @PRE-CONDITION: A series of 4 ticks; totals grow by tick, 2 * tick and 1 on ticks 1 to 6.
+        // @POST-CONDITION: Only ticks 3 to 6 are kept, oldest first, each with the growth of its own tick.
+        TickTimeSeries series = new TickTimeSeries(4);
+        long detected = 0;
+        long tracked = 0;
+        for (int tick = 1; tick <= 6; tick++) {
+            detected += tick;
+            tracked += 2 * tick;
+            series.record(tick, detected, tracked, tick);
+        }
+
+        TickTimeSeries.Samples samples = series.getSamples();
+        assertEquals(4, samples.size());
+        for (int i = 0; i < 4; i++) {
+            int tick = i + 3;
+            assertEquals(tick, samples.getTick(i));
+            assertEquals(tick, samples.getDetectedObjects(i));
+            assertEquals(2 * tick, samples.getTrackedObjects(i));
+            assertEquals(1, samples.getLandMarks(i));
+        }
+    }
+
+    @Test
+    void testTimeSeriesIsWrittenWithTheOutput(@TempDir Path tempDir) throws Exception {
+        // @PRE-CONDITION: Two recorded ticks, written with the output.
+        // @POST-CONDITION: The output has a "timeSeries" object of parallel arrays next to the usual keys.
+        TickTimeSeries series = new TickTimeSeries(16);
+        series.record(1, 3, 0, 0);
+        series.record(2, 5, 3, 2);
+        OutputWriter writer = new OutputWriter(false);
+        Path path = tempDir.resolve("output_file.json");
+        writer.writeOutput(path, new OutputWriter.Statistics(2, 5, 3, 2, series.getSamples()), new ArrayList<>());
+        writer.shutdown();
+
+        JsonObject output = JsonParser.parseString(new String(Files.readAllBytes(path), StandardCharsets.UTF_8))
+                .getAsJsonObject();
+        assertEquals(5, output.get("numDetectedObjects").getAsInt());
+        JsonObject timeSeries = output.getAsJsonObject("timeSeries");
+        JsonArray ticks = timeSeries.getAsJsonArray("ticks");
+        assertEquals(2, ticks.size());
+        assertEquals(2, ticks.get(1).getAsInt());
+        assertEquals(3, timeSeries.getAsJsonArray("detectedObjects").get(0).getAsInt());
+        assertEquals(2, timeSeries.getAsJsonArray("detectedObjects").get(1).getAsInt());
+        assertEquals(3, timeSeries.getAsJsonArray("trackedObjects").get(1).getAsInt());
+        assertEquals(2, timeSeries.getAsJsonArray("landMarks").get(1).getAsInt());
+    }
+}
@@ -0,0 +1,114 @@
+package bgu.spl.mics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import bgu.spl.mics.application.objects.CloudPoint;
+import bgu.spl.mics.application.objects.FusionEngine;
+import bgu.spl.mics.application.objects.LandMark;
+import bgu.spl.mics.application.objects.LandMarkStore;
+import bgu.spl.mics.application.objects.Pose;
+import bgu.spl.mics.application.objects.PoseTrajectory;
+import bgu.spl.mics.application.objects.TiledLandMarkStore;
+import bgu.spl.mics.application.objects.TrackedObject;
+
+class TiledLandMarkStoreTest {
+
+    /**
+     * @return One object per cell of a 10 x 10 grid of 10 m tiles, observed {@code shift} meters to the right.
+     */
+    private static List<TrackedObject> grid(double shift) {
+        List<TrackedObject> objects = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            double x = (i % 10) * 10 + 5 + shift;
+            double y = (i / 10) * 10 + 5;
+            objects.add(new TrackedObject("LandMark_" + i, 1, "Post",
+                    List.of(new CloudPoint(x, y), new CloudPoint(x + 1, y))));
+        }
+        return objects;
+    }
+
+    private static long tileFiles(Path directory) throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    @Test
+    void testFusionOverSpilledTilesMatchesTheInMemoryStore(@TempDir Path tempDir) throws Exception {
+        // @PRE-CONDITION: 100 landmarks in 100 tiles of 10 m, at most 4 tiles in memory; every landmark is
+        //                 seen three times, one landmark per batch, next to an in-memory store fed the same batches.
+        // @POST-CONDITION: At most 4 tiles stay resident, tiles were spilled and read back, and every landmark
+        //                  has the same coordinates, observation counts and version as in the in-memory store,
+        //                  in the same order.
+        PoseTrajectory trajectory = new PoseTrajectory(false);
+        trajectory.add(new Pose(0, 0, 0, 1));
+        FusionEngine engine = new FusionEngine(1);
+        Path directory = tempDir.resolve("tiles");
+        TiledLandMarkStore tiled = new TiledLandMarkStore(directory, 10, 4);
+        LandMarkStore memory = new LandMarkStore();
+        for (double shift : new double[] {0, 0.5, 0.25}) {
+            for (TrackedObject object : grid(shift)) {
+                engine.fuse(List.of(object), trajectory.frameAt(1), tiled);
+                engine.fuse(List.of(object), trajectory.frameAt(1), memory);
+            }
+        }
+
+        assertEquals(100, tiled.size());
+        assertEquals(100, tiled.getTileCount());
+        assertTrue(tiled.getResidentTileCount() <= 4);
+        assertTrue(tiled.getSpills() > 0);
+        assertTrue(tiled.getLoads() > 0);
+        List<LandMark> expected = memory.asList();
+        List<LandMark> actual = tiled.asList();
+        for (int i = 0; i < 100; i++) {
+            LandMark want = expected.get(i);
+            LandMark got = actual.get(i);
+            assertEquals(want.getId(), got.getId());
+            assertEquals(want.getDescription(), got.getDescription());
+            assertEquals(want.getVersion(), got.getVersion());
+            assertEquals(want.getPointCount(), got.getPointCount());
+            for (int p = 0; p < want.getPointCount(); p++) {
+                assertEquals(want.getX(p), got.getX(p));
+                assertEquals(want.getY(p), got.getY(p));
+                assertEquals(want.getObservationCount(p), got.getObservationCount(p));
+            }
+        }
+        assertTrue(tiled.getResidentTileCount() <= 4, "Reading the whole map keeps the limit.");
+
+        assertTrue(tileFiles(directory) > 0);
+        tiled.close();
+        assertEquals(0, tileFiles(directory));
+    }
+
+    @Test
+    void testBatchKeepsItsTilesUntilItEnds(@TempDir Path tempDir) throws Exception {
+        // @PRE-CONDITION: One tile resident at most, and a single batch that updates 10 landmarks in 10 tiles.
+        // @POST-CONDITION: No update is lost, and the store is back to one resident tile after the batch.
+        PoseTrajectory trajectory = new PoseTrajectory(false);
+        trajectory.add(new Pose(0, 0, 0, 1));
+        FusionEngine engine = new FusionEngine(1);
+        TiledLandMarkStore tiled = new TiledLandMarkStore(tempDir, 10, 1);
+        List<TrackedObject> row = grid(0).subList(0, 10);
+        for (TrackedObject object : row) {
+            engine.fuse(List.of(object), trajectory.frameAt(1), tiled);
+        }
+
+        engine.fuse(row, trajectory.frameAt(1), tiled);
+
+        assertEquals(1, tiled.getResidentTileCount());
+        for (TrackedObject object : row) {
+            assertEquals(2, tiled.get(object.getId()).getVersion());
+            assertEquals(2, tiled.get(object.getId()).getObservationCount(0));
+        }
+        tiled.close();
+    }
+}